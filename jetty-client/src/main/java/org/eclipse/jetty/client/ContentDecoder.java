@@ -45,16 +45,35 @@ public interface ContentDecoder
      * {@link Factory} have an {@link #getEncoding() encoding}, which is the string used in
      * {@code Accept-Encoding} request header and in {@code Content-Encoding} response headers.
      * <p>
+     * {@link Factory} have a {@link #getQuality() quality}, which is the weight advertised
+     * for the encoding in the {@code Accept-Encoding} request header, so that servers can
+     * negotiate the preferred encoding among those supported.
+     * <p>
      * {@link Factory} instances are configured in {@link HttpClient} via
      * {@link HttpClient#getContentDecoderFactories()}.
      */
     public abstract static class Factory
     {
         private final String encoding;
+        private final float quality;
 
         protected Factory(String encoding)
         {
+            this(encoding, 1.0F);
+        }
+
+        /**
+         * @param encoding the encoding of the decoders created by this factory
+         * @param quality the quality advertised for the encoding, between 0 (exclusive) and 1 (inclusive),
+         * rounded to 3 decimals as HTTP quality values have at most 3 decimals
+         */
+        protected Factory(String encoding, float quality)
+        {
+            int millis = Math.round(quality * 1000);
+            if (millis <= 0 || millis > 1000)
+                throw new IllegalArgumentException("Invalid quality " + quality);
             this.encoding = encoding;
+            this.quality = millis / 1000F;
         }
 
         /**
@@ -65,6 +84,14 @@ public interface ContentDecoder
             return encoding;
         }
 
+        /**
+         * @return the quality advertised for the encoding in the {@code Accept-Encoding} request header
+         */
+        public float getQuality()
+        {
+            return quality;
+        }
+
         @Override
         public boolean equals(Object obj)
         {
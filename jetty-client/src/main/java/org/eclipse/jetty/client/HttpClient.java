@@ -26,6 +26,7 @@ import java.nio.channels.SocketChannel;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -1347,11 +1348,26 @@ public class HttpClient extends ContainerLifeCycle
             }
             else
             {
+                // List the preferred encodings first.
+                List<ContentDecoder.Factory> factories = new ArrayList<>(set);
+                factories.sort(Comparator.comparing(ContentDecoder.Factory::getQuality).reversed());
                 StringBuilder value = new StringBuilder();
-                for (Iterator<ContentDecoder.Factory> iterator = set.iterator(); iterator.hasNext(); )
+                for (Iterator<ContentDecoder.Factory> iterator = factories.iterator(); iterator.hasNext(); )
                 {
                     ContentDecoder.Factory decoderFactory = iterator.next();
                     value.append(decoderFactory.getEncoding());
+                    int millis = Math.round(decoderFactory.getQuality() * 1000);
+                    if (millis < 1000)
+                    {
+                        // Format as 0.xxx, without trailing zeros.
+                        String decimals = String.valueOf(1000 + millis).substring(1);
+                        int length = decimals.length();
+                        while (decimals.charAt(length - 1) == '0')
+                        {
+                            --length;
+                        }
+                        value.append(";q=0.").append(decimals, 0, length);
+                    }
                     if (iterator.hasNext())
                         value.append(",");
                 }
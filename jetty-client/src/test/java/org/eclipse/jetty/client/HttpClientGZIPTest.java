@@ -74,6 +74,45 @@ public class HttpClientGZIPTest extends AbstractHttpClientServerTest
         assertArrayEquals(data, response.getContent());
     }
 
+    @ParameterizedTest
+    @ArgumentsSource(ScenarioProvider.class)
+    public void testAcceptEncodingQuality(Scenario scenario) throws Exception
+    {
+        start(scenario, new EmptyServerHandler()
+        {
+            @Override
+            protected void service(String target, Request jettyRequest, HttpServletRequest request, HttpServletResponse response) throws IOException
+            {
+                response.getWriter().print(request.getHeader(HttpHeader.ACCEPT_ENCODING.asString()));
+            }
+        });
+
+        client.getContentDecoderFactories().add(new ContentDecoder.Factory("identity", 0.5F)
+        {
+            @Override
+            public ContentDecoder newContentDecoder()
+            {
+                return buffer -> buffer;
+            }
+        });
+        client.getContentDecoderFactories().add(new ContentDecoder.Factory("x-test", 0.1234F)
+        {
+            @Override
+            public ContentDecoder newContentDecoder()
+            {
+                return buffer -> buffer;
+            }
+        });
+
+        ContentResponse response = client.newRequest("localhost", connector.getLocalPort())
+            .scheme(scenario.getScheme())
+            .timeout(5, TimeUnit.SECONDS)
+            .send();
+
+        assertEquals(200, response.getStatus());
+        assertEquals("gzip,identity;q=0.5,x-test;q=0.123", response.getContentAsString());
+    }
+
     @ParameterizedTest
     @ArgumentsSource(ScenarioProvider.class)
     public void testGZIPContentOneByteAtATime(Scenario scenario) throws Exception
@@ -60,6 +60,7 @@ import org.eclipse.jetty.io.RetainableByteBufferPool;
 import org.eclipse.jetty.io.ssl.SslClientConnectionFactory;
 import org.eclipse.jetty.io.ssl.SslConnection;
 import org.eclipse.jetty.io.ssl.SslHandshakeListener;
+import org.eclipse.jetty.io.ssl.SslHandshakeStatistics;
 import org.eclipse.jetty.server.Connector;
 import org.eclipse.jetty.server.Handler;
 import org.eclipse.jetty.server.HttpConfiguration;
@@ -380,6 +381,37 @@ public class HttpClientTLSTest
         assertTrue(clientLatch.await(1, TimeUnit.SECONDS));
     }
 
+    @Test
+    public void testHandshakeStatisticsWithSessionResumption() throws Exception
+    {
+        SslContextFactory.Server serverTLSFactory = createServerSslContextFactory();
+        startServer(serverTLSFactory, new EmptyServerHandler());
+        SslHandshakeStatistics serverStats = new SslHandshakeStatistics();
+        connector.addBean(serverStats);
+
+        SslContextFactory.Client clientTLSFactory = createClientSslContextFactory();
+        startClient(clientTLSFactory);
+        SslHandshakeStatistics clientStats = new SslHandshakeStatistics();
+        client.addBean(clientStats);
+
+        for (int i = 0; i < 2; ++i)
+        {
+            ContentResponse response = client.newRequest("localhost", connector.getLocalPort())
+                .scheme(HttpScheme.HTTPS.asString())
+                .headers(headers -> headers.put(HttpHeader.CONNECTION, HttpHeaderValue.CLOSE))
+                .timeout(5, TimeUnit.SECONDS)
+                .send();
+            assertEquals(HttpStatus.OK_200, response.getStatus());
+        }
+
+        await().atMost(5, TimeUnit.SECONDS).until(serverStats::getHandshakes, is(2L));
+        assertEquals(1, serverStats.getResumedHandshakes());
+        assertEquals(1, serverStats.getFullHandshakes());
+        assertEquals(0.5, serverStats.getResumptionRate());
+        assertEquals(2, clientStats.getHandshakes());
+        assertEquals(1, clientStats.getResumedHandshakes());
+    }
+
     // Excluded in JDK 11+ because resumed sessions cannot be compared
     // using their session IDs even though they are resumed correctly.
     @EnabledForJreRange(max = JRE.JAVA_10)
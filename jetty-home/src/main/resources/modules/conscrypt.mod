@@ -1,5 +1,7 @@
 [description]
 Installs the Conscrypt JSSE provider.
+The TLS records written to and read from the network use direct buffers
+by default, so that the native library accesses them without copies.
 
 [tags]
 3rdparty
@@ -29,3 +31,12 @@ https://github.com/google/conscrypt/blob/master/LICENSE
 [ini]
 conscrypt.version?=@conscrypt.version@
 jetty.sslContext.provider?=Conscrypt
+jetty.ssl.directBuffersForEncryption?=true
+jetty.ssl.directBuffersForDecryption?=true
+
+[ini-template]
+## Whether to use direct buffers for the TLS records written to the network.
+# jetty.ssl.directBuffersForEncryption=true
+
+## Whether to use direct buffers for the TLS records read from the network.
+# jetty.ssl.directBuffersForDecryption=true
@@ -510,6 +510,8 @@ public interface HttpFields extends Iterable<HttpField>
     {
         private HttpField[] _fields;
         private int _size;
+        private long _headers;
+        private long _headersHigh;
 
         /**
          * Initialize an empty HttpFields.
@@ -555,16 +557,16 @@ public interface HttpFields extends Iterable<HttpField>
                 if (replaceField.isSameName(f))
                 {
                     if (!put)
-                        _fields[_size++] = replaceField;
+                        _fields[_size++] = index(replaceField);
                     put = true;
                 }
                 else
                 {
-                    _fields[_size++] = f;
+                    _fields[_size++] = index(f);
                 }
             }
             if (!put)
-                _fields[_size++] = replaceField;
+                _fields[_size++] = index(replaceField);
         }
 
         /**
@@ -580,7 +582,7 @@ public interface HttpFields extends Iterable<HttpField>
             for (HttpField f : fields)
             {
                 if (f.getHeader() == null || !removeFields.contains(f.getHeader()))
-                    _fields[_size++] = f;
+                    _fields[_size++] = index(f);
             }
         }
 
@@ -627,7 +629,7 @@ public interface HttpFields extends Iterable<HttpField>
             {
                 if (_size == _fields.length)
                     _fields = Arrays.copyOf(_fields, _size * 2);
-                _fields[_size++] = field;
+                _fields[_size++] = index(field);
             }
             return this;
         }
@@ -647,17 +649,21 @@ public interface HttpFields extends Iterable<HttpField>
                 Immutable b = (Immutable)fields;
                 System.arraycopy(b._fields, 0, _fields, _size, b._fields.length);
                 _size += b._fields.length;
+                _headers |= b._headers;
+                _headersHigh |= b._headersHigh;
             }
             else if (fields instanceof Mutable)
             {
                 Mutable b = (Mutable)fields;
                 System.arraycopy(b._fields, 0, _fields, _size, b._size);
                 _size += b._size;
+                _headers |= b._headers;
+                _headersHigh |= b._headersHigh;
             }
             else
             {
                 for (HttpField f : fields)
-                    _fields[_size++] = f;
+                    _fields[_size++] = index(f);
             }
             return this;
         }
@@ -736,9 +742,126 @@ public interface HttpFields extends Iterable<HttpField>
         public Mutable clear()
         {
             _size = 0;
+            _headers = 0;
+            _headersHigh = 0;
             return this;
         }
 
+        /**
+         * Record that a field with the header of the given field may be present.
+         * The bits are a superset of the headers present: they are cleared only when
+         * all the fields of a header are removed, so lookups for headers that are not
+         * present can return without scanning the fields. Headers with ordinals below 64
+         * have a bit in {@code _headers}, those below 128 a bit in {@code _headersHigh},
+         * and any others have no bit and are always scanned for.
+         *
+         * @param field the field being added
+         * @return the field
+         */
+        private HttpField index(HttpField field)
+        {
+            HttpHeader header = field == null ? null : field.getHeader();
+            if (header != null)
+            {
+                int ordinal = header.ordinal();
+                if (ordinal < 64)
+                    _headers |= 1L << ordinal;
+                else if (ordinal < 128)
+                    _headersHigh |= 1L << (ordinal - 64);
+            }
+            return field;
+        }
+
+        private void unindex(HttpHeader header)
+        {
+            if (header != null)
+            {
+                int ordinal = header.ordinal();
+                if (ordinal < 64)
+                    _headers &= ~(1L << ordinal);
+                else if (ordinal < 128)
+                    _headersHigh &= ~(1L << (ordinal - 64));
+            }
+        }
+
+        private boolean mayContain(HttpHeader header)
+        {
+            if (header == null)
+                return true;
+            int ordinal = header.ordinal();
+            if (ordinal < 64)
+                return (_headers & (1L << ordinal)) != 0;
+            // headers with an ordinal of 128 or more have no bit, so may always be present
+            return ordinal >= 128 || (_headersHigh & (1L << (ordinal - 64))) != 0;
+        }
+
+        @Override
+        public boolean contains(HttpHeader header)
+        {
+            if (mayContain(header))
+            {
+                for (int i = 0; i < _size; i++)
+                {
+                    if (_fields[i].getHeader() == header)
+                        return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean contains(HttpHeader header, String value)
+        {
+            if (mayContain(header))
+            {
+                for (int i = 0; i < _size; i++)
+                {
+                    HttpField f = _fields[i];
+                    if (f.getHeader() == header && f.contains(value))
+                        return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String get(HttpHeader header)
+        {
+            HttpField field = getField(header);
+            return field == null ? null : field.getValue();
+        }
+
+        @Override
+        public HttpField getField(HttpHeader header)
+        {
+            if (mayContain(header))
+            {
+                for (int i = 0; i < _size; i++)
+                {
+                    HttpField f = _fields[i];
+                    if (f.getHeader() == header)
+                        return f;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public List<HttpField> getFields(HttpHeader header)
+        {
+            if (!mayContain(header))
+                return Collections.emptyList();
+            return HttpFields.super.getFields(header);
+        }
+
+        @Override
+        public List<String> getCSV(HttpHeader header, boolean keepQuotes)
+        {
+            if (!mayContain(header))
+                return Collections.emptyList();
+            return HttpFields.super.getCSV(header, keepQuotes);
+        }
+
         /** Ensure that specific HttpField exists when the field may not exist or may
          * exist and be multi valued.  Multiple existing fields are merged into a
          * single field.
@@ -973,7 +1096,7 @@ public interface HttpFields extends Iterable<HttpField>
                         System.arraycopy(_fields, i + 1, _fields, i, _size-- - i-- - 1);
                     else
                     {
-                        _fields[i] = field;
+                        _fields[i] = index(field);
                         put = true;
                     }
                 }
@@ -1180,7 +1303,8 @@ public interface HttpFields extends Iterable<HttpField>
         {
             // Look for first occurrence
             int first = -1;
-            for (int i = 0; i < _size; i++)
+            boolean scan = !(header instanceof HttpHeader) || mayContain((HttpHeader)header);
+            for (int i = 0; scan && i < _size; i++)
             {
                 HttpField f = _fields[i];
                 if (matcher.test(f, header))
@@ -1227,7 +1351,7 @@ public interface HttpFields extends Iterable<HttpField>
             if (newField == null)
                 remove(first);
             else
-                _fields[first] = newField;
+                _fields[first] = index(newField);
         }
 
         /**
@@ -1238,12 +1362,15 @@ public interface HttpFields extends Iterable<HttpField>
          */
         public Mutable remove(HttpHeader name)
         {
+            if (!mayContain(name))
+                return this;
             for (int i = 0; i < _size; i++)
             {
                 HttpField f = _fields[i];
                 if (f.getHeader() == name)
                     remove(i--);
             }
+            unindex(name);
             return this;
         }
 
@@ -1255,6 +1382,10 @@ public interface HttpFields extends Iterable<HttpField>
                 if (fields.contains(f.getHeader()))
                     remove(i--);
             }
+            for (HttpHeader header : fields)
+            {
+                unindex(header);
+            }
             return this;
         }
 
@@ -1348,7 +1479,7 @@ public interface HttpFields extends Iterable<HttpField>
 
                 _fields = Arrays.copyOf(_fields, _fields.length + 1);
                 System.arraycopy(_fields, _cursor, _fields, _cursor + 1, _size++);
-                _fields[_cursor++] = field;
+                _fields[_cursor++] = index(field);
                 _current = -1;
             }
 
@@ -1412,7 +1543,7 @@ public interface HttpFields extends Iterable<HttpField>
                 if (field == null)
                     remove();
                 else
-                    _fields[_current] = field;
+                    _fields[_current] = index(field);
             }
         }
     }
@@ -1428,6 +1559,8 @@ public interface HttpFields extends Iterable<HttpField>
     class Immutable implements HttpFields
     {
         final HttpField[] _fields;
+        final long _headers;
+        final long _headersHigh;
 
         /**
          * Initialize HttpFields from copy.
@@ -1437,6 +1570,67 @@ public interface HttpFields extends Iterable<HttpField>
         public Immutable(HttpField[] fields)
         {
             _fields = fields;
+            long headers = 0;
+            long headersHigh = 0;
+            for (HttpField f : fields)
+            {
+                HttpHeader header = f == null ? null : f.getHeader();
+                if (header != null)
+                {
+                    int ordinal = header.ordinal();
+                    if (ordinal < 64)
+                        headers |= 1L << ordinal;
+                    else if (ordinal < 128)
+                        headersHigh |= 1L << (ordinal - 64);
+                }
+            }
+            _headers = headers;
+            _headersHigh = headersHigh;
+        }
+
+        private boolean mayContain(HttpHeader header)
+        {
+            if (header == null)
+                return true;
+            int ordinal = header.ordinal();
+            if (ordinal < 64)
+                return (_headers & (1L << ordinal)) != 0;
+            // headers with an ordinal of 128 or more have no bit, so may always be present
+            return ordinal >= 128 || (_headersHigh & (1L << (ordinal - 64))) != 0;
+        }
+
+        @Override
+        public boolean contains(HttpHeader header)
+        {
+            return getField(header) != null;
+        }
+
+        @Override
+        public boolean contains(HttpHeader header, String value)
+        {
+            if (mayContain(header))
+            {
+                for (HttpField f : _fields)
+                    if (f.getHeader() == header && f.contains(value))
+                        return true;
+            }
+            return false;
+        }
+
+        @Override
+        public List<HttpField> getFields(HttpHeader header)
+        {
+            if (!mayContain(header))
+                return Collections.emptyList();
+            return HttpFields.super.getFields(header);
+        }
+
+        @Override
+        public List<String> getCSV(HttpHeader header, boolean keepQuotes)
+        {
+            if (!mayContain(header))
+                return Collections.emptyList();
+            return HttpFields.super.getCSV(header, keepQuotes);
         }
 
         @Override
@@ -1469,20 +1663,20 @@ public interface HttpFields extends Iterable<HttpField>
         @Override
         public String get(HttpHeader header)
         {
-            // default impl overridden for efficiency
-            for (HttpField f : _fields)
-                if (f.getHeader() == header)
-                    return f.getValue();
-            return null;
+            HttpField field = getField(header);
+            return field == null ? null : field.getValue();
         }
 
         @Override
         public HttpField getField(HttpHeader header)
         {
             // default impl overridden for efficiency
-            for (HttpField f : _fields)
-                if (f.getHeader() == header)
-                    return f;
+            if (mayContain(header))
+            {
+                for (HttpField f : _fields)
+                    if (f.getHeader() == header)
+                        return f;
+            }
             return null;
         }
 
@@ -17,6 +17,7 @@ import java.io.IOException;
 import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Objects;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -43,6 +44,13 @@ public class HttpGenerator
 
     public static final boolean __STRICT = Boolean.getBoolean("org.eclipse.jetty.http.HttpGenerator.STRICT");
 
+    /**
+     * The default maximum size in bytes of the encoded header fields cached by an
+     * {@link EncodedFieldsCache}, so that an identical set of fields in a later
+     * message is copied rather than encoded. A value of 0 disables the cache.
+     */
+    public static final int __HEADER_CACHE_SIZE = Integer.getInteger("org.eclipse.jetty.http.HttpGenerator.HEADER_CACHE_SIZE", 1024);
+
     private static final byte[] __colon_space = new byte[]{':', ' '};
     public static final MetaData.Response CONTINUE_100_INFO = new MetaData.Response(HttpVersion.HTTP_1_1, 100, null, null, -1);
     public static final MetaData.Response PROGRESS_102_INFO = new MetaData.Response(HttpVersion.HTTP_1_1, 102, null, null, -1);
@@ -83,6 +91,7 @@ public class HttpGenerator
     private boolean _noContentResponse = false;
     private Boolean _persistent = null;
 
+    private final EncodedFieldsCache _encodedFieldsCache;
     private final int _send;
     private static final int SEND_SERVER = 0x01;
     private static final int SEND_XPOWEREDBY = 0x02;
@@ -108,8 +117,19 @@ public class HttpGenerator
     }
 
     public HttpGenerator(boolean sendServerVersion, boolean sendXPoweredBy)
+    {
+        this(sendServerVersion, sendXPoweredBy, null);
+    }
+
+    /**
+     * @param sendServerVersion whether to send the Server header
+     * @param sendXPoweredBy whether to send the X-Powered-By header
+     * @param encodedFieldsCache the cache of the encoded header fields of the connection, or null
+     */
+    public HttpGenerator(boolean sendServerVersion, boolean sendXPoweredBy, EncodedFieldsCache encodedFieldsCache)
     {
         _send = (sendServerVersion ? SEND_SERVER : 0) | (sendXPoweredBy ? SEND_XPOWEREDBY : 0);
+        _encodedFieldsCache = encodedFieldsCache;
     }
 
     public void reset()
@@ -601,12 +621,25 @@ public class HttpGenerator
         if (fields != null)
         {
             int n = fields.size();
+
+            // If the fields are the same as the last message, copy their encoding.
+            EncodedFieldsCache cache = _encodedFieldsCache;
+            byte[] encoding = cache == null ? null : cache.get(fields);
+            boolean encoded = encoding != null;
+            if (encoded)
+                header.put(encoding);
+            boolean cacheable = !encoded && cache != null;
+            int start = header.position();
+
             for (int f = 0; f < n; f++)
             {
                 HttpField field = fields.getField(f);
                 HttpHeader h = field.getHeader();
                 if (h == null)
-                    putTo(field, header);
+                {
+                    if (!encoded)
+                        putTo(field, header);
+                }
                 else
                 {
                     switch (h)
@@ -623,7 +656,8 @@ public class HttpGenerator
                         {
                             // write the field to the header
                             contentType = true;
-                            putTo(field, header);
+                            if (!encoded)
+                                putTo(field, header);
                             break;
                         }
 
@@ -641,6 +675,8 @@ public class HttpGenerator
 
                         case CONNECTION:
                         {
+                            // The encoding depends on the persistence state, so it is not cached.
+                            cacheable = false;
                             boolean keepAlive = field.contains(HttpHeaderValue.KEEP_ALIVE.asString());
                             if (keepAlive && _info.getHttpVersion() == HttpVersion.HTTP_1_0 && _persistent == null)
                             {
@@ -664,15 +700,20 @@ public class HttpGenerator
                         case SERVER:
                         {
                             send = send & ~SEND_SERVER;
-                            putTo(field, header);
+                            if (!encoded)
+                                putTo(field, header);
                             break;
                         }
 
                         default:
-                            putTo(field, header);
+                            if (!encoded)
+                                putTo(field, header);
                     }
                 }
             }
+
+            if (cacheable)
+                cache.put(fields, header, start);
         }
 
         // Can we work out the content length?
@@ -793,6 +834,22 @@ public class HttpGenerator
         header.put(HttpTokens.CRLF);
     }
 
+    private static boolean isFramingField(HttpField field)
+    {
+        HttpHeader header = field.getHeader();
+        return header == HttpHeader.CONTENT_LENGTH || header == HttpHeader.TRANSFER_ENCODING;
+    }
+
+    private static boolean isSameEncoding(HttpField field1, HttpField field2)
+    {
+        if (field1 == field2)
+            return true;
+        // The name is compared case sensitively, as it is encoded as is.
+        return field1.getHeader() == field2.getHeader() &&
+            field1.getName().equals(field2.getName()) &&
+            Objects.equals(field1.getValue(), field2.getValue());
+    }
+
     private static void putContentLength(ByteBuffer header, long contentLength)
     {
         if (contentLength == 0)
@@ -939,4 +996,187 @@ public class HttpGenerator
         }
         BufferUtil.putCRLF(bufferInFillMode);
     }
+
+    /**
+     * <p>A cache of the encoding of the header fields of recently generated messages,
+     * excluding the framing fields, so that an identical set of fields in a later
+     * message is copied rather than encoded.</p>
+     * <p>The cache belongs to the generator of a single connection, so it is not thread safe,
+     * and the total size of the cached encodings is bounded by {@link #getMaxSize()}.
+     * It holds a few entries, so that messages alternating between different sets of fields
+     * are all cached. A full cache only replaces an entry after several messages missed it,
+     * choosing an entry that was not used since the last replacement, so that messages with
+     * unique fields do not allocate a new entry each, nor evict the entries in use.</p>
+     */
+    public static class EncodedFieldsCache
+    {
+        private static final int MISSES_BEFORE_REPLACE = 4;
+
+        private final int _maxSize;
+        private final EncodedFields[] _entries;
+        private int _size;
+        private int _misses;
+        private int _victim;
+
+        public EncodedFieldsCache()
+        {
+            this(__HEADER_CACHE_SIZE);
+        }
+
+        /**
+         * @param maxSize the maximum size in bytes of the cached encodings
+         */
+        public EncodedFieldsCache(int maxSize)
+        {
+            this(maxSize, 4);
+        }
+
+        /**
+         * @param maxSize the maximum size in bytes of the cached encodings
+         * @param maxEntries the maximum number of cached sets of fields
+         */
+        public EncodedFieldsCache(int maxSize, int maxEntries)
+        {
+            if (maxEntries < 1)
+                throw new IllegalArgumentException("Invalid maxEntries " + maxEntries);
+            _maxSize = maxSize;
+            _entries = new EncodedFields[maxEntries];
+        }
+
+        /**
+         * @return the maximum size in bytes of the cached encodings
+         */
+        public int getMaxSize()
+        {
+            return _maxSize;
+        }
+
+        /**
+         * @return the maximum number of cached sets of fields
+         */
+        public int getMaxEntries()
+        {
+            return _entries.length;
+        }
+
+        boolean isCached(HttpFields fields)
+        {
+            for (EncodedFields entry : _entries)
+            {
+                if (entry != null && entry.matches(fields))
+                    return true;
+            }
+            return false;
+        }
+
+        private byte[] get(HttpFields fields)
+        {
+            for (EncodedFields entry : _entries)
+            {
+                if (entry != null && entry.matches(fields))
+                {
+                    entry._used = true;
+                    return entry._encoding;
+                }
+            }
+            return null;
+        }
+
+        private void put(HttpFields fields, ByteBuffer header, int start)
+        {
+            int length = header.position() - start;
+            if (length > getMaxSize())
+                return;
+
+            // Use a free entry if there is room, otherwise only replace
+            // an entry after several messages have missed the cache.
+            int index = _size + length <= getMaxSize() ? indexOf(null) : -1;
+            if (index < 0)
+            {
+                if (++_misses < MISSES_BEFORE_REPLACE)
+                    return;
+                _misses = 0;
+                index = evict(length);
+            }
+
+            HttpField[] cachedFields = new HttpField[fields.size()];
+            int count = 0;
+            for (HttpField field : fields)
+            {
+                if (!isFramingField(field))
+                    cachedFields[count++] = field;
+            }
+
+            byte[] encoding = new byte[length];
+            ByteBuffer duplicate = header.duplicate();
+            duplicate.flip().position(start);
+            duplicate.get(encoding);
+            _entries[index] = new EncodedFields(Arrays.copyOf(cachedFields, count), encoding);
+            _size += length;
+        }
+
+        private int indexOf(EncodedFields entry)
+        {
+            for (int i = 0; i < _entries.length; i++)
+            {
+                if (_entries[i] == entry)
+                    return i;
+            }
+            return -1;
+        }
+
+        private int evict(int length)
+        {
+            // Evict the entries not used since they were last considered,
+            // until there is a free entry and room for the new encoding.
+            int index = -1;
+            while (index < 0 || _size + length > getMaxSize())
+            {
+                int victim = _victim;
+                _victim = (victim + 1) % _entries.length;
+                EncodedFields entry = _entries[victim];
+                if (entry != null)
+                {
+                    if (entry._used)
+                    {
+                        entry._used = false;
+                        continue;
+                    }
+                    _entries[victim] = null;
+                    _size -= entry._encoding.length;
+                }
+                if (index < 0)
+                    index = victim;
+            }
+            return index;
+        }
+    }
+
+    private static class EncodedFields
+    {
+        private final HttpField[] _fields;
+        private final byte[] _encoding;
+        private boolean _used;
+
+        private EncodedFields(HttpField[] fields, byte[] encoding)
+        {
+            _fields = fields;
+            _encoding = encoding;
+        }
+
+        private boolean matches(HttpFields fields)
+        {
+            int cached = 0;
+            for (int f = 0, n = fields.size(); f < n; f++)
+            {
+                HttpField field = fields.getField(f);
+                // Framing fields are generated after the other fields.
+                if (isFramingField(field))
+                    continue;
+                if (cached == _fields.length || !isSameEncoding(field, _fields[cached++]))
+                    return false;
+            }
+            return cached == _fields.length;
+        }
+    }
 }
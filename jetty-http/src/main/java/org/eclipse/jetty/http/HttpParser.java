@@ -220,6 +220,7 @@ public class HttpParser
     private final HttpCompliance _complianceMode;
     private final Utf8StringBuilder _uri = new Utf8StringBuilder(INITIAL_URI_LENGTH);
     private final FieldCache _fieldCache = new FieldCache();
+    private LearnedFieldCache _learnedFieldCache;
     private HttpField _field;
     private HttpHeader _header;
     private String _headerString;
@@ -322,6 +323,20 @@ public class HttpParser
         _fieldCache.setCaseSensitive(headerCacheCaseSensitive);
     }
 
+    public LearnedFieldCache getLearnedFieldCache()
+    {
+        return _learnedFieldCache;
+    }
+
+    /**
+     * @param learnedFieldCache a cache of fields, shared with other parsers, that learns
+     * the fields parsed and is looked up after the per-connection header cache.
+     */
+    public void setLearnedFieldCache(LearnedFieldCache learnedFieldCache)
+    {
+        _learnedFieldCache = learnedFieldCache;
+    }
+
     protected void checkViolation(Violation violation) throws BadMessageException
     {
         if (violation.isAllowedBy(_complianceMode))
@@ -959,6 +974,9 @@ public class HttpParser
         // handler last header if any.  Delayed to here just in case there was a continuation line (above)
         if (_headerString != null || _valueString != null)
         {
+            // A field with a value looked up from a cache needs not be learned
+            boolean cached = _field != null;
+
             // Handle known headers
             if (_header != null)
             {
@@ -1070,7 +1088,10 @@ public class HttpParser
                     _fieldCache.add(_field);
                 }
             }
-            _handler.parsedHeader(_field != null ? _field : new HttpField(_header, _headerString, _valueString));
+            HttpField field = _field != null ? _field : new HttpField(_header, _headerString, _valueString);
+            if (_learnedFieldCache != null && !cached)
+                _learnedFieldCache.observe(field);
+            _handler.parsedHeader(field);
         }
 
         _headerString = _valueString = null;
@@ -1247,6 +1268,8 @@ public class HttpParser
                             {
                                 // Try a look ahead for the known header name and value.
                                 HttpField cachedField = _fieldCache.getBest(buffer, -1, buffer.remaining());
+                                if (cachedField == null && _learnedFieldCache != null)
+                                    cachedField = _learnedFieldCache.getBest(buffer, -1, buffer.remaining());
                                 if (cachedField == null)
                                     cachedField = CACHE.getBest(buffer, -1, buffer.remaining());
 
@@ -1461,6 +1484,7 @@ public class HttpParser
                         case OTEXT: // TODO review? should this be a utf8 string?
                             _string.append(t.getChar());
                             _length = _string.length();
+                            appendFieldValue(buffer);
                             break;
 
                         default:
@@ -1476,6 +1500,34 @@ public class HttpParser
         return false;
     }
 
+    /**
+     * Append the run of value bytes that follows, as handled one at a time by the
+     * {@link FieldState#IN_VALUE} state, without tokenizing each byte.
+     *
+     * @param buffer the buffer positioned within a field value
+     */
+    private void appendFieldValue(ByteBuffer buffer)
+    {
+        int position = buffer.position();
+        int limit = buffer.limit();
+        if (_maxHeaderBytes > 0)
+            limit = Math.min(limit, position + _maxHeaderBytes - _headerBytes);
+        int end = HttpTokens.scanFieldValue(buffer, position, limit);
+        if (end <= position)
+            return;
+
+        for (int i = position; i < end; i++)
+        {
+            byte b = buffer.get(i);
+            _string.append((char)(0xff & b));
+            if (b != HttpTokens.SPACE)
+                _length = _string.length();
+        }
+        if (_maxHeaderBytes > 0)
+            _headerBytes += end - position;
+        buffer.position(end);
+    }
+
     /**
      * Parse until next Event.
      *
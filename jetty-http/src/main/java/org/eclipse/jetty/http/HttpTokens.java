@@ -13,6 +13,8 @@
 
 package org.eclipse.jetty.http;
 
+import java.nio.ByteBuffer;
+
 import org.eclipse.jetty.util.TypeUtil;
 
 /**
@@ -115,6 +117,46 @@ public class HttpTokens
 
     public static final Token[] TOKENS = new Token[256];
 
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+    private static final long SPACES = SPACE * ONES;
+    private static final long DELETES = 0x7F * ONES;
+
+    /**
+     * <p>Find the end of a run of bytes that can be appended to a field value without
+     * further checks, that is {@code SP}, {@code VCHAR} and {@code obs-text} bytes.</p>
+     * <p>The bytes are examined 8 at a time, so that the common case of long
+     * header values free of control characters needs one test per word.</p>
+     *
+     * @param buffer the buffer to scan, its position and limit are not changed
+     * @param position the index to start scanning from
+     * @param limit the index to stop scanning at
+     * @return the index of the first byte that is not {@code SP}, {@code VCHAR} or {@code obs-text},
+     * or {@code limit} if there is no such byte
+     */
+    public static int scanFieldValue(ByteBuffer buffer, int position, int limit)
+    {
+        int i = position;
+        while (i + 8 <= limit)
+        {
+            long word = buffer.getLong(i);
+            // Classic "has byte less than n" and "has zero byte" tests:
+            // either finds any control character (including CR, LF and HTAB) or DEL.
+            long deletes = word ^ DELETES;
+            if (((((word - SPACES) & ~word) | ((deletes - ONES) & ~deletes)) & HIGHS) != 0)
+                break;
+            i += 8;
+        }
+        while (i < limit)
+        {
+            int b = 0xff & buffer.get(i);
+            if (b < SPACE || b == 0x7F)
+                break;
+            i++;
+        }
+        return i;
+    }
+
     static
     {
         for (int b = 0; b < 256; b++)
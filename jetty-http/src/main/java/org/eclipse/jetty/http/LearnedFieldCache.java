@@ -0,0 +1,359 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http;
+
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.Index;
+import org.eclipse.jetty.util.StringUtil;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+
+/**
+ * <p>A bounded cache of header fields, shared by the {@link HttpParser}s of many connections,
+ * that learns the fields most frequently received.</p>
+ * <p>The per-connection field cache of {@link HttpParser} only benefits persistent
+ * connections. This cache observes the fields parsed by all connections and, once a
+ * field name and value have been seen {@link #getThreshold() threshold} times, adds the field
+ * so that later parsers can look it up directly from the buffer without allocating
+ * {@code String}s for its name and value.</p>
+ * <p>Lookups are lock free: learned fields are published as an immutable {@link Index}
+ * that is rebuilt, by a single thread at a time, when fields are added. Field names are
+ * looked up case insensitively, but values must match the learned value exactly.</p>
+ * <p>Once {@link #getMaxFields() maxFields} fields have been learned, a field that reaches
+ * the threshold replaces the learned field with the fewest hits since the last replacement,
+ * provided that field has had fewer hits than the threshold, so that the cache follows
+ * changes in the traffic.</p>
+ * <p>Only fields with names in {@link #getFieldNames()} are learned, so that credentials
+ * such as cookies or authorization are never retained across connections.</p>
+ */
+@ManagedObject("Header fields learned across connections")
+public class LearnedFieldCache
+{
+    public static final int DEFAULT_MAX_FIELDS = 512;
+    public static final int DEFAULT_THRESHOLD = 32;
+    public static final int DEFAULT_MAX_VALUE_LENGTH = 256;
+
+    private static final Index<HttpField> EMPTY = new Index.Builder<HttpField>().caseSensitive(false).build();
+
+    private final ConcurrentMap<HttpField, AtomicInteger> _candidates = new ConcurrentHashMap<>();
+    private final ConcurrentMap<HttpField, LongAdder> _learned = new ConcurrentHashMap<>();
+    private final Set<HttpHeader> _headers = ConcurrentHashMap.newKeySet();
+    private final Set<String> _names = new ConcurrentSkipListSet<>(String.CASE_INSENSITIVE_ORDER);
+    private final AtomicBoolean _dirty = new AtomicBoolean();
+    private final AtomicBoolean _building = new AtomicBoolean();
+    private final AtomicBoolean _pruning = new AtomicBoolean();
+    private final LongAdder _hits = new LongAdder();
+    private final int _maxFields;
+    private volatile Index<HttpField> _index = EMPTY;
+    private int _threshold = DEFAULT_THRESHOLD;
+    private int _maxValueLength = DEFAULT_MAX_VALUE_LENGTH;
+
+    public LearnedFieldCache()
+    {
+        this(DEFAULT_MAX_FIELDS);
+    }
+
+    /**
+     * @param maxFields the maximum number of fields learned
+     */
+    public LearnedFieldCache(int maxFields)
+    {
+        _maxFields = maxFields;
+        for (HttpHeader header : new HttpHeader[]{
+            HttpHeader.HOST,
+            HttpHeader.USER_AGENT,
+            HttpHeader.ACCEPT,
+            HttpHeader.ACCEPT_CHARSET,
+            HttpHeader.ACCEPT_ENCODING,
+            HttpHeader.ACCEPT_LANGUAGE,
+            HttpHeader.CACHE_CONTROL,
+            HttpHeader.PRAGMA,
+            HttpHeader.ORIGIN,
+            HttpHeader.X_FORWARDED_PROTO,
+            HttpHeader.X_FORWARDED_HOST,
+            HttpHeader.X_FORWARDED_SERVER
+        })
+        {
+            _headers.add(header);
+        }
+    }
+
+    @ManagedAttribute("The maximum number of fields learned")
+    public int getMaxFields()
+    {
+        return _maxFields;
+    }
+
+    @ManagedAttribute("The number of times a field must be seen before it is learned")
+    public int getThreshold()
+    {
+        return _threshold;
+    }
+
+    public void setThreshold(int threshold)
+    {
+        _threshold = threshold;
+    }
+
+    @ManagedAttribute("The maximum length of the value of a learned field")
+    public int getMaxValueLength()
+    {
+        return _maxValueLength;
+    }
+
+    public void setMaxValueLength(int maxValueLength)
+    {
+        _maxValueLength = maxValueLength;
+    }
+
+    /**
+     * @return the lower case names of the fields that may be learned
+     */
+    @ManagedAttribute("The names of the fields that may be learned")
+    public Set<String> getFieldNames()
+    {
+        Set<String> names = new HashSet<>();
+        _headers.forEach(header -> names.add(header.lowerCaseName()));
+        _names.forEach(name -> names.add(StringUtil.asciiToLowerCase(name)));
+        return names;
+    }
+
+    /**
+     * @param names the names of additional fields that may be learned, for example
+     * custom headers sent by clients with few distinct values
+     */
+    public void addFieldNames(String... names)
+    {
+        for (String name : names)
+        {
+            HttpHeader header = HttpHeader.CACHE.get(name);
+            if (header == null)
+                _names.add(name);
+            else
+                _headers.add(header);
+        }
+    }
+
+    @ManagedAttribute("The number of fields learned")
+    public int getLearnedFields()
+    {
+        return _learned.size();
+    }
+
+    @ManagedAttribute("The number of fields counted until they are seen often enough to be learned")
+    public int getCandidateFields()
+    {
+        return _candidates.size();
+    }
+
+    @ManagedAttribute("The number of fields parsed from the learned fields")
+    public long getHits()
+    {
+        return _hits.sum();
+    }
+
+    /**
+     * @return the learned fields, as looked up by {@link HttpParser}
+     */
+    public Index<HttpField> getIndex()
+    {
+        return _index;
+    }
+
+    /**
+     * Look ahead in a buffer for a learned field.
+     *
+     * @param buffer the buffer
+     * @param offset the offset from the buffer position
+     * @param length the number of bytes to look at
+     * @return the longest learned field that is a prefix of the bytes, or null
+     */
+    public HttpField getBest(ByteBuffer buffer, int offset, int length)
+    {
+        HttpField field = _index.getBest(buffer, offset, length);
+        if (field == null)
+            return null;
+
+        // The index ignores case, but only the name may differ in case from the learned field
+        String value = field.getValue();
+        int start = buffer.position() + offset + field.getName().length() + 2;
+        for (int i = 0; i < value.length(); i++)
+        {
+            if (buffer.get(start + i) != value.charAt(i))
+                return null;
+        }
+
+        LongAdder hits = _learned.get(field);
+        if (hits != null)
+            hits.increment();
+        _hits.increment();
+        return field;
+    }
+
+    /**
+     * Observe a parsed field, learning it once it has been seen often enough.
+     * Only fields that were not looked up from a cache need to be observed.
+     *
+     * @param field the parsed field
+     */
+    public void observe(HttpField field)
+    {
+        HttpHeader header = field.getHeader();
+        if (header == null ? !_names.contains(field.getName()) : !_headers.contains(header))
+            return;
+        String value = field.getValue();
+        if (value == null || value.isEmpty() || value.length() > _maxValueLength || !isVisibleAscii(value))
+            return;
+        if (_learned.containsKey(field))
+            return;
+
+        AtomicInteger count = _candidates.get(field);
+        if (count == null)
+        {
+            // Forget the least seen candidates if there are too many distinct values,
+            // for example from headers with per request values.
+            if (_candidates.size() >= _maxFields * 8)
+                prune();
+            count = _candidates.computeIfAbsent(field, f -> new AtomicInteger());
+        }
+        // A field that cannot displace a learned field yet is counted again from zero
+        if (count.incrementAndGet() == _threshold && !learn(field))
+            count.set(0);
+    }
+
+    /**
+     * Remove the candidates that have been seen the fewest times, so that the
+     * candidates seen more often keep their counts.
+     */
+    private void prune()
+    {
+        if (!_pruning.compareAndSet(false, true))
+            return;
+        try
+        {
+            int fewest = Integer.MAX_VALUE;
+            for (AtomicInteger count : _candidates.values())
+            {
+                fewest = Math.min(fewest, count.get());
+            }
+            int least = fewest;
+            _candidates.values().removeIf(count -> count.get() <= least);
+        }
+        finally
+        {
+            _pruning.set(false);
+        }
+    }
+
+    private boolean learn(HttpField field)
+    {
+        synchronized (_learned)
+        {
+            if (_learned.containsKey(field))
+                return true;
+            if (_learned.size() >= _maxFields && !evict())
+                return false;
+            _learned.put(field, new LongAdder());
+        }
+        _candidates.remove(field);
+        _dirty.set(true);
+        build();
+        return true;
+    }
+
+    /**
+     * Evict the learned field with the fewest hits, if it has had fewer hits than the
+     * threshold since the last eviction, and start counting the hits of all fields afresh.
+     *
+     * @return whether a field was evicted
+     */
+    private boolean evict()
+    {
+        Map.Entry<HttpField, LongAdder> coldest = null;
+        long fewest = Long.MAX_VALUE;
+        for (Map.Entry<HttpField, LongAdder> entry : _learned.entrySet())
+        {
+            long hits = entry.getValue().sum();
+            if (hits < fewest)
+            {
+                coldest = entry;
+                fewest = hits;
+            }
+        }
+        if (coldest == null || fewest >= _threshold)
+            return false;
+        _learned.remove(coldest.getKey());
+        _learned.values().forEach(LongAdder::reset);
+        return true;
+    }
+
+    private void build()
+    {
+        // Any thread that finds the index dirty and nobody else building, builds it
+        while (_dirty.get() && _building.compareAndSet(false, true))
+        {
+            try
+            {
+                _dirty.set(false);
+                Index.Builder<HttpField> builder = new Index.Builder<HttpField>().caseSensitive(false);
+                for (HttpField f : _learned.keySet())
+                {
+                    builder.with(f);
+                }
+                _index = builder.build();
+            }
+            finally
+            {
+                _building.set(false);
+            }
+        }
+    }
+
+    @ManagedOperation(value = "Forget all the learned fields", impact = "ACTION")
+    public void clear()
+    {
+        _candidates.clear();
+        _learned.clear();
+        _dirty.set(true);
+        build();
+    }
+
+    private static boolean isVisibleAscii(String value)
+    {
+        for (int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            if (c < 0x20 || c > 0x7E)
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{learned=%d/%d,hits=%d}", getClass().getSimpleName(), hashCode(), _learned.size(), _maxFields, _hits.sum());
+    }
+}
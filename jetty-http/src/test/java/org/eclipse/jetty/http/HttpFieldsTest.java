@@ -1072,4 +1072,69 @@ public class HttpFieldsTest
         fields.ensureField(new HttpField("Test", "three, four"));
         assertThat(fields.stream().map(HttpField::toString).collect(Collectors.toList()), contains("Test: one, two, three, four"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testHeaderLookupAfterModification()
+    {
+        HttpFields.Mutable fields = HttpFields.build();
+        assertFalse(fields.contains(HttpHeader.CONTENT_TYPE));
+        assertNull(fields.get(HttpHeader.CONTENT_TYPE));
+
+        fields.add(HttpHeader.CONTENT_TYPE, "text/plain");
+        fields.add(HttpHeader.VARY, "Accept-Encoding");
+        fields.add(HttpHeader.VARY, "User-Agent");
+        assertTrue(fields.contains(HttpHeader.CONTENT_TYPE));
+        assertThat(fields.getCSV(HttpHeader.VARY, false), contains("Accept-Encoding", "User-Agent"));
+
+        fields.remove(HttpHeader.VARY);
+        assertFalse(fields.contains(HttpHeader.VARY));
+        assertThat(fields.getFields(HttpHeader.VARY).size(), is(0));
+
+        fields.put(HttpHeader.VARY, "Accept");
+        assertThat(fields.get(HttpHeader.VARY), is("Accept"));
+
+        ListIterator<HttpField> iterator = fields.listIterator();
+        iterator.next();
+        iterator.set(new HttpField(HttpHeader.ETAG, "\"tag\""));
+        assertFalse(fields.contains(HttpHeader.CONTENT_TYPE));
+        assertThat(fields.get(HttpHeader.ETAG), is("\"tag\""));
+        iterator.add(new HttpField(HttpHeader.X_POWERED_BY, "jetty"));
+        assertTrue(fields.contains(HttpHeader.X_POWERED_BY, "jetty"));
+
+        fields.computeField(HttpHeader.SERVER, (h, l) -> new HttpField(h, "jetty"));
+        assertThat(fields.get(HttpHeader.SERVER), is("jetty"));
+
+        HttpFields immutable = fields.asImmutable();
+        assertThat(immutable.get(HttpHeader.SERVER), is("jetty"));
+        assertNull(immutable.get(HttpHeader.CONTENT_TYPE));
+        HttpFields.Mutable copy = HttpFields.build(immutable);
+        assertTrue(copy.contains(HttpHeader.ETAG));
+        assertFalse(copy.contains(HttpHeader.CONTENT_TYPE));
+
+        fields.clear();
+        assertFalse(fields.contains(HttpHeader.ETAG));
+        fields.add("Etag", "other");
+        assertThat(fields.get(HttpHeader.ETAG), is("other"));
+    }
+
+    @Test
+    public void testRemoveHeaderKeepsEveryOtherHeader()
+    {
+        // every pair of headers, so that headers sharing a bit would be found
+        for (HttpHeader removed : HttpHeader.values())
+        {
+            for (HttpHeader kept : HttpHeader.values())
+            {
+                if (kept == removed)
+                    continue;
+                HttpFields.Mutable fields = HttpFields.build();
+                fields.add(kept, "kept");
+                fields.add(removed, "removed");
+                fields.remove(removed);
+                assertThat(kept + " after removing " + removed, fields.get(kept), is("kept"));
+                assertThat(kept + " after removing " + removed, fields.asImmutable().get(kept), is("kept"));
+                assertFalse(fields.contains(removed));
+            }
+        }
+    }
+}
@@ -24,8 +24,10 @@ import static org.hamcrest.Matchers.endsWith;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.startsWith;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class HttpGeneratorServerTest
 {
@@ -106,6 +108,116 @@ public class HttpGeneratorServerTest
         assertThat(response, containsString("\r\n0123456789"));
     }
 
+    @Test
+    public void testRepeatedHeaderFields() throws Exception
+    {
+        HttpGenerator.EncodedFieldsCache cache = new HttpGenerator.EncodedFieldsCache();
+        HttpGenerator gen = new HttpGenerator(false, false, cache);
+        HttpField date = new PreEncodedHttpField(HttpHeader.DATE, DateGenerator.formatDate(0));
+        HttpField contentType = new PreEncodedHttpField(HttpHeader.CONTENT_TYPE, "application/json");
+
+        HttpFields.Mutable fields = HttpFields.build()
+            .add(date)
+            .add(contentType)
+            .add(HttpHeader.CACHE_CONTROL, "no-cache")
+            .add("X-Custom", "value");
+        String expected = "HTTP/1.1 200 OK\r\n" +
+            "Date: Thu, 01 Jan 1970 00:00:00 GMT\r\n" +
+            "Content-Type: application/json\r\n" +
+            "Cache-Control: no-cache\r\n" +
+            "X-Custom: value\r\n";
+        assertEquals(expected + "Content-Length: 10\r\n\r\n", generateHeader(gen, fields, "0123456789"));
+
+        // The same fields with a different content length.
+        assertEquals(expected + "Content-Length: 5\r\n\r\n", generateHeader(gen, fields, "01234"));
+
+        // Equal fields that are different instances, with a Content-Length field.
+        fields = HttpFields.build()
+            .add(date)
+            .add(contentType)
+            .add(HttpHeader.CACHE_CONTROL, "no-cache")
+            .add(HttpHeader.CONTENT_LENGTH, "3")
+            .add("X-Custom", "value");
+        assertEquals(expected + "Content-Length: 3\r\n\r\n", generateHeader(gen, fields, "012"));
+
+        // A new Date field.
+        fields = HttpFields.build()
+            .add(new PreEncodedHttpField(HttpHeader.DATE, DateGenerator.formatDate(1000)))
+            .add(contentType)
+            .add(HttpHeader.CACHE_CONTROL, "no-cache")
+            .add("X-Custom", "value");
+        assertEquals(expected.replace(":00 GMT", ":01 GMT") + "Content-Length: 1\r\n\r\n", generateHeader(gen, fields, "0"));
+
+        // The case of the name of a custom field is preserved.
+        fields.remove("X-Custom").add("x-custom", "value");
+        assertEquals(expected.replace(":00 GMT", ":01 GMT").replace("X-Custom", "x-custom") + "Content-Length: 1\r\n\r\n", generateHeader(gen, fields, "0"));
+
+        // One field less.
+        fields.remove(HttpHeader.CACHE_CONTROL);
+        assertEquals(expected.replace(":00 GMT", ":01 GMT").replace("X-Custom", "x-custom").replace("Cache-Control: no-cache\r\n", "") + "Content-Length: 1\r\n\r\n", generateHeader(gen, fields, "0"));
+
+        // The same cache after the generator is reset for the next connection.
+        HttpGenerator other = new HttpGenerator(false, false, cache);
+        assertTrue(cache.isCached(fields));
+        assertEquals(expected.replace(":00 GMT", ":01 GMT").replace("X-Custom", "x-custom").replace("Cache-Control: no-cache\r\n", "") + "Content-Length: 2\r\n\r\n", generateHeader(other, fields, "01"));
+    }
+
+    @Test
+    public void testAlternatingHeaderFields() throws Exception
+    {
+        HttpGenerator.EncodedFieldsCache cache = new HttpGenerator.EncodedFieldsCache(1024, 2);
+        HttpGenerator gen = new HttpGenerator(false, false, cache);
+
+        HttpFields json = HttpFields.build()
+            .add(HttpHeader.CONTENT_TYPE, "application/json")
+            .add(HttpHeader.CACHE_CONTROL, "no-cache");
+        HttpFields html = HttpFields.build()
+            .add(HttpHeader.CONTENT_TYPE, "text/html")
+            .add(HttpHeader.ETAG, "W/\"1\"");
+        String jsonHeader = "HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nCache-Control: no-cache\r\nContent-Length: 1\r\n\r\n";
+        String htmlHeader = "HTTP/1.1 200 OK\r\nContent-Type: text/html\r\nETag: W/\"1\"\r\nContent-Length: 1\r\n\r\n";
+
+        // Both sets of fields are cached, rather than replacing each other.
+        for (int i = 0; i < 4; ++i)
+        {
+            assertEquals(jsonHeader, generateHeader(gen, json, "0"));
+            assertEquals(htmlHeader, generateHeader(gen, html, "0"));
+            assertTrue(cache.isCached(json));
+            assertTrue(cache.isCached(html));
+        }
+
+        // Messages with unique fields miss the full cache, but do not
+        // replace an entry until they have missed it repeatedly.
+        HttpFields unique = null;
+        for (int i = 0; i < 3; ++i)
+        {
+            unique = HttpFields.build().add("X-Request", String.valueOf(i));
+            assertEquals("HTTP/1.1 200 OK\r\nX-Request: " + i + "\r\nContent-Length: 1\r\n\r\n", generateHeader(gen, unique, "0"));
+            assertFalse(cache.isCached(unique));
+            assertTrue(cache.isCached(json));
+            assertTrue(cache.isCached(html));
+        }
+
+        // After repeated misses an entry is replaced, here the oldest as both were used.
+        unique = HttpFields.build().add("X-Request", "3");
+        assertEquals("HTTP/1.1 200 OK\r\nX-Request: 3\r\nContent-Length: 1\r\n\r\n", generateHeader(gen, unique, "0"));
+        assertTrue(cache.isCached(unique));
+        assertTrue(cache.isCached(html));
+        assertFalse(cache.isCached(json));
+        assertEquals(jsonHeader, generateHeader(gen, json, "0"));
+    }
+
+    private String generateHeader(HttpGenerator gen, HttpFields fields, String body) throws Exception
+    {
+        gen.reset();
+        ByteBuffer header = BufferUtil.allocate(8096);
+        ByteBuffer content = BufferUtil.toBuffer(body);
+        MetaData.Response info = new MetaData.Response(HttpVersion.HTTP_1_1, 200, null, fields, -1);
+        HttpGenerator.Result result = gen.generateResponse(info, false, header, null, content, true);
+        assertEquals(HttpGenerator.Result.FLUSH, result);
+        return BufferUtil.toString(header);
+    }
+
     @Test
     public void testHeaderOverflow() throws Exception
     {
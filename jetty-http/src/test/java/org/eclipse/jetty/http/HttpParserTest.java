@@ -43,6 +43,7 @@ import static org.hamcrest.Matchers.nullValue;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -551,6 +552,69 @@ public class HttpParserTest
         assertEquals(9, _headers);
     }
 
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testLongHeaderValues(boolean direct)
+    {
+        String userAgent = "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/118.0.0.0 Safari/537.36";
+        ByteBuffer buffer = BufferUtil.toBuffer(
+            "GET / HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "User-Agent: " + userAgent + "\r\n" +
+                "Header1: trailing spaces after value        \r\n" +
+                "Header2: obs-text \u00e9\u00e8\u00ff in a long value\r\n" +
+                "Header3: tab\tin a long value\r\n" +
+                "\r\n", StandardCharsets.ISO_8859_1);
+        if (direct)
+        {
+            ByteBuffer directBuffer = BufferUtil.allocateDirect(buffer.capacity());
+            BufferUtil.append(directBuffer, buffer);
+            buffer = directBuffer;
+        }
+
+        HttpParser.RequestHandler handler = new Handler();
+        HttpParser parser = new HttpParser(handler);
+        parseAll(parser, buffer);
+
+        assertTrue(_messageCompleted);
+        assertEquals(userAgent, _val[1]);
+        assertEquals("trailing spaces after value", _val[2]);
+        assertEquals("obs-text \u00e9\u00e8\u00ff in a long value", _val[3]);
+        assertEquals("tab\tin a long value", _val[4]);
+        assertEquals(4, _headers);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"\u0001", "\u007f", "\r"})
+    public void testBadCharacterInLongHeaderValue(String bad)
+    {
+        ByteBuffer buffer = BufferUtil.toBuffer(
+            "GET / HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "Header1: a long value with a" + bad + "bad character\r\n" +
+                "\r\n", StandardCharsets.ISO_8859_1);
+
+        HttpParser.RequestHandler handler = new Handler();
+        HttpParser parser = new HttpParser(handler);
+        parseAll(parser, buffer);
+
+        assertThat(_bad, Matchers.notNullValue());
+        assertFalse(_messageCompleted);
+    }
+
+    @Test
+    public void testScanFieldValue()
+    {
+        ByteBuffer buffer = BufferUtil.toBuffer("0123456789abcdef ghij\r\n", StandardCharsets.ISO_8859_1);
+        assertEquals(21, HttpTokens.scanFieldValue(buffer, 0, buffer.limit()));
+        assertEquals(21, HttpTokens.scanFieldValue(buffer, 3, buffer.limit()));
+        assertEquals(10, HttpTokens.scanFieldValue(buffer, 0, 10));
+        assertEquals(5, HttpTokens.scanFieldValue(buffer, 5, 5));
+
+        buffer = BufferUtil.toBuffer("\u00ff\u0080\u00e9 ~!\u007f0123456789", StandardCharsets.ISO_8859_1);
+        assertEquals(6, HttpTokens.scanFieldValue(buffer, 0, buffer.limit()));
+    }
+
     @Test
     public void testHeaderParseCRLF()
     {
@@ -2159,6 +2223,126 @@ public class HttpParserTest
         assertSame(field, _fields.get(0));
     }
 
+    @Test
+    @SuppressWarnings("ReferenceEquality")
+    public void testLearnedFieldCache()
+    {
+        String request =
+            "GET / HTTP/1.1\r\n" +
+                "Host: www.example.com\r\n" +
+                "User-Agent: Mozilla/5.0 (Android 13; Mobile; rv:109.0) Gecko/118.0 Firefox/118.0\r\n" +
+                "X-Client-Version: 4.2.1\r\n" +
+                "Cookie: secret=1234\r\n" +
+                "Connection: close\r\n" +
+                "\r\n";
+
+        HttpParser.RequestHandler handler = new Handler();
+        LearnedFieldCache cache = new LearnedFieldCache();
+        cache.setThreshold(3);
+        cache.addFieldNames("X-Client-Version");
+
+        // Every request is on a new connection, with its own parser
+        for (int i = 0; i < 3; i++)
+        {
+            _fields.clear();
+            HttpParser parser = new HttpParser(handler);
+            parser.setLearnedFieldCache(cache);
+            parseAll(parser, BufferUtil.toBuffer(request));
+            assertTrue(_messageCompleted);
+        }
+        assertEquals(3, cache.getLearnedFields());
+        assertEquals(0, cache.getHits());
+        HttpField userAgent = _fields.get(1);
+        assertNotNull(cache.getIndex().get(userAgent.toString()));
+        assertNull(cache.getIndex().get("Cookie: secret=1234"));
+
+        _fields.clear();
+        HttpParser parser = new HttpParser(handler);
+        parser.setLearnedFieldCache(cache);
+        parseAll(parser, BufferUtil.toBuffer(request));
+        assertTrue(_messageCompleted);
+        assertThat(_fields.get(0), Matchers.instanceOf(HostPortHttpField.class));
+        assertEquals("www.example.com", _host);
+        assertSame(userAgent, _fields.get(1));
+        assertEquals("4.2.1", _fields.get(2).getValue());
+        assertEquals(3, cache.getHits());
+
+        // A different value is not mistaken for a learned one
+        _fields.clear();
+        parser = new HttpParser(handler);
+        parser.setLearnedFieldCache(cache);
+        parseAll(parser, BufferUtil.toBuffer(request.replace("4.2.1", "4.2.10")));
+        assertEquals("4.2.10", _fields.get(2).getValue());
+
+        // Nor is a value that only differs in case
+        _fields.clear();
+        parser = new HttpParser(handler);
+        parser.setLearnedFieldCache(cache);
+        parseAll(parser, BufferUtil.toBuffer(request.replace("Mobile", "MOBILE")));
+        assertNotSame(userAgent, _fields.get(1));
+        assertThat(_fields.get(1).getValue(), containsString("MOBILE"));
+    }
+
+    @Test
+    public void testLearnedFieldCacheEviction()
+    {
+        HttpParser.RequestHandler handler = new Handler();
+        LearnedFieldCache cache = new LearnedFieldCache(1);
+        cache.setThreshold(2);
+        cache.addFieldNames("X-Client-Version");
+
+        for (String version : new String[]{"1.0", "1.0", "2.0", "2.0"})
+        {
+            HttpParser parser = new HttpParser(handler);
+            parser.setLearnedFieldCache(cache);
+            parseAll(parser, BufferUtil.toBuffer("GET / HTTP/1.1\r\nHost: localhost\r\nX-Client-Version: " + version + "\r\nConnection: close\r\n\r\n"));
+            assertTrue(_messageCompleted);
+        }
+
+        // The field learned first had no hits, so was replaced by the field now in use
+        assertEquals(1, cache.getLearnedFields());
+        assertNull(cache.getIndex().get("X-Client-Version: 1.0"));
+        assertNotNull(cache.getIndex().get("X-Client-Version: 2.0"));
+    }
+
+    @Test
+    public void testLearnedFieldCacheObservesOnlyUncachedFields()
+    {
+        HttpParser.RequestHandler handler = new Handler();
+        LearnedFieldCache cache = new LearnedFieldCache();
+        HttpParser parser = new HttpParser(handler);
+        parser.setLearnedFieldCache(cache);
+        // Both fields may be learned, but the Accept-Encoding value is in the static cache
+        parseAll(parser, BufferUtil.toBuffer("GET / HTTP/1.1\r\nHost: localhost\r\nAccept-Encoding: gzip\r\nAccept-Language: en\r\nConnection: close\r\n\r\n"));
+        assertTrue(_messageCompleted);
+        assertEquals(2, cache.getCandidateFields());
+    }
+
+    @Test
+    public void testLearnedFieldCachePrunesLeastSeenCandidates()
+    {
+        LearnedFieldCache cache = new LearnedFieldCache(1);
+        cache.setThreshold(4);
+        cache.addFieldNames("X-Client-Version");
+
+        HttpField frequent = new HttpField("X-Client-Version", "1.0");
+        for (int i = 0; i < 3; i++)
+        {
+            cache.observe(frequent);
+        }
+        // Many values seen once fill the candidates, which are pruned
+        for (int i = 0; i < 20; i++)
+        {
+            cache.observe(new HttpField("X-Client-Version", "2." + i));
+        }
+        assertThat(cache.getCandidateFields(), Matchers.lessThanOrEqualTo(8));
+
+        // The frequent field kept its count, so is learned once seen again
+        cache.observe(frequent);
+        assertEquals(1, cache.getLearnedFields());
+        assertNotNull(cache.getIndex().get("X-Client-Version: 1.0"));
+    }
+
     @Test
     public void testParseRequest()
     {
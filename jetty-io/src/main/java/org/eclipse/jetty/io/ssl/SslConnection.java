@@ -108,6 +108,8 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
     private final List<SslHandshakeListener> handshakeListeners = new ArrayList<>();
     private final AtomicLong _bytesIn = new AtomicLong();
     private final AtomicLong _bytesOut = new AtomicLong();
+    private final AtomicLong _recordsIn = new AtomicLong();
+    private final AtomicLong _recordsOut = new AtomicLong();
     private final ByteBufferPool _bufferPool;
     private final RetainableByteBufferPool _retainableByteBufferPool;
     private final SSLEngine _sslEngine;
@@ -121,6 +123,7 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
     private int _renegotiationLimit = -1;
     private boolean _closedOutbound;
     private boolean _requireCloseMessage;
+    private volatile long _handshakeStart;
     private FlushState _flushState = FlushState.IDLE;
     private FillState _fillState = FillState.IDLE;
     private boolean _underflown;
@@ -202,6 +205,52 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
         return _bytesOut.get();
     }
 
+    /**
+     * <p>Returns the number of TLS records unwrapped.</p>
+     * <p>Together with {@link #getBytesIn()}, it gives the mean size of the records received;
+     * the distribution of record sizes is not tracked.</p>
+     *
+     * @return the number of TLS records unwrapped
+     */
+    public long getRecordsIn()
+    {
+        return _recordsIn.get();
+    }
+
+    /**
+     * <p>Returns the number of TLS records wrapped.</p>
+     * <p>Together with {@link #getBytesOut()}, it gives the mean size of the records sent;
+     * the distribution of record sizes is not tracked.</p>
+     *
+     * @return the number of TLS records wrapped
+     */
+    public long getRecordsOut()
+    {
+        return _recordsOut.get();
+    }
+
+    /**
+     * <p>Returns the capacity of the buffers currently held by this connection.</p>
+     * <p>Buffers are acquired from the pool when needed and released as soon as they
+     * are empty, so an idle connection normally holds no buffers.</p>
+     *
+     * @return the capacity in bytes of the encrypted and decrypted buffers held
+     */
+    public int getBufferCapacity()
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            int capacity = 0;
+            if (_encryptedInput != null)
+                capacity += _encryptedInput.capacity();
+            if (_decryptedInput != null)
+                capacity += _decryptedInput.capacity();
+            if (_encryptedOutput != null)
+                capacity += _encryptedOutput.capacity();
+            return capacity;
+        }
+    }
+
     public void addHandshakeListener(SslHandshakeListener listener)
     {
         handshakeListeners.add(listener);
@@ -707,6 +756,7 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
 
                             if (_handshake.compareAndSet(HandshakeState.INITIAL, HandshakeState.HANDSHAKE))
                             {
+                                _handshakeStart = System.currentTimeMillis();
                                 if (LOG.isDebugEnabled())
                                     LOG.debug("fill starting handshake {}", SslConnection.this);
                             }
@@ -724,6 +774,8 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
                             {
                                 BufferUtil.flipToFlush(appIn, pos);
                             }
+                            if (unwrapResult.bytesConsumed() > 0)
+                                _recordsIn.incrementAndGet();
                             if (LOG.isDebugEnabled())
                                 LOG.debug("unwrap net_filled={} {} encryptedBuffer={} unwrapBuffer={} appBuffer={}",
                                     netFilled,
@@ -1078,6 +1130,7 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
 
                             if (_handshake.compareAndSet(HandshakeState.INITIAL, HandshakeState.HANDSHAKE))
                             {
+                                _handshakeStart = System.currentTimeMillis();
                                 if (LOG.isDebugEnabled())
                                     LOG.debug("flush starting handshake {}", SslConnection.this);
                             }
@@ -1095,6 +1148,8 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
                             {
                                 BufferUtil.flipToFlush(_encryptedOutput, pos);
                             }
+                            if (wrapResult.bytesProduced() > 0)
+                                _recordsOut.incrementAndGet();
                             if (LOG.isDebugEnabled())
                                 LOG.debug("wrap {} {} ioDone={}/{}",
                                     StringUtil.replace(wrapResult.toString(), '\n', ' '),
@@ -1466,7 +1521,11 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
             for (SslHandshakeListener listener : handshakeListeners)
             {
                 if (event == null)
-                    event = new SslHandshakeListener.Event(sslEngine);
+                {
+                    // A session created before this handshake started has been resumed.
+                    boolean resumed = sslEngine.getSession().getCreationTime() < _handshakeStart;
+                    event = new SslHandshakeListener.Event(sslEngine, resumed);
+                }
                 try
                 {
                     listener.handshakeSucceeded(event);
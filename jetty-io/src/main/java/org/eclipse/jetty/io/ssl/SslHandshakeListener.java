@@ -51,9 +51,25 @@ public interface SslHandshakeListener extends EventListener
      */
     public static class Event extends EventObject
     {
+        private final boolean resumed;
+
         public Event(Object source)
+        {
+            this(source, false);
+        }
+
+        public Event(Object source, boolean resumed)
         {
             super(source);
+            this.resumed = resumed;
+        }
+
+        /**
+         * @return whether the TLS handshake resumed a previous session, rather than performing a full handshake
+         */
+        public boolean isResumed()
+        {
+            return resumed;
         }
 
         /**
@@ -0,0 +1,98 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io.ssl;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+
+/**
+ * <p>A {@link SslHandshakeListener} that tracks TLS handshake statistics,
+ * in particular how many handshakes resumed a previous TLS session.</p>
+ * <p>Adding an instance of this class as a bean to a ServerConnector
+ * or SslConnectionFactory (for the server) or to HttpClient (for the client)
+ * will track the TLS handshakes of all the connections of the server or of the client.</p>
+ * <p>A low {@link #getResumptionRate() resumption rate} indicates that TLS sessions are
+ * not reused, for example because the TLS session cache is too small or its timeout too short,
+ * or because a load balancer does not route clients back to the node that holds their session.</p>
+ */
+@ManagedObject("Tracks statistics on TLS handshakes")
+public class SslHandshakeStatistics implements SslHandshakeListener
+{
+    private final LongAdder _handshakes = new LongAdder();
+    private final LongAdder _resumed = new LongAdder();
+    private final LongAdder _failed = new LongAdder();
+
+    @Override
+    public void handshakeSucceeded(Event event)
+    {
+        _handshakes.increment();
+        if (event.isResumed())
+            _resumed.increment();
+    }
+
+    @Override
+    public void handshakeFailed(Event event, Throwable failure)
+    {
+        _failed.increment();
+    }
+
+    @ManagedAttribute("The number of successful TLS handshakes")
+    public long getHandshakes()
+    {
+        return _handshakes.sum();
+    }
+
+    @ManagedAttribute("The number of TLS handshakes that resumed a previous session")
+    public long getResumedHandshakes()
+    {
+        return _resumed.sum();
+    }
+
+    @ManagedAttribute("The number of full TLS handshakes")
+    public long getFullHandshakes()
+    {
+        return getHandshakes() - getResumedHandshakes();
+    }
+
+    @ManagedAttribute("The number of failed TLS handshakes")
+    public long getFailedHandshakes()
+    {
+        return _failed.sum();
+    }
+
+    @ManagedAttribute("The ratio of successful TLS handshakes that resumed a previous session")
+    public double getResumptionRate()
+    {
+        long handshakes = getHandshakes();
+        return handshakes == 0 ? 0 : (double)getResumedHandshakes() / handshakes;
+    }
+
+    @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
+    public void reset()
+    {
+        _handshakes.reset();
+        _resumed.reset();
+        _failed.reset();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{handshakes=%d,resumed=%d,failed=%d}",
+            getClass().getSimpleName(), hashCode(), getHandshakes(), getResumedHandshakes(), getFailedHandshakes());
+    }
+}
@@ -37,6 +37,7 @@ import org.eclipse.jetty.io.ssl.SslConnection;
 import org.eclipse.jetty.toolchain.test.MavenTestingUtils;
 import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.FutureCallback;
+import org.eclipse.jetty.util.NanoTime;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.eclipse.jetty.util.thread.Scheduler;
@@ -48,6 +49,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -298,6 +300,38 @@ public class SslConnectionTest
         }
     }
 
+    @Test
+    public void testRecordsAndIdleBuffers() throws Exception
+    {
+        startSSL();
+        try (Socket client = newClient())
+        {
+            client.setSoTimeout(TIMEOUT);
+            try (SocketChannel server = _connector.accept())
+            {
+                server.configureBlocking(false);
+                _manager.accept(server);
+
+                client.getOutputStream().write("Hello".getBytes(StandardCharsets.UTF_8));
+                byte[] buffer = new byte[1024];
+                int len = client.getInputStream().read(buffer);
+                assertEquals(5, len);
+
+                SslConnection sslConnection = (SslConnection)_lastEndp.getConnection();
+                assertThat(sslConnection.getRecordsIn(), greaterThan(0L));
+                assertThat(sslConnection.getRecordsOut(), greaterThan(0L));
+
+                // An idle connection does not hold buffers.
+                long start = NanoTime.now();
+                while (sslConnection.getBufferCapacity() > 0 && NanoTime.secondsSince(start) < 5)
+                {
+                    Thread.sleep(10);
+                }
+                assertEquals(0, sslConnection.getBufferCapacity());
+            }
+        }
+    }
+
     @Test
     public void testRenegotiate() throws Exception
     {
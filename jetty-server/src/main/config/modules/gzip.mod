@@ -62,3 +62,18 @@ etc/jetty-gzip.xml
 
 ## Comma separated list of excluded Path specs
 # jetty.gzip.excludedPathList=
+
+## Thread pool utilization (0-1) from which the high load compression level is used (-1 to disable)
+# jetty.gzip.highLoadUtilization=-1
+
+## Gzip compression level used under high load
+# jetty.gzip.highLoadCompressionLevel=1
+
+## Thread pool utilization (0-1) from which responses are not compressed (-1 to disable)
+# jetty.gzip.overloadUtilization=-1
+
+## Whether the system load average per processor is also compared to the utilizations above
+# jetty.gzip.systemLoad=false
+
+## Entropy in bits per byte (0-8) from which content is considered already compressed (-1 to disable)
+# jetty.gzip.entropyThreshold=-1
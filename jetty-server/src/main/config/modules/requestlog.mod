@@ -38,4 +38,16 @@ logs/
 
 ## The timezone of the log file name.
 # jetty.requestlog.timezone=GMT
+
+## The maximum number of log entries queued for the writer thread.
+# jetty.requestlog.queueCapacity=1024
+
+## What to do when the queue is full: BLOCK, DROP or SAMPLE (drop most entries once half full).
+# jetty.requestlog.overflowPolicy=DROP
+
+## When sampling, one in how many entries are kept.
+# jetty.requestlog.sampleRate=10
+
+## The maximum number of log entries written at once.
+# jetty.requestlog.maxBatchSize=256
 # end::documentation[]
@@ -54,6 +54,9 @@ etc/jetty.xml
 ## Max per-connection header cache size (in nodes)
 # jetty.httpConfig.headerCacheSize=1024
 
+## Max number of header fields learned by a cache shared by all connections (0 to disable)
+# jetty.httpConfig.learnedFieldCacheSize=0
+
 ## Whether, for requests with content, delay dispatch until some content has arrived
 # jetty.httpConfig.delayDispatchUntilContent=true
 
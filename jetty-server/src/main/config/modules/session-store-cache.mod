@@ -21,9 +21,10 @@ session-data-cache?=xmemcached
 
 [ini-template]
 
-## Session Data Cache type: xmemcached
+## Session Data Cache type: xmemcached or offheap
 session-data-cache=xmemcached
 #jetty.session.memcached.host=localhost
 #jetty.session.memcached.port=11211
 #jetty.session.memcached.expirySec=
 #jetty.session.memcached.heartbeats=true
+#jetty.session.offheap.maxCapacity=268435456
@@ -0,0 +1,30 @@
+# DO NOT EDIT - See: https://www.eclipse.org/jetty/documentation/current/startup-modules.html
+
+[description]
+Enables session persistent storage in segmented, append-only files with an index.
+
+[tags]
+session
+
+[provides]
+session-store
+
+[depends]
+sessions
+
+[xml]
+etc/sessions/segmented-file/session-store.xml
+
+[files]
+sessions/
+
+[ini-template]
+jetty.session.file.storeDir=${jetty.base}/sessions
+#jetty.session.file.deleteUnrestorableFiles=false
+#jetty.session.file.maxSegmentSize=67108864
+#jetty.session.file.compactionRatio=0.5
+#jetty.session.file.checkpointSize=4194304
+#jetty.session.file.checkpointInterval=60000
+#jetty.session.file.forceOnStore=false
+#jetty.session.gracePeriod.seconds=3600
+#jetty.session.savePeriod.seconds=0
@@ -20,5 +20,8 @@ etc/sessions/id-manager.xml
 ## The name to uniquely identify this server instance
 #jetty.sessionIdManager.workerName=node1
 
+## Number of independent random number generators for session ids, 0 for a single shared one
+#jetty.sessionIdManager.randomStripes=0
+
 ## Period between runs of the session scavenger (in seconds)
 #jetty.sessionScavengeInterval.seconds=600
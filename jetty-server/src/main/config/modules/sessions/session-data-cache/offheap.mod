@@ -0,0 +1,13 @@
+# DO NOT EDIT - See: https://www.eclipse.org/jetty/documentation/current/startup-modules.html
+
+[description]
+Off-heap cache for SessionData.
+
+[tags]
+session
+
+[depends]
+session-store
+
+[xml]
+etc/sessions/session-data-cache/offheap.xml
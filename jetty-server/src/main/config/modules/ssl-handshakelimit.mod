@@ -0,0 +1,22 @@
+# DO NOT EDIT - See: https://www.eclipse.org/jetty/documentation/current/startup-modules.html
+
+[description]
+Enables a server-wide limit of concurrent TLS handshakes.
+
+[tags]
+connector
+ssl
+
+[depend]
+ssl
+
+[xml]
+etc/jetty-ssl-handshakelimit.xml
+
+[ini-template]
+
+## The limit of concurrent TLS handshakes, above which new connections are not accepted
+#jetty.ssl.handshakelimit.maxHandshakes=256
+
+## The timeout in ms of TLS handshakes, after which their connection is closed
+#jetty.ssl.handshakelimit.handshakeTimeout=10000
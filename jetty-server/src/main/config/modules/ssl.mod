@@ -69,6 +69,13 @@ etc/jetty-ssl-context.xml
 
 ## Whether to include the subdomain property in any Strict-Transport-Security header.
 # jetty.ssl.stsIncludeSubdomains=true
+
+## Whether to use direct buffers for the TLS records written to the network.
+## Native TLS providers such as Conscrypt avoid a copy to native memory with direct buffers.
+# jetty.ssl.directBuffersForEncryption=false
+
+## Whether to use direct buffers for the TLS records read from the network.
+# jetty.ssl.directBuffersForDecryption=false
 # end::documentation-connector[]
 
 # tag::documentation-ssl-context[]
@@ -19,6 +19,7 @@ module org.eclipse.jetty.server
 
     // Only required if using DatabaseAdaptor/JDBCSessionDataStore.
     requires static java.sql;
+    requires static java.management;
     requires static java.naming;
     // Only required if using JMX.
     requires static org.eclipse.jetty.jmx;
@@ -14,43 +14,193 @@
 package org.eclipse.jetty.server;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
-import org.eclipse.jetty.util.BlockingArrayQueue;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.statistic.SampleStatistic;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * An asynchronously writing RequestLogWriter
+ * <p>An asynchronously writing RequestLogWriter.</p>
+ * <p>Log entries are queued in a bounded, lock-free ring buffer by the request threads
+ * and written by a single writer thread, which drains the queued entries in batches
+ * of up to {@link #getMaxBatchSize()} entries with a single write to the log file.</p>
+ * <p>What happens when the ring buffer is full, for example because the disk stalls,
+ * is determined by the {@link OverflowPolicy}.</p>
  */
+@ManagedObject("Asynchronous request log writer")
 public class AsyncRequestLogWriter extends RequestLogWriter
 {
     private static final Logger LOG = LoggerFactory.getLogger(AsyncRequestLogWriter.class);
-    private final BlockingQueue<String> _queue;
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * The behavior of {@link #write(String)} when the queue of entries is full.
+     */
+    public enum OverflowPolicy
+    {
+        /**
+         * The request thread waits until there is space in the queue.
+         */
+        BLOCK,
+        /**
+         * The entry is dropped and counted.
+         */
+        DROP,
+        /**
+         * Once the queue is half full only one in {@link #getSampleRate()} entries are
+         * queued, the others are dropped and counted, as are entries when the queue is full.
+         */
+        SAMPLE
+    }
+
+    private final AtomicReferenceArray<String> _ring;
+    private final int _mask;
+    private final AtomicLong _head = new AtomicLong();
+    private volatile long _tail;
+    private volatile boolean _waiting;
+    private final LongAdder _dropped = new LongAdder();
+    private final LongAdder _sampled = new LongAdder();
+    private final LongAdder _written = new LongAdder();
+    private final SampleStatistic _writeLatency = new SampleStatistic();
+    private OverflowPolicy _overflowPolicy = OverflowPolicy.DROP;
+    private int _sampleRate = 10;
+    private int _maxBatchSize = 256;
     private transient AsyncRequestLogWriter.WriterThread _thread;
     private boolean _warnedFull;
 
     public AsyncRequestLogWriter()
     {
-        this(null, null);
+        this(null, DEFAULT_CAPACITY);
     }
 
     public AsyncRequestLogWriter(String filename)
     {
-        this(filename, null);
+        this(filename, DEFAULT_CAPACITY);
     }
 
+    /**
+     * @param filename the log file name
+     * @param queue only used for its remaining capacity
+     * @deprecated use {@link #AsyncRequestLogWriter(String, int)}
+     */
+    @Deprecated
     public AsyncRequestLogWriter(String filename, BlockingQueue<String> queue)
+    {
+        this(filename, queue == null ? DEFAULT_CAPACITY : queue.remainingCapacity());
+    }
+
+    /**
+     * @param filename the log file name
+     * @param capacity the maximum number of entries queued, rounded up to a power of 2
+     */
+    public AsyncRequestLogWriter(String filename, int capacity)
     {
         super(filename);
-        if (queue == null)
-            queue = new BlockingArrayQueue<>(1024);
-        _queue = queue;
+        int size = Integer.highestOneBit(Math.max(2, Math.min(capacity, 1 << 30)) - 1) << 1;
+        _ring = new AtomicReferenceArray<>(size);
+        _mask = size - 1;
+    }
+
+    @ManagedAttribute("The behavior when the queue is full")
+    public OverflowPolicy getOverflowPolicy()
+    {
+        return _overflowPolicy;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy)
+    {
+        _overflowPolicy = overflowPolicy;
+    }
+
+    @ManagedAttribute("One in how many entries are kept when sampling")
+    public int getSampleRate()
+    {
+        return _sampleRate;
+    }
+
+    public void setSampleRate(int sampleRate)
+    {
+        _sampleRate = Math.max(1, sampleRate);
+    }
+
+    @ManagedAttribute("The maximum number of entries written at once")
+    public int getMaxBatchSize()
+    {
+        return _maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize)
+    {
+        if (isStarted())
+            throw new IllegalStateException("Started");
+        _maxBatchSize = Math.max(1, maxBatchSize);
+    }
+
+    @ManagedAttribute("The maximum number of entries queued")
+    public int getQueueCapacity()
+    {
+        return _ring.length();
+    }
+
+    @ManagedAttribute("The number of entries queued")
+    public int getQueueDepth()
+    {
+        return (int)(_head.get() - _tail);
+    }
+
+    @ManagedAttribute("The number of entries dropped because the queue was full or sampled")
+    public long getDroppedEntries()
+    {
+        return _dropped.sum();
+    }
+
+    @ManagedAttribute("The number of entries written")
+    public long getWrittenEntries()
+    {
+        return _written.sum();
+    }
+
+    @ManagedAttribute("The mean time in microseconds to write a batch of entries")
+    public double getWriteLatencyMean()
+    {
+        return _writeLatency.getMean();
+    }
+
+    @ManagedAttribute("The maximum time in microseconds to write a batch of entries")
+    public long getWriteLatencyMax()
+    {
+        return _writeLatency.getMax();
+    }
+
+    @ManagedAttribute("The number of batches written")
+    public long getWriteBatches()
+    {
+        return _writeLatency.getCount();
+    }
+
+    @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
+    public void resetStatistics()
+    {
+        _dropped.reset();
+        _sampled.reset();
+        _written.reset();
+        _writeLatency.reset();
     }
 
     private class WriterThread extends Thread
     {
+        private final String[] _batch = new String[_maxBatchSize];
+
         WriterThread()
         {
             setName("AsyncRequestLogWriter@" + Integer.toString(AsyncRequestLogWriter.this.hashCode(), 16));
@@ -61,31 +211,67 @@ public class AsyncRequestLogWriter extends RequestLogWriter
         {
             while (isRunning())
             {
-                try
-                {
-                    String log = _queue.poll(10, TimeUnit.SECONDS);
-                    if (log != null)
-                        AsyncRequestLogWriter.super.write(log);
-
-                    while (!_queue.isEmpty())
-                    {
-                        log = _queue.poll();
-                        if (log != null)
-                            AsyncRequestLogWriter.super.write(log);
-                    }
-                }
-                catch (InterruptedException e)
-                {
-                    LOG.trace("IGNORED", e);
-                }
-                catch (Throwable t)
+                if (drain() == 0)
                 {
-                    LOG.warn("Failed to write log", t);
+                    _waiting = true;
+                    if (isEmpty() && isRunning())
+                        LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(10));
+                    _waiting = false;
                 }
             }
+            // Write what was queued before stopping, including entries whose
+            // slot has been claimed by a producer that has not yet set it
+            long head = _head.get();
+            while (_tail < head)
+            {
+                if (drain() == 0)
+                    Thread.yield();
+            }
+        }
+
+        private int drain()
+        {
+            int count = 0;
+            long tail = _tail;
+            while (count < _batch.length)
+            {
+                int index = (int)tail & _mask;
+                String log = _ring.get(index);
+                // A null entry is either empty or claimed but not yet set by a producer
+                if (log == null)
+                    break;
+                _ring.lazySet(index, null);
+                _batch[count++] = log;
+                tail++;
+            }
+            if (count == 0)
+                return 0;
+            _tail = tail;
+
+            try
+            {
+                long begin = System.nanoTime();
+                AsyncRequestLogWriter.super.write(_batch, count);
+                _writeLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - begin));
+                _written.add(count);
+            }
+            catch (Throwable t)
+            {
+                LOG.warn("Failed to write log", t);
+            }
+            finally
+            {
+                Arrays.fill(_batch, 0, count, null);
+            }
+            return count;
         }
     }
 
+    private boolean isEmpty()
+    {
+        return _head.get() == _tail;
+    }
+
     @Override
     protected void doStart() throws Exception
     {
@@ -97,20 +283,74 @@ public class AsyncRequestLogWriter extends RequestLogWriter
     @Override
     protected void doStop() throws Exception
     {
-        _thread.interrupt();
+        LockSupport.unpark(_thread);
         _thread.join();
         super.doStop();
         _thread = null;
     }
 
+    @Override
+    public void write(CharSequence log) throws IOException
+    {
+        write(log.toString());
+    }
+
     @Override
     public void write(String log) throws IOException
     {
-        if (!_queue.offer(log))
+        OverflowPolicy policy = _overflowPolicy;
+        if (policy == OverflowPolicy.SAMPLE && getQueueDepth() > _ring.length() / 2)
+        {
+            _sampled.increment();
+            if (_sampled.sum() % _sampleRate != 0)
+            {
+                _dropped.increment();
+                return;
+            }
+        }
+
+        while (!offer(log))
+        {
+            if (policy != OverflowPolicy.BLOCK || !isRunning())
+            {
+                _dropped.increment();
+                if (!_warnedFull)
+                    LOG.warn("Log Queue overflow");
+                _warnedFull = true;
+                return;
+            }
+            wakeup();
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        if (_waiting)
+            wakeup();
+    }
+
+    private boolean offer(String log)
+    {
+        while (true)
         {
-            if (_warnedFull)
-                LOG.warn("Log Queue overflow");
-            _warnedFull = true;
+            long head = _head.get();
+            if (head - _tail >= _ring.length())
+                return false;
+            if (_head.compareAndSet(head, head + 1))
+            {
+                _ring.set((int)head & _mask, log);
+                return true;
+            }
         }
     }
+
+    private void wakeup()
+    {
+        Thread thread = _thread;
+        if (thread != null)
+            LockSupport.unpark(thread);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{%s,depth=%d/%d,dropped=%d}", getClass().getSimpleName(), hashCode(), _overflowPolicy, getQueueDepth(), _ring.length(), getDroppedEntries());
+    }
 }
@@ -14,10 +14,14 @@
 package org.eclipse.jetty.server;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -25,8 +29,13 @@ import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
 
 import org.eclipse.jetty.http.CompressedContentFormat;
 import org.eclipse.jetty.http.DateGenerator;
@@ -39,11 +48,23 @@ import org.eclipse.jetty.http.PreEncodedHttpField;
 import org.eclipse.jetty.http.PrecompressedHttpContent;
 import org.eclipse.jetty.http.ResourceHttpContent;
 import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.IO;
 import org.eclipse.jetty.util.resource.Resource;
 import org.eclipse.jetty.util.resource.ResourceFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * <p>A {@link HttpContent.ContentFactory} that caches the content of resources in memory.</p>
+ * <p>If {@link #setCompressedVariants(boolean) compressed variants} are enabled and
+ * {@link CompressedContentFormat#GZIP} is one of the precompressed formats, then a cached
+ * resource without a precompressed file on disk will have a gzip variant generated in memory,
+ * by the {@link #setExecutor(Executor) executor}, the first time it is requested by a client that
+ * accepts gzip; the identity content is served until the variant is ready. The variant is keyed to the cached entry (and thus to the
+ * resource version and ETag), is accounted in the {@link #getCachedSize() cache size}, and is
+ * discarded together with the entry when it is evicted or the resource changes, so that a
+ * static resource is compressed only once per version.</p>
+ */
 public class CachedContentFactory implements HttpContent.ContentFactory
 {
     private static final Logger LOG = LoggerFactory.getLogger(CachedContentFactory.class);
@@ -58,10 +79,15 @@ public class CachedContentFactory implements HttpContent.ContentFactory
     private final boolean _etags;
     private final CompressedContentFormat[] _precompressedFormats;
     private final boolean _useFileMappedBuffer;
+    private final LongAdder _compressedVariantsCreated = new LongAdder();
+    private final LongAdder _compressedVariantHits = new LongAdder();
 
     private int _maxCachedFileSize = 128 * 1024 * 1024;
     private int _maxCachedFiles = 2048;
     private int _maxCacheSize = 256 * 1024 * 1024;
+    private boolean _compressedVariants;
+    private int _minCompressedVariantSize = 1024;
+    private Executor _executor;
 
     /**
      * Constructor.
@@ -140,6 +166,78 @@ public class CachedContentFactory implements HttpContent.ContentFactory
         return _useFileMappedBuffer;
     }
 
+    /**
+     * @return whether compressed variants of cached resources are generated in memory
+     */
+    public boolean isCompressedVariants()
+    {
+        return _compressedVariants;
+    }
+
+    /**
+     * <p>Sets whether compressed variants of cached resources are generated in memory.</p>
+     * <p>Variants are only generated for the {@link CompressedContentFormat#GZIP} format,
+     * and only if it is one of the precompressed formats passed to the constructor.</p>
+     *
+     * @param compressedVariants true to generate compressed variants of cached resources
+     */
+    public void setCompressedVariants(boolean compressedVariants)
+    {
+        _compressedVariants = compressedVariants;
+    }
+
+    /**
+     * @return the minimum resource size for which a compressed variant is generated
+     */
+    public int getMinCompressedVariantSize()
+    {
+        return _minCompressedVariantSize;
+    }
+
+    /**
+     * @param minCompressedVariantSize the minimum resource size for which a compressed variant is generated
+     */
+    public void setMinCompressedVariantSize(int minCompressedVariantSize)
+    {
+        _minCompressedVariantSize = minCompressedVariantSize;
+    }
+
+    /**
+     * @return the executor used to generate compressed variants
+     */
+    public Executor getExecutor()
+    {
+        return _executor;
+    }
+
+    /**
+     * <p>Sets the executor used to generate compressed variants.</p>
+     * <p>If no executor is set, a variant is generated by the thread of the first request
+     * for it, and served from the following requests.</p>
+     *
+     * @param executor the executor used to generate compressed variants
+     */
+    public void setExecutor(Executor executor)
+    {
+        _executor = executor;
+    }
+
+    /**
+     * @return the number of compressed variants generated
+     */
+    public long getCompressedVariantsCreated()
+    {
+        return _compressedVariantsCreated.sum();
+    }
+
+    /**
+     * @return the number of responses served from a cached compressed variant
+     */
+    public long getCompressedVariantHits()
+    {
+        return _compressedVariantHits.sum();
+    }
+
     public void flushCache()
     {
         while (_cache.size() > 0)
@@ -365,6 +463,54 @@ public class CachedContentFactory implements HttpContent.ContentFactory
         return null;
     }
 
+    /**
+     * @param content the cached content
+     * @return whether a compressed variant may be generated for the content.
+     * The default implementation tests the size and the mime type of the content.
+     */
+    protected boolean isCompressible(HttpContent content)
+    {
+        long length = content.getContentLengthValue();
+        if (length < _minCompressedVariantSize || length > _maxCachedFileSize)
+            return false;
+
+        String mimeType = content.getContentTypeValue();
+        if (mimeType == null)
+            return false;
+        mimeType = MimeTypes.getContentTypeWithoutCharset(mimeType);
+        if (mimeType.startsWith("text/"))
+            return true;
+        return mimeType.endsWith("javascript") || mimeType.endsWith("json") ||
+            mimeType.endsWith("xml") || mimeType.equals("image/svg+xml");
+    }
+
+    /**
+     * @param content the cached content
+     * @param format the format to compress the content to
+     * @return a buffer with the compressed content, or null if the content cannot be compressed to the format
+     */
+    protected ByteBuffer compress(HttpContent content, CompressedContentFormat format)
+    {
+        if (!CompressedContentFormat.GZIP.equals(format))
+            return null;
+
+        try (InputStream in = content.getInputStream())
+        {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream((int)Math.min(content.getContentLengthValue(), Integer.MAX_VALUE));
+            try (OutputStream out = new GZIPOutputStream(bytes))
+            {
+                IO.copy(in, out);
+            }
+            return BufferUtil.toBuffer(bytes.toByteArray());
+        }
+        catch (IOException | IllegalArgumentException e)
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("Unable to compress {} to {}", content, format, e);
+        }
+        return null;
+    }
+
     @Override
     public String toString()
     {
@@ -387,9 +533,15 @@ public class CachedContentFactory implements HttpContent.ContentFactory
         private final long _lastModifiedValue;
         private final HttpField _etag;
         private final Map<CompressedContentFormat, CachedPrecompressedHttpContent> _precompressed;
+        private final CompressedContentFormat[] _precompressedKeys;
+        private final CachedPrecompressedHttpContent[] _precompressedValues;
         private final AtomicReference<ByteBuffer> _indirectBuffer = new AtomicReference<>();
         private final AtomicReference<ByteBuffer> _directBuffer = new AtomicReference<>();
         private final AtomicReference<ByteBuffer> _mappedBuffer = new AtomicReference<>();
+        private final AtomicReference<CachedCompressedHttpContent> _compressedVariant = new AtomicReference<>();
+        private final AtomicBoolean _compressing = new AtomicBoolean();
+        private volatile boolean _compressedVariantRejected;
+        private volatile PrecompressedContents _precompressedSnapshot;
         private volatile long _lastAccessed;
 
         CachedHttpContent(String pathInContext, Resource resource, Map<CompressedContentFormat, CachedHttpContent> precompressedResources)
@@ -429,6 +581,12 @@ public class CachedContentFactory implements HttpContent.ContentFactory
             {
                 _precompressed = NO_PRECOMPRESSED;
             }
+            _precompressedKeys = _precompressed.keySet().toArray(new CompressedContentFormat[0]);
+            _precompressedValues = new CachedPrecompressedHttpContent[_precompressedKeys.length];
+            for (int i = 0; i < _precompressedKeys.length; i++)
+            {
+                _precompressedValues[i] = _precompressed.get(_precompressedKeys[i]);
+            }
         }
 
         public String getKey()
@@ -484,6 +642,10 @@ public class CachedContentFactory implements HttpContent.ContentFactory
 
             _mappedBuffer.getAndSet(null);
 
+            CachedCompressedHttpContent variant = _compressedVariant.getAndSet(null);
+            if (variant != null)
+                _cachedSize.addAndGet(-variant.getBufferLength());
+
             _cachedFiles.decrementAndGet();
             _resource.close();
         }
@@ -651,22 +813,137 @@ public class CachedContentFactory implements HttpContent.ContentFactory
             return String.format("CachedContent@%x{r=%s,e=%b,lm=%s,ct=%s,c=%d}", hashCode(), _resource, _resource.exists(), _lastModified, _contentType, _precompressed.size());
         }
 
+        /**
+         * <p>Returns the valid precompressed contents and the gzip variant, if any.</p>
+         * <p>The map is only rebuilt when the validity of a precompressed content
+         * or the gzip variant changes, so that requests for the same content share it.</p>
+         */
         @Override
         public Map<CompressedContentFormat, ? extends HttpContent> getPrecompressedContents()
         {
-            if (_precompressed.size() == 0)
-                return null;
-            Map<CompressedContentFormat, CachedPrecompressedHttpContent> ret = _precompressed;
-            for (Map.Entry<CompressedContentFormat, CachedPrecompressedHttpContent> entry : _precompressed.entrySet())
+            long valid = 0;
+            for (int i = 0; i < _precompressedValues.length; i++)
             {
-                if (!entry.getValue().isValid())
+                if (_precompressedValues[i].isValid())
+                    valid |= 1L << i;
+            }
+            CachedCompressedHttpContent variant = _compressedVariant.get();
+
+            PrecompressedContents contents = _precompressedSnapshot;
+            if (contents == null || contents._valid != valid || contents._variant != variant)
+            {
+                contents = new PrecompressedContents(valid, variant);
+                _precompressedSnapshot = contents;
+            }
+            return contents._contents;
+        }
+
+        private class PrecompressedContents
+        {
+            private final long _valid;
+            private final CachedCompressedHttpContent _variant;
+            private final Map<CompressedContentFormat, HttpContent> _contents;
+
+            private PrecompressedContents(long valid, CachedCompressedHttpContent variant)
+            {
+                _valid = valid;
+                _variant = variant;
+
+                Map<CompressedContentFormat, HttpContent> contents = null;
+                for (int i = 0; i < _precompressedValues.length; i++)
+                {
+                    if ((valid & (1L << i)) != 0)
+                    {
+                        if (contents == null)
+                            contents = new HashMap<>(_precompressedValues.length + 1);
+                        contents.put(_precompressedKeys[i], _precompressedValues[i]);
+                    }
+                }
+
+                if (variant != null && (contents == null || !contents.containsKey(CompressedContentFormat.GZIP)))
                 {
-                    if (ret == _precompressed)
-                        ret = new HashMap<>(_precompressed);
-                    ret.remove(entry.getKey());
+                    if (contents == null)
+                        contents = new HashMap<>(2);
+                    contents.put(CompressedContentFormat.GZIP, variant);
                 }
+                _contents = contents == null ? null : Collections.unmodifiableMap(contents);
+            }
+        }
+
+        /**
+         * <p>Starts the generation of the gzip variant of this content, unless it is already
+         * available, being generated, or known not to be worthwhile.</p>
+         * <p>The variant is generated by the {@link #getExecutor() executor}, so that the
+         * request that triggered it is not delayed, and concurrent requests for the same
+         * content do not compress it more than once; the variant is returned by
+         * {@link #getPrecompressedContents()} once it is ready.</p>
+         *
+         * @return whether the gzip variant may become available for this content
+         */
+        boolean startCompressedVariant()
+        {
+            if (!_compressedVariants || _compressedVariantRejected || !Arrays.asList(_precompressedFormats).contains(CompressedContentFormat.GZIP))
+                return false;
+
+            if (_compressedVariant.get() != null || !_compressing.compareAndSet(false, true))
+                return true;
+
+            if (!isCompressible(this))
+            {
+                _compressedVariantRejected = true;
+                return false;
+            }
+
+            Executor executor = _executor;
+            if (executor == null)
+            {
+                compressVariant();
+            }
+            else
+            {
+                try
+                {
+                    executor.execute(this::compressVariant);
+                }
+                catch (RejectedExecutionException x)
+                {
+                    if (LOG.isDebugEnabled())
+                        LOG.debug("Unable to compress {}", this, x);
+                    _compressing.set(false);
+                }
+            }
+            return true;
+        }
+
+        private void compressVariant()
+        {
+            ByteBuffer compressed = compress(this, CompressedContentFormat.GZIP);
+            if (compressed == null || compressed.remaining() >= _contentLengthValue)
+            {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Not compressible {}", this);
+                _compressedVariantRejected = true;
+                return;
+            }
+
+            CachedCompressedHttpContent created = new CachedCompressedHttpContent(this, compressed, CompressedContentFormat.GZIP);
+            if (!_compressedVariant.compareAndSet(null, created))
+                return;
+            _compressedVariantsCreated.increment();
+            if (LOG.isDebugEnabled())
+                LOG.debug("Created {}", created);
+            _cachedSize.addAndGet(created.getBufferLength());
+
+            // The entry may have been evicted while compressing.
+            if (_cache.get(_key) != this)
+            {
+                if (_compressedVariant.compareAndSet(created, null))
+                    _cachedSize.addAndGet(-created.getBufferLength());
+            }
+            else if (_cachedSize.get() > _maxCacheSize)
+            {
+                shrinkCache();
             }
-            return ret;
         }
     }
 
@@ -712,4 +989,171 @@ public class CachedContentFactory implements HttpContent.ContentFactory
             return "Cached" + super.toString();
         }
     }
+
+    /**
+     * A compressed variant of a {@link CachedHttpContent} generated and held in memory.
+     */
+    public class CachedCompressedHttpContent implements HttpContent
+    {
+        private final CachedHttpContent _content;
+        private final ByteBuffer _buffer;
+        private final CompressedContentFormat _format;
+        private final HttpField _contentLength;
+        private final HttpField _etag;
+        private final AtomicReference<ByteBuffer> _directBuffer = new AtomicReference<>();
+
+        CachedCompressedHttpContent(CachedHttpContent content, ByteBuffer buffer, CompressedContentFormat format)
+        {
+            _content = content;
+            _buffer = buffer;
+            _format = format;
+            _contentLength = new PreEncodedHttpField(HttpHeader.CONTENT_LENGTH, Long.toString(buffer.remaining()));
+            _etag = (CachedContentFactory.this._etags) ? new PreEncodedHttpField(HttpHeader.ETAG, _content.getResource().getWeakETag(format.getEtagSuffix())) : null;
+        }
+
+        int getBufferLength()
+        {
+            return _buffer.remaining();
+        }
+
+        void onServed()
+        {
+            _compressedVariantHits.increment();
+        }
+
+        @Override
+        public HttpField getContentType()
+        {
+            return _content.getContentType();
+        }
+
+        @Override
+        public String getContentTypeValue()
+        {
+            return _content.getContentTypeValue();
+        }
+
+        @Override
+        public String getCharacterEncoding()
+        {
+            return _content.getCharacterEncoding();
+        }
+
+        @Override
+        public Type getMimeType()
+        {
+            return _content.getMimeType();
+        }
+
+        @Override
+        public HttpField getContentEncoding()
+        {
+            return _format.getContentEncoding();
+        }
+
+        @Override
+        public String getContentEncodingValue()
+        {
+            return _format.getContentEncoding().getValue();
+        }
+
+        @Override
+        public HttpField getContentLength()
+        {
+            return _contentLength;
+        }
+
+        @Override
+        public long getContentLengthValue()
+        {
+            return _buffer.remaining();
+        }
+
+        @Override
+        public HttpField getLastModified()
+        {
+            return _content.getLastModified();
+        }
+
+        @Override
+        public String getLastModifiedValue()
+        {
+            return _content.getLastModifiedValue();
+        }
+
+        @Override
+        public HttpField getETag()
+        {
+            if (_etag != null)
+                return _etag;
+            return new HttpField(HttpHeader.ETAG, getETagValue());
+        }
+
+        @Override
+        public String getETagValue()
+        {
+            if (_etag != null)
+                return _etag.getValue();
+            return _content.getResource().getWeakETag(_format.getEtagSuffix());
+        }
+
+        @Override
+        public ByteBuffer getIndirectBuffer()
+        {
+            return _buffer.asReadOnlyBuffer();
+        }
+
+        @Override
+        public ByteBuffer getDirectBuffer()
+        {
+            ByteBuffer buffer = _directBuffer.get();
+            if (buffer == null)
+            {
+                ByteBuffer direct = BufferUtil.allocateDirect(_buffer.remaining());
+                BufferUtil.append(direct, _buffer.slice());
+                if (_directBuffer.compareAndSet(null, direct))
+                    buffer = direct;
+                else
+                    buffer = _directBuffer.get();
+            }
+            return buffer.asReadOnlyBuffer();
+        }
+
+        @Override
+        public Resource getResource()
+        {
+            return _content.getResource();
+        }
+
+        @Override
+        public InputStream getInputStream()
+        {
+            if (_buffer.hasArray())
+                return new ByteArrayInputStream(_buffer.array(), _buffer.arrayOffset() + _buffer.position(), _buffer.remaining());
+            return new ByteArrayInputStream(BufferUtil.toArray(_buffer));
+        }
+
+        @Override
+        public ReadableByteChannel getReadableByteChannel()
+        {
+            return Channels.newChannel(getInputStream());
+        }
+
+        @Override
+        public void release()
+        {
+        }
+
+        @Override
+        public Map<CompressedContentFormat, ? extends HttpContent> getPrecompressedContents()
+        {
+            return null;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("CachedCompressedContent@%x{e=%s,r=%s,l=%d}", hashCode(), _format, _content.getResource(), _buffer.remaining());
+        }
+    }
 }
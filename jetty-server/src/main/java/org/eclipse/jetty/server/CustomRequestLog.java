@@ -401,8 +401,7 @@ public class CustomRequestLog extends ContainerLifeCycle implements RequestLog
 
             _logHandle.invoke(sb, request, response);
 
-            String log = sb.toString();
-            _requestLogWriter.write(log);
+            _requestLogWriter.write(sb);
         }
         catch (Throwable e)
         {
@@ -1233,7 +1232,8 @@ public class CustomRequestLog extends ContainerLifeCycle implements RequestLog
     private static void logRequestTime(DateCache dateCache, StringBuilder b, Request request, Response response)
     {
         b.append('[');
-        append(b, dateCache.format(request.getTimeStamp()));
+        // Most requests are logged in the second they were received, so use the cached tick
+        append(b, dateCache.formatNow(request.getTimeStamp()));
         b.append(']');
     }
 
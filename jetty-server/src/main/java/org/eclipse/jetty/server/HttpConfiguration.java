@@ -23,6 +23,7 @@ import org.eclipse.jetty.http.CookieCompliance;
 import org.eclipse.jetty.http.HttpCompliance;
 import org.eclipse.jetty.http.HttpMethod;
 import org.eclipse.jetty.http.HttpScheme;
+import org.eclipse.jetty.http.LearnedFieldCache;
 import org.eclipse.jetty.http.UriCompliance;
 import org.eclipse.jetty.util.HostPort;
 import org.eclipse.jetty.util.Index;
@@ -58,6 +59,7 @@ public class HttpConfiguration implements Dumpable
     private int _responseHeaderSize = 8 * 1024;
     private int _headerCacheSize = 1024;
     private boolean _headerCacheCaseSensitive = false;
+    private LearnedFieldCache _learnedFieldCache;
     private int _securePort;
     private long _idleTimeout = -1;
     private String _secureScheme = HttpScheme.HTTPS.asString();
@@ -131,6 +133,7 @@ public class HttpConfiguration implements Dumpable
         _responseHeaderSize = config._responseHeaderSize;
         _headerCacheSize = config._headerCacheSize;
         _headerCacheCaseSensitive = config._headerCacheCaseSensitive;
+        _learnedFieldCache = config._learnedFieldCache;
         _secureScheme = config._secureScheme;
         _securePort = config._securePort;
         _idleTimeout = config._idleTimeout;
@@ -218,6 +221,12 @@ public class HttpConfiguration implements Dumpable
         return _headerCacheCaseSensitive;
     }
 
+    @ManagedAttribute("The header field cache shared by all connections")
+    public LearnedFieldCache getLearnedFieldCache()
+    {
+        return _learnedFieldCache;
+    }
+
     @ManagedAttribute("The port to which Integral or Confidential security constraints are redirected")
     public int getSecurePort()
     {
@@ -445,6 +454,29 @@ public class HttpConfiguration implements Dumpable
         this._headerCacheCaseSensitive = headerCacheCaseSensitive;
     }
 
+    /**
+     * <p>Sets the header field cache shared by the connections using this configuration.</p>
+     * <p>The cache learns frequently received header fields, so that they are parsed without
+     * allocation also by connections that carry only a few requests.</p>
+     *
+     * @param learnedFieldCache the shared header field cache, or null for no shared cache
+     * @see #setLearnedFieldCacheSize(int)
+     */
+    public void setLearnedFieldCache(LearnedFieldCache learnedFieldCache)
+    {
+        _learnedFieldCache = learnedFieldCache;
+    }
+
+    /**
+     * @param maxFields the maximum number of fields in a new shared header field cache,
+     * or 0 for no shared cache
+     * @see #setLearnedFieldCache(LearnedFieldCache)
+     */
+    public void setLearnedFieldCacheSize(int maxFields)
+    {
+        setLearnedFieldCache(maxFields > 0 ? new LearnedFieldCache(maxFields) : null);
+    }
+
     /**
      * <p>Sets the TCP/IP port used for CONFIDENTIAL and INTEGRAL redirections.</p>
      *
@@ -755,6 +787,7 @@ public class HttpConfiguration implements Dumpable
             "requestHeaderSize=" + _requestHeaderSize,
             "responseHeaderSize=" + _responseHeaderSize,
             "headerCacheSize=" + _headerCacheSize,
+            "learnedFieldCache=" + _learnedFieldCache,
             "secureScheme=" + _secureScheme,
             "securePort=" + _securePort,
             "idleTimeout=" + _idleTimeout,
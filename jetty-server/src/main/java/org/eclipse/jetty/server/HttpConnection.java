@@ -119,7 +119,8 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
 
     protected HttpGenerator newHttpGenerator()
     {
-        return new HttpGenerator(_config.getSendServerVersion(), _config.getSendXPoweredBy());
+        HttpGenerator.EncodedFieldsCache encodedFieldsCache = HttpGenerator.__HEADER_CACHE_SIZE > 0 ? new HttpGenerator.EncodedFieldsCache() : null;
+        return new HttpGenerator(_config.getSendServerVersion(), _config.getSendXPoweredBy(), encodedFieldsCache);
     }
 
     protected HttpChannelOverHttp newHttpChannel()
@@ -132,6 +133,7 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
         HttpParser parser = new HttpParser(newRequestHandler(), getHttpConfiguration().getRequestHeaderSize(), compliance);
         parser.setHeaderCacheSize(getHttpConfiguration().getHeaderCacheSize());
         parser.setHeaderCacheCaseSensitive(getHttpConfiguration().isHeaderCacheCaseSensitive());
+        parser.setLearnedFieldCache(getHttpConfiguration().getLearnedFieldCache());
         return parser;
     }
 
@@ -42,6 +42,20 @@ public interface RequestLog
     interface Writer
     {
         void write(String requestEntry) throws IOException;
+
+        /**
+         * <p>Writes a log entry that is only valid for the duration of the call.</p>
+         * <p>Implementations that can encode the characters directly should override this
+         * method, so that no {@code String} is created for each entry; implementations
+         * that retain the entry must copy it.</p>
+         *
+         * @param requestEntry the log entry, which may be reused after this method returns
+         * @throws IOException if the entry cannot be written
+         */
+        default void write(CharSequence requestEntry) throws IOException
+        {
+            write(requestEntry.toString());
+        }
     }
 
     class Collection implements RequestLog
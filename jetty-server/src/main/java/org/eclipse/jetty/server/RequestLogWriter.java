@@ -15,8 +15,9 @@ package org.eclipse.jetty.server;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.TimeZone;
 
 import org.eclipse.jetty.util.RolloverFileOutputStream;
@@ -34,6 +35,8 @@ import org.slf4j.LoggerFactory;
 public class RequestLogWriter extends AbstractLifeCycle implements RequestLog.Writer
 {
     private static final Logger LOG = LoggerFactory.getLogger(RequestLogWriter.class);
+    private static final int BUFFER_SIZE = 1024;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
 
     private final AutoLock _lock = new AutoLock();
     private String _filename;
@@ -44,7 +47,10 @@ public class RequestLogWriter extends AbstractLifeCycle implements RequestLog.Wr
     private String _filenameDateFormat = null;
     private transient OutputStream _out;
     private transient OutputStream _fileOut;
-    private transient Writer _writer;
+    private final Charset _charset = Charset.defaultCharset();
+    private final boolean _asciiCompatible = _charset == StandardCharsets.UTF_8 || _charset == StandardCharsets.ISO_8859_1 || _charset == StandardCharsets.US_ASCII;
+    private final byte[] _lineSeparator = System.lineSeparator().getBytes(_charset);
+    private byte[] _bytes = new byte[BUFFER_SIZE];
 
     public RequestLogWriter()
     {
@@ -171,15 +177,108 @@ public class RequestLogWriter extends AbstractLifeCycle implements RequestLog.Wr
 
     @Override
     public void write(String requestEntry) throws IOException
+    {
+        writeEntry(requestEntry);
+    }
+
+    /**
+     * <p>Writes the entry without creating a {@code String}.</p>
+     * <p>The entry of a subclass is passed to {@link #write(String)}, which it may
+     * override, unless the subclass overrides this method to call {@link #writeEntry(CharSequence)}.</p>
+     */
+    @Override
+    public void write(CharSequence requestEntry) throws IOException
+    {
+        if (getClass() == RequestLogWriter.class)
+            writeEntry(requestEntry);
+        else
+            write(requestEntry.toString());
+    }
+
+    /**
+     * Encodes and writes an entry, and a line separator, without creating a {@code String}.
+     *
+     * @param requestEntry the log entry, which may be reused after this method returns
+     * @throws IOException if the entry cannot be written
+     */
+    protected void writeEntry(CharSequence requestEntry) throws IOException
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            if (_out == null)
+                return;
+            int length = encode(requestEntry, 0);
+            _out.write(_bytes, 0, length);
+            _out.flush();
+            trimBuffer();
+        }
+    }
+
+    /**
+     * Writes several log entries with a single write to the output.
+     *
+     * @param requestEntries the log entries
+     * @param count the number of entries to write, from the start of the array
+     * @throws IOException if the entries cannot be written
+     */
+    protected void write(CharSequence[] requestEntries, int count) throws IOException
     {
         try (AutoLock l = _lock.lock())
         {
-            if (_writer == null)
+            if (_out == null)
                 return;
-            _writer.write(requestEntry);
-            _writer.write(System.lineSeparator());
-            _writer.flush();
+            int length = 0;
+            for (int i = 0; i < count; i++)
+            {
+                length = encode(requestEntries[i], length);
+            }
+            _out.write(_bytes, 0, length);
+            _out.flush();
+            trimBuffer();
+        }
+    }
+
+    /**
+     * Encode an entry and a line separator into the reusable byte array,
+     * copying ASCII characters directly as most entries only contain those.
+     *
+     * @param requestEntry the entry to encode
+     * @param offset the offset in the byte array to encode at
+     * @return the offset after the bytes encoded
+     */
+    private int encode(CharSequence requestEntry, int offset)
+    {
+        int length = requestEntry.length();
+        ensureCapacity(offset + length + _lineSeparator.length);
+        int count = offset;
+        for (int i = 0; i < length; i++)
+        {
+            char c = requestEntry.charAt(i);
+            if (c >= 0x80 || !_asciiCompatible)
+            {
+                byte[] encoded = requestEntry.subSequence(i, length).toString().getBytes(_charset);
+                ensureCapacity(count + encoded.length + _lineSeparator.length);
+                System.arraycopy(encoded, 0, _bytes, count, encoded.length);
+                count += encoded.length;
+                break;
+            }
+            _bytes[count++] = (byte)c;
         }
+        System.arraycopy(_lineSeparator, 0, _bytes, count, _lineSeparator.length);
+        return count + _lineSeparator.length;
+    }
+
+    private void trimBuffer()
+    {
+        // Don't retain the array grown for unusually long entries
+        if (_bytes.length > MAX_RETAINED_BUFFER_SIZE)
+            _bytes = new byte[BUFFER_SIZE];
+    }
+
+    private void ensureCapacity(int capacity)
+    {
+        if (_bytes.length < capacity)
+            _bytes = Arrays.copyOf(_bytes, Math.max(capacity, _bytes.length * 2));
     }
 
     @Override
@@ -198,7 +297,6 @@ public class RequestLogWriter extends AbstractLifeCycle implements RequestLog.Wr
                 _fileOut = System.err;
             }
             _out = _fileOut;
-            _writer = new OutputStreamWriter(_out);
             super.doStart();
         }
     }
@@ -222,8 +320,8 @@ public class RequestLogWriter extends AbstractLifeCycle implements RequestLog.Wr
             super.doStop();
             try
             {
-                if (_writer != null)
-                    _writer.flush();
+                if (_out != null)
+                    _out.flush();
             }
             catch (IOException e)
             {
@@ -244,7 +342,6 @@ public class RequestLogWriter extends AbstractLifeCycle implements RequestLog.Wr
             _out = null;
             _fileOut = null;
             _closeOut = false;
-            _writer = null;
         }
     }
 }
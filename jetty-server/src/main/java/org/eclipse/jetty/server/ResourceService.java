@@ -286,10 +286,19 @@ public class ResourceService
                     HttpContent precompressedContent = precompressedContents.get(precompressedContentEncoding);
                     if (LOG.isDebugEnabled())
                         LOG.debug("precompressed={}", precompressedContent);
+                    if (precompressedContent instanceof CachedContentFactory.CachedCompressedHttpContent)
+                        ((CachedContentFactory.CachedCompressedHttpContent)precompressedContent).onServed();
                     content = precompressedContent;
                     response.setHeader(HttpHeader.CONTENT_ENCODING.asString(), precompressedContentEncoding.getEncoding());
                 }
             }
+            else if (checkPrecompressedVariants && content instanceof CachedContentFactory.CachedHttpContent &&
+                getBestPrecompressedContent(getPreferredEncodingOrder(request), List.of(CompressedContentFormat.GZIP)) != null)
+            {
+                // Generate a compressed variant for later requests, as this client accepts it.
+                if (((CachedContentFactory.CachedHttpContent)content).startCompressedVariant())
+                    response.addHeader(HttpHeader.VARY.asString(), HttpHeader.ACCEPT_ENCODING.asString());
+            }
 
             // TODO this should be done by HttpContent#getContentEncoding
             if (isGzippedContent(pathInContext))
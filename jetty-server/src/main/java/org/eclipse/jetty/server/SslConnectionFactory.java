@@ -66,11 +66,24 @@ public class SslConnectionFactory extends AbstractConnectionFactory implements C
         return _sslContextFactory;
     }
 
+    /**
+     * <p>Sets whether the encrypted buffers written to the network are direct.</p>
+     * <p>Native TLS providers (for example Conscrypt) encrypt from and into native
+     * memory, so direct buffers avoid a copy for every TLS record.</p>
+     *
+     * @param useDirectBuffers whether to use direct buffers for encrypted output
+     */
     public void setDirectBuffersForEncryption(boolean useDirectBuffers)
     {
         this._directBuffersForEncryption = useDirectBuffers;
     }
 
+    /**
+     * <p>Sets whether the encrypted buffers read from the network are direct.</p>
+     *
+     * @param useDirectBuffers whether to use direct buffers for encrypted input
+     * @see #setDirectBuffersForEncryption(boolean)
+     */
     public void setDirectBuffersForDecryption(boolean useDirectBuffers)
     {
         this._directBuffersForDecryption = useDirectBuffers;
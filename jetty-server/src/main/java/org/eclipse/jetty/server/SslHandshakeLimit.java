@@ -0,0 +1,364 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.net.ssl.SSLEngine;
+
+import org.eclipse.jetty.io.Connection;
+import org.eclipse.jetty.io.ssl.SslConnection;
+import org.eclipse.jetty.io.ssl.SslHandshakeListener;
+import org.eclipse.jetty.util.NanoTime;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.annotation.Name;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.statistic.SampleStatistic;
+import org.eclipse.jetty.util.thread.AutoLock;
+import org.eclipse.jetty.util.thread.Scheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>A Listener that limits the number of concurrent TLS handshakes.</p>
+ * <p>TLS handshakes are CPU intensive, and a storm of new TLS connections (for example
+ * after a load balancer failover) may starve the traffic of established connections.
+ * This listener tracks the TLS handshakes in progress and, when they reach the
+ * {@link #getMaxHandshakes() maximum}, calls {@link AbstractConnector#setAccepting(boolean)}
+ * to stop accepting new connections until the pending handshakes complete.
+ * Established connections are not affected and continue to be served.</p>
+ * <p>As a handshake is counted from the opening of the connection, a client that opens
+ * connections without sending TLS records could hold the slots and prevent new connections.
+ * Handshakes that do not complete within the {@link #getHandshakeTimeout() handshake timeout}
+ * are therefore abandoned: their slot is freed and their connection is closed.</p>
+ * <p>The latency of TLS handshakes is also recorded and exposed via JMX.</p>
+ * <p>
+ * <b>Usage:</b>
+ * </p>
+ * <pre>
+ *   Server server = new Server();
+ *   server.addBean(new SslHandshakeLimit(256, server));
+ *   ...
+ *   server.start();
+ * </pre>
+ *
+ * @see ConnectionLimit
+ * @see SslHandshakeListener
+ */
+@ManagedObject
+public class SslHandshakeLimit extends AbstractLifeCycle implements Connection.Listener, SslHandshakeListener
+{
+    private static final Logger LOG = LoggerFactory.getLogger(SslHandshakeLimit.class);
+
+    private final AutoLock _lock = new AutoLock();
+    private final Server _server;
+    private final List<AbstractConnector> _connectors = new ArrayList<>();
+    private final Map<SSLEngine, Handshake> _handshakes = new HashMap<>();
+    private final SampleStatistic _handshakeLatency = new SampleStatistic();
+    private final LongAdder _limited = new LongAdder();
+    private final LongAdder _timedOut = new LongAdder();
+    private int _maxHandshakes;
+    private long _handshakeTimeout = 10000;
+    private Scheduler _scheduler;
+    private boolean _limiting = false;
+
+    public SslHandshakeLimit(@Name("maxHandshakes") int maxHandshakes, @Name("server") Server server)
+    {
+        _maxHandshakes = maxHandshakes;
+        _server = server;
+    }
+
+    public SslHandshakeLimit(@Name("maxHandshakes") int maxHandshakes, @Name("connectors") Connector... connectors)
+    {
+        this(maxHandshakes, (Server)null);
+        for (Connector c : connectors)
+        {
+            if (c instanceof AbstractConnector)
+                _connectors.add((AbstractConnector)c);
+            else
+                LOG.warn("Connector {} is not an AbstractConnector. Handshakes not limited", c);
+        }
+    }
+
+    @ManagedAttribute("The maximum number of concurrent TLS handshakes")
+    public int getMaxHandshakes()
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            return _maxHandshakes;
+        }
+    }
+
+    public void setMaxHandshakes(int max)
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            _maxHandshakes = max;
+            check();
+        }
+    }
+
+    @ManagedAttribute("The timeout in ms of TLS handshakes, after which the connection is closed")
+    public long getHandshakeTimeout()
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            return _handshakeTimeout;
+        }
+    }
+
+    /**
+     * @param handshakeTimeout the timeout in ms after which a TLS handshake in progress frees
+     * its slot and its connection is closed, or a non-positive value for no timeout
+     */
+    public void setHandshakeTimeout(long handshakeTimeout)
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            _handshakeTimeout = handshakeTimeout;
+        }
+    }
+
+    @ManagedAttribute("The current number of TLS handshakes in progress")
+    public int getHandshakes()
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            return _handshakes.size();
+        }
+    }
+
+    @ManagedAttribute("Whether new connections are not accepted because of pending TLS handshakes")
+    public boolean isLimiting()
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            return _limiting;
+        }
+    }
+
+    @ManagedAttribute("The number of times the TLS handshake limit was reached")
+    public long getLimited()
+    {
+        return _limited.sum();
+    }
+
+    @ManagedAttribute("The number of TLS handshakes that timed out")
+    public long getHandshakesTimedOut()
+    {
+        return _timedOut.sum();
+    }
+
+    @ManagedAttribute("The maximum TLS handshake latency in ms")
+    public long getHandshakeLatencyMax()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(_handshakeLatency.getMax());
+    }
+
+    @ManagedAttribute("The mean TLS handshake latency in ms")
+    public double getHandshakeLatencyMean()
+    {
+        return _handshakeLatency.getMean() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @ManagedAttribute("The number of TLS handshakes recorded")
+    public long getHandshakesRecorded()
+    {
+        return _handshakeLatency.getCount();
+    }
+
+    @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
+    public void resetStatistics()
+    {
+        _handshakeLatency.reset();
+        _limited.reset();
+        _timedOut.reset();
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            if (_server != null)
+            {
+                for (Connector c : _server.getConnectors())
+                {
+                    if (c instanceof AbstractConnector)
+                        _connectors.add((AbstractConnector)c);
+                    else
+                        LOG.warn("Connector {} is not an AbstractConnector. Handshakes not limited", c);
+                }
+            }
+            if (LOG.isDebugEnabled())
+                LOG.debug("SslHandshakeLimit {} for {}", _maxHandshakes, _connectors);
+            _handshakes.clear();
+            _limiting = false;
+            for (AbstractConnector c : _connectors)
+            {
+                c.addBean(this);
+            }
+            _scheduler = _connectors.isEmpty() ? null : _connectors.get(0).getScheduler();
+        }
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            for (AbstractConnector c : _connectors)
+            {
+                c.removeBean(this);
+            }
+            _handshakes.values().forEach(Handshake::cancel);
+            _handshakes.clear();
+            _scheduler = null;
+            if (_server != null)
+                _connectors.clear();
+        }
+    }
+
+    protected void check()
+    {
+        if (_handshakes.size() >= _maxHandshakes)
+        {
+            if (!_limiting)
+            {
+                _limiting = true;
+                _limited.increment();
+                LOG.info("TLS Handshake Limit({}) reached for {}", _maxHandshakes, _connectors);
+                limit();
+            }
+        }
+        else
+        {
+            if (_limiting)
+            {
+                _limiting = false;
+                LOG.info("TLS Handshake Limit({}) cleared for {}", _maxHandshakes, _connectors);
+                unlimit();
+            }
+        }
+    }
+
+    protected void limit()
+    {
+        for (AbstractConnector c : _connectors)
+        {
+            c.setAccepting(false);
+        }
+    }
+
+    protected void unlimit()
+    {
+        for (AbstractConnector c : _connectors)
+        {
+            c.setAccepting(true);
+        }
+    }
+
+    @Override
+    public void onOpened(Connection connection)
+    {
+        if (!(connection instanceof SslConnection))
+            return;
+        try (AutoLock l = _lock.lock())
+        {
+            SSLEngine sslEngine = ((SslConnection)connection).getSSLEngine();
+            Handshake handshake = new Handshake(connection);
+            _handshakes.put(sslEngine, handshake);
+            if (_handshakeTimeout > 0 && _scheduler != null)
+                handshake._task = _scheduler.schedule(() -> expire(sslEngine, handshake), _handshakeTimeout, TimeUnit.MILLISECONDS);
+            if (LOG.isDebugEnabled())
+                LOG.debug("onOpened {} < {} {}", _handshakes.size(), _maxHandshakes, connection);
+            check();
+        }
+    }
+
+    @Override
+    public void onClosed(Connection connection)
+    {
+        if (!(connection instanceof SslConnection))
+            return;
+        // The connection may be closed before the handshake completes.
+        complete(((SslConnection)connection).getSSLEngine(), false);
+    }
+
+    @Override
+    public void handshakeSucceeded(Event event)
+    {
+        complete(event.getSSLEngine(), true);
+    }
+
+    @Override
+    public void handshakeFailed(Event event, Throwable failure)
+    {
+        complete(event.getSSLEngine(), false);
+    }
+
+    private void complete(SSLEngine sslEngine, boolean succeeded)
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            Handshake handshake = _handshakes.remove(sslEngine);
+            if (handshake == null)
+                return;
+            handshake.cancel();
+            if (succeeded)
+                _handshakeLatency.record(NanoTime.since(handshake._start));
+            if (LOG.isDebugEnabled())
+                LOG.debug("handshake {} {} < {} {}", succeeded ? "succeeded" : "failed", _handshakes.size(), _maxHandshakes, sslEngine);
+            check();
+        }
+    }
+
+    private void expire(SSLEngine sslEngine, Handshake handshake)
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            if (!_handshakes.remove(sslEngine, handshake))
+                return;
+            _timedOut.increment();
+            if (LOG.isDebugEnabled())
+                LOG.debug("handshake timed out {} < {} {}", _handshakes.size(), _maxHandshakes, sslEngine);
+            check();
+        }
+        handshake._connection.close();
+    }
+
+    private static class Handshake
+    {
+        private final long _start = NanoTime.now();
+        private final Connection _connection;
+        private Scheduler.Task _task;
+
+        private Handshake(Connection connection)
+        {
+            _connection = connection;
+        }
+
+        private void cancel()
+        {
+            if (_task != null)
+                _task.cancel();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server.handler.gzip;
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.jetty.http.CompressedContentFormat;
+import org.eclipse.jetty.server.HttpInput;
+import org.eclipse.jetty.server.Request;
+
+/**
+ * <p>A content-coding that {@link GzipHandler} can negotiate, besides the built-in gzip,
+ * to encode responses and to decode requests.</p>
+ * <p>Content-codings are registered with {@link GzipHandler#addContentCoding(ContentCoding)},
+ * and are selected per request with the qualities of the {@code Accept-Encoding} header,
+ * or with the last coding of the {@code Content-Encoding} header for requests.
+ * Implementations that pool native encoder contexts may implement
+ * {@link org.eclipse.jetty.util.component.LifeCycle}, as they are managed by the handler.</p>
+ */
+public interface ContentCoding
+{
+    /**
+     * @return the format of this content-coding, which provides the coding token
+     * and the suffix added to entity tags
+     */
+    CompressedContentFormat getFormat();
+
+    /**
+     * @param request the request the response is encoded for
+     * @return a new encoder, or null if the response cannot be encoded
+     */
+    Encoder newEncoder(Request request);
+
+    /**
+     * @param request the request with content encoded with this coding
+     * @param bufferSize the size of the buffers of decoded content
+     * @return an interceptor that decodes the request content, or null if decoding is not supported
+     */
+    default HttpInput.Interceptor newInputInterceptor(Request request, int bufferSize)
+    {
+        return null;
+    }
+
+    /**
+     * <p>A stateful encoder of the content of one response.</p>
+     * <p>The encoder is used like a {@link java.util.zip.Deflater}: input is set,
+     * then {@link #encode(ByteBuffer, boolean)} is called until the encoder
+     * {@link #needsInput() needs input} or, after {@link #finish()}, is {@link #finished()}.</p>
+     */
+    interface Encoder
+    {
+        /**
+         * @return the format of the encoded content
+         */
+        CompressedContentFormat getFormat();
+
+        /**
+         * @param input the content to encode, consumed by subsequent calls to {@link #encode(ByteBuffer, boolean)}
+         */
+        void setInput(ByteBuffer input);
+
+        /**
+         * Indicates that the current input is the last content to encode.
+         */
+        void finish();
+
+        /**
+         * @return whether all the input has been consumed
+         */
+        boolean needsInput();
+
+        /**
+         * @return whether all the encoded content, including any trailer, has been produced
+         */
+        boolean finished();
+
+        /**
+         * @param output the buffer, in flush mode, to append encoded content to
+         * @param flush whether all the input consumed so far should be flushed to the output
+         */
+        void encode(ByteBuffer output, boolean flush);
+
+        /**
+         * @return the number of input bytes consumed
+         */
+        long getBytesRead();
+
+        /**
+         * @return the number of encoded bytes produced
+         */
+        long getBytesWritten();
+
+        /**
+         * Releases the resources of this encoder, which must not be used afterwards.
+         */
+        void release();
+    }
+}
@@ -0,0 +1,122 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server.handler.gzip;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.eclipse.jetty.http.CompressedContentFormat;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.compression.DeflaterPool;
+
+/**
+ * A {@link ContentCoding.Encoder} for the gzip content-coding, using a pooled {@link Deflater}.
+ */
+public class GzipEncoder implements ContentCoding.Encoder
+{
+    private static final byte[] GZIP_HEADER = new byte[]{(byte)0x1f, (byte)0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+    private static final int GZIP_TRAILER_LENGTH = 8;
+
+    private final CRC32 _crc = new CRC32();
+    private final DeflaterPool.Entry _deflaterEntry;
+    private boolean _header;
+    private boolean _trailer;
+
+    public GzipEncoder(DeflaterPool.Entry deflaterEntry)
+    {
+        _deflaterEntry = deflaterEntry;
+    }
+
+    @Override
+    public CompressedContentFormat getFormat()
+    {
+        return CompressedContentFormat.GZIP;
+    }
+
+    @Override
+    public void setInput(ByteBuffer input)
+    {
+        _crc.update(input.slice());
+        _deflaterEntry.get().setInput(input);
+    }
+
+    @Override
+    public void finish()
+    {
+        _deflaterEntry.get().finish();
+    }
+
+    @Override
+    public boolean needsInput()
+    {
+        Deflater deflater = _deflaterEntry.get();
+        return !deflater.finished() && deflater.needsInput();
+    }
+
+    @Override
+    public boolean finished()
+    {
+        return _trailer;
+    }
+
+    @Override
+    public void encode(ByteBuffer output, boolean flush)
+    {
+        if (!_header)
+        {
+            BufferUtil.append(output, GZIP_HEADER, 0, GZIP_HEADER.length);
+            _header = true;
+        }
+
+        Deflater deflater = _deflaterEntry.get();
+        if (!deflater.finished())
+        {
+            int pos = BufferUtil.flipToFill(output);
+            deflater.deflate(output, flush ? Deflater.SYNC_FLUSH : Deflater.NO_FLUSH);
+            BufferUtil.flipToFlush(output, pos);
+        }
+
+        if (deflater.finished() && !_trailer && BufferUtil.space(output) >= GZIP_TRAILER_LENGTH)
+        {
+            BufferUtil.putIntLittleEndian(output, (int)_crc.getValue());
+            BufferUtil.putIntLittleEndian(output, deflater.getTotalIn());
+            _trailer = true;
+        }
+    }
+
+    @Override
+    public long getBytesRead()
+    {
+        return _deflaterEntry.get().getBytesRead();
+    }
+
+    @Override
+    public long getBytesWritten()
+    {
+        return GZIP_HEADER.length + _deflaterEntry.get().getBytesWritten() + (_trailer ? GZIP_TRAILER_LENGTH : 0);
+    }
+
+    @Override
+    public void release()
+    {
+        _deflaterEntry.release();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{%s,finished=%b}", getClass().getSimpleName(), hashCode(), _deflaterEntry, _trailer);
+    }
+}
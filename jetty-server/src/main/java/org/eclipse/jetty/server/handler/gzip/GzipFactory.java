@@ -13,6 +13,8 @@
 
 package org.eclipse.jetty.server.handler.gzip;
 
+import java.nio.ByteBuffer;
+
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.util.compression.DeflaterPool;
 
@@ -20,5 +22,40 @@ public interface GzipFactory
 {
     DeflaterPool.Entry getDeflaterEntry(Request request, long contentLength);
 
+    /**
+     * <p>Negotiates the content-coding of a response and returns its encoder.</p>
+     * <p>The default implementation encodes with gzip using {@link #getDeflaterEntry(Request, long)}.</p>
+     *
+     * @param request the request
+     * @param contentLength the length of the response content, or -1 if not known
+     * @return the encoder of the response content, or null if the response should not be encoded
+     */
+    default ContentCoding.Encoder getEncoder(Request request, long contentLength)
+    {
+        DeflaterPool.Entry entry = getDeflaterEntry(request, contentLength);
+        return entry == null ? null : new GzipEncoder(entry);
+    }
+
     boolean isMimeTypeGzipable(String mimetype);
+
+    /**
+     * @param content the first content of the response
+     * @return whether the content is worth compressing
+     */
+    default boolean isContentCompressible(ByteBuffer content)
+    {
+        return true;
+    }
+
+    /**
+     * Notification that a response has been compressed.
+     *
+     * @param mimeType the mime type of the response, or null if not known
+     * @param inputBytes the number of bytes before compression
+     * @param outputBytes the number of compressed bytes
+     * @param nanos the time in nanoseconds spent compressing
+     */
+    default void onCompressed(String mimeType, long inputBytes, long outputBytes, long nanos)
+    {
+    }
 }
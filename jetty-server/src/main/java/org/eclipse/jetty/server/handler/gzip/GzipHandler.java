@@ -14,10 +14,21 @@
 package org.eclipse.jetty.server.handler.gzip;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.zip.Deflater;
@@ -35,16 +46,24 @@ import org.eclipse.jetty.http.HttpMethod;
 import org.eclipse.jetty.http.MimeTypes;
 import org.eclipse.jetty.http.PreEncodedHttpField;
 import org.eclipse.jetty.http.pathmap.PathSpecSet;
+import org.eclipse.jetty.server.HttpChannel;
+import org.eclipse.jetty.server.HttpInput;
 import org.eclipse.jetty.server.HttpOutput;
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.handler.HandlerWrapper;
 import org.eclipse.jetty.util.AsciiLowerCaseSet;
 import org.eclipse.jetty.util.IncludeExclude;
+import org.eclipse.jetty.util.NanoTime;
 import org.eclipse.jetty.util.StringUtil;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
 import org.eclipse.jetty.util.compression.CompressionPool;
 import org.eclipse.jetty.util.compression.DeflaterPool;
 import org.eclipse.jetty.util.compression.InflaterPool;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -67,12 +86,18 @@ import org.slf4j.LoggerFactory;
  * {@link HttpServletRequest#getInputStream()} or {@link HttpServletRequest#getReader()}.
  * </p>
  * <p>
+ * Other content-codings, such as Brotli or Zstandard, can be plugged in with
+ * {@link #addContentCoding(ContentCoding)}. They are then used to decode requests whose last
+ * {@code Content-Encoding} is their coding, and to encode responses when the qualities of the
+ * {@code Accept-Encoding} header make them preferred over gzip.
+ * </p>
+ * <p>
  * Response compression has a number of checks before GzipHandler will perform compression.
  * </p>
  * <ol>
  * <li>
  * Does the request contain a {@code Accept-Encoding} header that specifies
- * {@code gzip} value?
+ * {@code gzip}, or a registered content-coding, or the {@code *} wildcard, with a non-zero quality?
  * </li>
  * <li>
  * Is the {@link HttpServletRequest#getMethod()} allowed by the configured HTTP Method Filter.
@@ -146,7 +171,17 @@ import org.slf4j.LoggerFactory;
  * Since the introduction of Async I/O in Servlet 3.1, this older form of Gzip support
  * in web applications has been problematic and bug ridden.
  * </p>
+ * <p>
+ * Compression can adapt to the server load: when the utilization of the server
+ * {@link QueuedThreadPool}, or optionally the {@link #setSystemLoad(boolean) system load average}, reaches the {@link #setHighLoadUtilization(double) high load utilization},
+ * responses are compressed with the {@link #setHighLoadCompressionLevel(int) high load compression level},
+ * and when it reaches the {@link #setOverloadUtilization(double) overload utilization} responses are
+ * not compressed at all. If an {@link #setEntropyThreshold(double) entropy threshold} is set, the first
+ * content of a response is sampled and not compressed if it appears to be already compressed.
+ * Compression ratios and times per mime type are available via JMX.
+ * </p>
  */
+@ManagedObject("Gzip Handler")
 public class GzipHandler extends HandlerWrapper implements GzipFactory
 {
     public static final EnumSet<HttpHeader> ETAG_HEADERS = EnumSet.of(HttpHeader.IF_MATCH, HttpHeader.IF_NONE_MATCH);
@@ -155,9 +190,12 @@ public class GzipHandler extends HandlerWrapper implements GzipFactory
     public static final String DEFLATE = "deflate";
     public static final int DEFAULT_MIN_GZIP_SIZE = 32;
     public static final int BREAK_EVEN_GZIP_SIZE = 23;
+    private static final int ENTROPY_SAMPLE_SIZE = 1024;
+    private static final int MAX_STATISTICS_MIME_TYPES = 64;
+    private static final String OTHER_MIME_TYPES = "other";
+    private static final long SYSTEM_LOAD_SAMPLE_NANOS = TimeUnit.SECONDS.toNanos(1);
     private static final Logger LOG = LoggerFactory.getLogger(GzipHandler.class);
     private static final HttpField X_CE_GZIP = new PreEncodedHttpField("X-Content-Encoding", "gzip");
-    private static final Pattern COMMA_GZIP = Pattern.compile(".*, *gzip");
 
     private InflaterPool _inflaterPool;
     private DeflaterPool _deflaterPool;
@@ -171,6 +209,19 @@ public class GzipHandler extends HandlerWrapper implements GzipFactory
     private final IncludeExclude<String> _inflatePaths = new IncludeExclude<>(PathSpecSet.class);
     private final IncludeExclude<String> _mimeTypes = new IncludeExclude<>(AsciiLowerCaseSet.class);
     private HttpField _vary = GzipHttpOutputInterceptor.VARY_ACCEPT_ENCODING;
+    private double _highLoadUtilization = -1;
+    private int _highLoadCompressionLevel = Deflater.BEST_SPEED;
+    private double _overloadUtilization = -1;
+    private double _entropyThreshold = -1;
+    private boolean _systemLoad;
+    private volatile double _systemLoadSample;
+    private volatile long _systemLoadSampleNanoTime = NanoTime.now() - SYSTEM_LOAD_SAMPLE_NANOS;
+    private final LongAdder _overloadBypassed = new LongAdder();
+    private final LongAdder _highLoadCompressed = new LongAdder();
+    private final LongAdder _incompressible = new LongAdder();
+    private final ConcurrentMap<String, CompressionStatistics> _statistics = new ConcurrentHashMap<>();
+    private final ContentCoding _gzipCoding = new GzipCoding();
+    private final List<ContentCoding> _contentCodings = new CopyOnWriteArrayList<>();
 
     /**
      * Instantiates a new GzipHandler.
@@ -518,13 +569,476 @@ public class GzipHandler extends HandlerWrapper implements GzipFactory
         }
 
         // check the accept encoding header
-        if (!request.getHttpFields().contains(HttpHeader.ACCEPT_ENCODING, "gzip"))
+        if (!isGzipAccepted(request.getHttpFields()))
         {
             LOG.debug("{} excluded not gzip accept {}", this, request);
             return null;
         }
 
-        return _deflaterPool.acquire();
+        if (isOverloaded(request))
+            return null;
+
+        return acquireDeflaterEntry();
+    }
+
+    @Override
+    public ContentCoding.Encoder getEncoder(Request request, long contentLength)
+    {
+        if (contentLength >= 0 && contentLength < _minGzipSize)
+        {
+            LOG.debug("{} excluded minGzipSize {}", this, request);
+            return null;
+        }
+
+        // negotiate the content-coding with the accept encoding header
+        ContentCoding coding = getAcceptedContentCoding(request.getHttpFields());
+        if (coding == null)
+        {
+            LOG.debug("{} excluded no accepted content-coding {}", this, request);
+            return null;
+        }
+
+        // gzip checks the load when acquiring the deflater.
+        if (coding != _gzipCoding && isOverloaded(request))
+            return null;
+
+        return coding.newEncoder(request);
+    }
+
+    private boolean isOverloaded(Request request)
+    {
+        if (_overloadUtilization < 0)
+            return false;
+        double utilization = getLoad();
+        if (utilization < _overloadUtilization)
+            return false;
+        LOG.debug("{} excluded overload {} {}", this, utilization, request);
+        _overloadBypassed.increment();
+        return true;
+    }
+
+    private DeflaterPool.Entry acquireDeflaterEntry()
+    {
+        DeflaterPool.Entry entry = _deflaterPool.acquire();
+        if (_highLoadUtilization >= 0 && getLoad() >= _highLoadUtilization)
+        {
+            // The level is restored when the entry is released to the pool.
+            entry.get().setLevel(_highLoadCompressionLevel);
+            _highLoadCompressed.increment();
+        }
+        return entry;
+    }
+
+    /**
+     * @return the load compared to the high load and overload utilizations, which is the
+     * {@link #getThreadPoolUtilization() thread pool utilization} or, if {@link #isSystemLoad()}
+     * and greater, the {@link #getSystemLoad() system load}
+     */
+    protected double getLoad()
+    {
+        double load = getThreadPoolUtilization();
+        if (_systemLoad)
+            load = Math.max(load, getSystemLoad());
+        return load;
+    }
+
+    /**
+     * <p>The system load average over the last minute per available processor,
+     * sampled at most once per second.</p>
+     *
+     * @return the system load average per processor, or 0 if not known
+     */
+    protected double getSystemLoad()
+    {
+        long now = NanoTime.now();
+        if (NanoTime.elapsed(_systemLoadSampleNanoTime, now) < SYSTEM_LOAD_SAMPLE_NANOS)
+            return _systemLoadSample;
+        _systemLoadSampleNanoTime = now;
+        double load = 0;
+        try
+        {
+            OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+            double average = os.getSystemLoadAverage();
+            if (average >= 0)
+                load = average / os.getAvailableProcessors();
+        }
+        catch (Throwable x)
+        {
+            // The java.management module may not be available.
+            LOG.trace("IGNORED", x);
+        }
+        _systemLoadSample = load;
+        return load;
+    }
+
+    /**
+     * @return the utilization of the server thread pool, between 0 and 1, or 0 if not known
+     */
+    protected double getThreadPoolUtilization()
+    {
+        Server server = getServer();
+        ThreadPool threadPool = server == null ? null : server.getThreadPool();
+        if (threadPool instanceof QueuedThreadPool)
+            return ((QueuedThreadPool)threadPool).getUtilizationRate();
+        return 0;
+    }
+
+    @Override
+    public boolean isContentCompressible(ByteBuffer content)
+    {
+        // Small samples underestimate the entropy, so only full samples are tested.
+        if (_entropyThreshold < 0 || content == null || content.remaining() < ENTROPY_SAMPLE_SIZE)
+            return true;
+        if (entropy(content, ENTROPY_SAMPLE_SIZE) < _entropyThreshold)
+            return true;
+        _incompressible.increment();
+        return false;
+    }
+
+    /**
+     * @param buffer the buffer to sample
+     * @param sampleSize the maximum number of bytes to sample
+     * @return the Shannon entropy in bits per byte of the first bytes of the buffer,
+     * estimated with the Miller-Madow correction for the bias of the sample size
+     */
+    static double entropy(ByteBuffer buffer, int sampleSize)
+    {
+        int length = Math.min(buffer.remaining(), sampleSize);
+        if (length == 0)
+            return 0;
+        int[] counts = new int[256];
+        int position = buffer.position();
+        for (int i = 0; i < length; i++)
+        {
+            counts[buffer.get(position + i) & 0xFF]++;
+        }
+        double entropy = 0;
+        int symbols = 0;
+        for (int count : counts)
+        {
+            if (count > 0)
+            {
+                double p = (double)count / length;
+                entropy -= p * Math.log(p);
+                symbols++;
+            }
+        }
+        entropy += (symbols - 1) / (2.0 * length);
+        return Math.min(8, entropy / Math.log(2));
+    }
+
+    @Override
+    public void onCompressed(String mimeType, long inputBytes, long outputBytes, long nanos)
+    {
+        String key = mimeType == null ? "unknown" : StringUtil.asciiToLowerCase(mimeType);
+        CompressionStatistics statistics = _statistics.get(key);
+        if (statistics == null)
+        {
+            // Bound the number of mime types, which are set by the applications.
+            if (_statistics.size() >= MAX_STATISTICS_MIME_TYPES)
+                key = OTHER_MIME_TYPES;
+            statistics = _statistics.computeIfAbsent(key, k -> new CompressionStatistics());
+        }
+        statistics.record(inputBytes, outputBytes, nanos);
+    }
+
+    /**
+     * @return the thread pool utilization from which responses are compressed with the high load compression level, or -1 if disabled
+     */
+    @ManagedAttribute("Thread pool utilization from which the high load compression level is used")
+    public double getHighLoadUtilization()
+    {
+        return _highLoadUtilization;
+    }
+
+    /**
+     * @param utilization the thread pool utilization, between 0 and 1, from which responses are compressed
+     * with the {@link #setHighLoadCompressionLevel(int) high load compression level}, or -1 to disable
+     */
+    public void setHighLoadUtilization(double utilization)
+    {
+        _highLoadUtilization = utilization;
+    }
+
+    /**
+     * @return the deflate compression level used under high load
+     */
+    @ManagedAttribute("Compression level used under high load")
+    public int getHighLoadCompressionLevel()
+    {
+        return _highLoadCompressionLevel;
+    }
+
+    /**
+     * @param level the deflate compression level used under high load
+     */
+    public void setHighLoadCompressionLevel(int level)
+    {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION)
+            throw new IllegalArgumentException("Invalid compression level " + level);
+        _highLoadCompressionLevel = level;
+    }
+
+    /**
+     * @return the thread pool utilization from which responses are not compressed, or -1 if disabled
+     */
+    @ManagedAttribute("Thread pool utilization from which responses are not compressed")
+    public double getOverloadUtilization()
+    {
+        return _overloadUtilization;
+    }
+
+    /**
+     * @param utilization the thread pool utilization, between 0 and 1, from which responses are not compressed, or -1 to disable
+     */
+    public void setOverloadUtilization(double utilization)
+    {
+        _overloadUtilization = utilization;
+    }
+
+    /**
+     * @return whether the system load average is used, in addition to the thread pool utilization,
+     * to compare with the high load and overload utilizations
+     */
+    @ManagedAttribute("Whether the system load average per processor is used as load")
+    public boolean isSystemLoad()
+    {
+        return _systemLoad;
+    }
+
+    /**
+     * <p>Sets whether the system load average over the last minute, divided by the number of
+     * available processors, is used in addition to the thread pool utilization as the load
+     * compared with the {@link #setHighLoadUtilization(double) high load} and
+     * {@link #setOverloadUtilization(double) overload} utilizations.</p>
+     * <p>The system load average is not available on all platforms, in which case
+     * only the thread pool utilization is used.</p>
+     *
+     * @param systemLoad whether the system load average is used as load
+     */
+    public void setSystemLoad(boolean systemLoad)
+    {
+        _systemLoad = systemLoad;
+    }
+
+    /**
+     * @return the entropy in bits per byte from which content is considered already compressed, or -1 if disabled
+     */
+    @ManagedAttribute("Entropy in bits per byte from which content is not compressed")
+    public double getEntropyThreshold()
+    {
+        return _entropyThreshold;
+    }
+
+    /**
+     * <p>Sets the entropy threshold used to detect content that is already compressed.</p>
+     * <p>The first 1024 bytes of the response content are sampled and if their entropy, in bits per byte,
+     * is greater than or equal to the threshold, the response is not compressed.
+     * Compressed or encrypted content typically has an entropy above 7.5 bits per byte.</p>
+     *
+     * @param entropyThreshold the entropy threshold, between 0 and 8, or -1 to disable sampling
+     */
+    public void setEntropyThreshold(double entropyThreshold)
+    {
+        _entropyThreshold = entropyThreshold;
+    }
+
+    @ManagedAttribute("Number of responses not compressed due to overload")
+    public long getOverloadBypassed()
+    {
+        return _overloadBypassed.sum();
+    }
+
+    @ManagedAttribute("Number of responses compressed with the high load compression level")
+    public long getHighLoadCompressed()
+    {
+        return _highLoadCompressed.sum();
+    }
+
+    @ManagedAttribute("Number of responses not compressed due to incompressible content")
+    public long getIncompressible()
+    {
+        return _incompressible.sum();
+    }
+
+    /**
+     * @return the ratio of compressed bytes to uncompressed bytes per mime type,
+     * where the mime types beyond the first 64 are accounted as {@code other}
+     */
+    @ManagedAttribute("Ratio of compressed to uncompressed bytes per mime type")
+    public Map<String, Double> getCompressionRatios()
+    {
+        Map<String, Double> ratios = new HashMap<>();
+        _statistics.forEach((mimeType, statistics) -> ratios.put(mimeType, statistics.getRatio()));
+        return ratios;
+    }
+
+    /**
+     * @return the time in nanoseconds spent compressing per mime type
+     */
+    @ManagedAttribute("Time in nanoseconds spent compressing per mime type")
+    public Map<String, Long> getCompressionNanos()
+    {
+        Map<String, Long> nanos = new HashMap<>();
+        _statistics.forEach((mimeType, statistics) -> nanos.put(mimeType, statistics._nanos.sum()));
+        return nanos;
+    }
+
+    @ManagedOperation(value = "Resets the compression statistics", impact = "ACTION")
+    public void resetStatistics()
+    {
+        _overloadBypassed.reset();
+        _highLoadCompressed.reset();
+        _incompressible.reset();
+        _statistics.clear();
+    }
+
+    /**
+     * <p>Negotiates the gzip content-coding against the {@code Accept-Encoding} header.</p>
+     * <p>Gzip is accepted if it is listed with a non-zero quality, or if the {@code *}
+     * wildcard is listed with a non-zero quality and gzip is not explicitly refused
+     * with {@code gzip;q=0}.</p>
+     *
+     * @param fields the request fields
+     * @return whether the gzip content-coding is acceptable for the response
+     */
+    protected boolean isGzipAccepted(HttpFields fields)
+    {
+        return getQuality(fields.getCSV(HttpHeader.ACCEPT_ENCODING, false), GZIP) > 0;
+    }
+
+    /**
+     * <p>Negotiates the content-coding of the response against the {@code Accept-Encoding} header.</p>
+     * <p>The coding with the highest quality is selected, where codings not listed get the
+     * quality of the {@code *} wildcard, if any. Among codings with the same quality, the
+     * {@link #addContentCoding(ContentCoding) registered codings} are preferred, in registration
+     * order, over the built-in gzip.</p>
+     *
+     * @param fields the request fields
+     * @return the content-coding of the response, or null if no content-coding is acceptable
+     */
+    protected ContentCoding getAcceptedContentCoding(HttpFields fields)
+    {
+        List<String> codings = fields.getCSV(HttpHeader.ACCEPT_ENCODING, false);
+        if (codings.isEmpty())
+            return null;
+
+        ContentCoding accepted = null;
+        double acceptedQuality = 0;
+        for (ContentCoding coding : _contentCodings)
+        {
+            double quality = getQuality(codings, coding.getFormat().getEncoding());
+            if (quality > acceptedQuality)
+            {
+                accepted = coding;
+                acceptedQuality = quality;
+            }
+        }
+        if (getQuality(codings, GZIP) > acceptedQuality)
+            accepted = _gzipCoding;
+        return accepted;
+    }
+
+    private static double getQuality(List<String> codings, String encoding)
+    {
+        double wildcard = 0;
+        for (String coding : codings)
+        {
+            int semi = coding.indexOf(';');
+            String token = (semi < 0 ? coding : coding.substring(0, semi)).trim();
+            double quality = semi < 0 ? 1.0 : getQuality(coding.substring(semi + 1));
+            if (token.equalsIgnoreCase(encoding))
+                return quality;
+            if ("*".equals(token))
+                wildcard = quality;
+        }
+        return wildcard;
+    }
+
+    private static double getQuality(String parameters)
+    {
+        for (String parameter : parameters.split(";"))
+        {
+            parameter = parameter.trim();
+            if (parameter.length() > 2 && Character.toLowerCase(parameter.charAt(0)) == 'q' && parameter.charAt(1) == '=')
+            {
+                try
+                {
+                    return Double.parseDouble(parameter.substring(2));
+                }
+                catch (NumberFormatException x)
+                {
+                    return 0;
+                }
+            }
+        }
+        return 1.0;
+    }
+
+    /**
+     * <p>Registers a content-coding, in addition to the built-in gzip, to encode responses
+     * and decode requests.</p>
+     * <p>The content-coding is managed as a bean of this handler.</p>
+     *
+     * @param coding the content-coding to register
+     * @throws IllegalArgumentException if the coding is gzip, which is built-in
+     * @see #getAcceptedContentCoding(HttpFields)
+     */
+    public void addContentCoding(ContentCoding coding)
+    {
+        if (GZIP.equalsIgnoreCase(coding.getFormat().getEncoding()))
+            throw new IllegalArgumentException("gzip is built-in");
+        _contentCodings.add(coding);
+        addBean(coding);
+    }
+
+    /**
+     * @param coding the content-coding to unregister
+     * @return whether the content-coding was registered
+     */
+    public boolean removeContentCoding(ContentCoding coding)
+    {
+        removeBean(coding);
+        return _contentCodings.remove(coding);
+    }
+
+    /**
+     * @return the registered content-codings, besides the built-in gzip
+     */
+    public List<ContentCoding> getContentCodings()
+    {
+        return Collections.unmodifiableList(_contentCodings);
+    }
+
+    /**
+     * @param fields the request fields
+     * @return the content-coding of the request content, which is the last coding of the
+     * {@code Content-Encoding} header, or null if it is not a supported content-coding
+     */
+    private ContentCoding getRequestContentCoding(HttpFields fields)
+    {
+        String value = fields.get(HttpHeader.CONTENT_ENCODING);
+        if (value == null)
+            return null;
+        String encoding = value.substring(value.lastIndexOf(',') + 1).trim();
+        if (GZIP.equalsIgnoreCase(encoding))
+            return _gzipCoding;
+        for (ContentCoding coding : _contentCodings)
+        {
+            if (coding.getFormat().getEncoding().equalsIgnoreCase(encoding))
+                return coding;
+        }
+        return null;
+    }
+
+    private String stripEtagSuffixes(String etags)
+    {
+        String stripped = CompressedContentFormat.GZIP.stripSuffixes(etags);
+        for (ContentCoding coding : _contentCodings)
+        {
+            stripped = coding.getFormat().stripSuffixes(stripped);
+        }
+        return stripped;
     }
 
     /**
@@ -683,15 +1197,14 @@ public class GzipHandler extends HandlerWrapper implements GzipFactory
 
         // Handle request inflation
         HttpFields httpFields = baseRequest.getHttpFields();
-        boolean inflated = _inflateBufferSize > 0 && httpFields.contains(HttpHeader.CONTENT_ENCODING, "gzip") && isPathInflatable(path);
+        ContentCoding inflation = _inflateBufferSize > 0 && isPathInflatable(path) ? getRequestContentCoding(httpFields) : null;
+        HttpInput.Interceptor inputInterceptor = inflation == null ? null : inflation.newInputInterceptor(baseRequest, _inflateBufferSize);
+        boolean inflated = inputInterceptor != null;
         if (inflated)
         {
             if (LOG.isDebugEnabled())
-                LOG.debug("{} inflate {}", this, request);
-            GzipHttpInputInterceptor gzipHttpInputInterceptor =
-                    new GzipHttpInputInterceptor(_inflaterPool, baseRequest.getHttpChannel().getByteBufferPool(),
-                            _inflateBufferSize, baseRequest.getHttpChannel().isUseInputDirectByteBuffers());
-            baseRequest.getHttpInput().addInterceptor(gzipHttpInputInterceptor);
+                LOG.debug("{} inflate {} {}", this, inflation.getFormat(), request);
+            baseRequest.getHttpInput().addInterceptor(inputInterceptor);
         }
 
         // From here on out, the response output gzip determination is made
@@ -735,7 +1248,7 @@ public class GzipHandler extends HandlerWrapper implements GzipFactory
                     case IF_NONE_MATCH:
                     {
                         String etags = field.getValue();
-                        String etagsNoSuffix = CompressedContentFormat.GZIP.stripSuffixes(etags);
+                        String etagsNoSuffix = stripEtagSuffixes(etags);
                         if (etagsNoSuffix.equals(etags))
                             newFields.add(field);
                         else
@@ -752,15 +1265,11 @@ public class GzipHandler extends HandlerWrapper implements GzipFactory
                     case CONTENT_ENCODING:
                         if (inflated)
                         {
-                            if (field.getValue().equalsIgnoreCase("gzip"))
-                                newFields.add(X_CE_GZIP);
-                            else if (COMMA_GZIP.matcher(field.getValue()).matches())
-                            {
-                                String v = field.getValue();
-                                v = v.substring(0, v.lastIndexOf(','));
-                                newFields.add(X_CE_GZIP);
-                                newFields.add(new HttpField(HttpHeader.CONTENT_ENCODING, v));
-                            }
+                            String v = field.getValue();
+                            int comma = v.lastIndexOf(',');
+                            newFields.add(inflation == _gzipCoding ? X_CE_GZIP : new HttpField("X-Content-Encoding", inflation.getFormat().getEncoding()));
+                            if (comma > 0)
+                                newFields.add(new HttpField(HttpHeader.CONTENT_ENCODING, v.substring(0, comma).trim()));
                         }
                         else
                         {
@@ -1167,4 +1676,47 @@ public class GzipHandler extends HandlerWrapper implements GzipFactory
     {
         return String.format("%s@%x{%s,min=%s,inflate=%s}", getClass().getSimpleName(), hashCode(), getState(), _minGzipSize, _inflateBufferSize);
     }
+
+    private static class CompressionStatistics
+    {
+        private final LongAdder _inputBytes = new LongAdder();
+        private final LongAdder _outputBytes = new LongAdder();
+        private final LongAdder _nanos = new LongAdder();
+
+        private void record(long inputBytes, long outputBytes, long nanos)
+        {
+            _inputBytes.add(inputBytes);
+            _outputBytes.add(outputBytes);
+            _nanos.add(nanos);
+        }
+
+        private double getRatio()
+        {
+            long input = _inputBytes.sum();
+            return input == 0 ? 0 : (double)_outputBytes.sum() / input;
+        }
+    }
+
+    private class GzipCoding implements ContentCoding
+    {
+        @Override
+        public CompressedContentFormat getFormat()
+        {
+            return CompressedContentFormat.GZIP;
+        }
+
+        @Override
+        public Encoder newEncoder(Request request)
+        {
+            DeflaterPool.Entry entry = getDeflaterEntry(request, -1);
+            return entry == null ? null : new GzipEncoder(entry);
+        }
+
+        @Override
+        public HttpInput.Interceptor newInputInterceptor(Request request, int bufferSize)
+        {
+            HttpChannel channel = request.getHttpChannel();
+            return new GzipHttpInputInterceptor(_inflaterPool, channel.getByteBufferPool(), bufferSize, channel.isUseInputDirectByteBuffers());
+        }
+    }
 }
@@ -16,9 +16,8 @@ package org.eclipse.jetty.server.handler.gzip;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritePendingException;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.zip.CRC32;
-import java.util.zip.Deflater;
 
+import org.eclipse.jetty.http.CompressedContentFormat;
 import org.eclipse.jetty.http.HttpField;
 import org.eclipse.jetty.http.HttpFields;
 import org.eclipse.jetty.http.HttpHeader;
@@ -30,7 +29,7 @@ import org.eclipse.jetty.server.Response;
 import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.IteratingNestedCallback;
-import org.eclipse.jetty.util.compression.DeflaterPool;
+import org.eclipse.jetty.util.NanoTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,7 +38,6 @@ import static org.eclipse.jetty.http.CompressedContentFormat.GZIP;
 public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
 {
     public static Logger LOG = LoggerFactory.getLogger(GzipHttpOutputInterceptor.class);
-    private static final byte[] GZIP_HEADER = new byte[]{(byte)0x1f, (byte)0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
 
     public static final HttpField VARY_ACCEPT_ENCODING = new PreEncodedHttpField(HttpHeader.VARY, HttpHeader.ACCEPT_ENCODING.asString());
 
@@ -49,7 +47,6 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
     }
 
     private final AtomicReference<GZState> _state = new AtomicReference<>(GZState.MIGHT_COMPRESS);
-    private final CRC32 _crc = new CRC32();
 
     private final GzipFactory _factory;
     private final HttpOutput.Interceptor _interceptor;
@@ -58,8 +55,10 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
     private final int _bufferSize;
     private final boolean _syncFlush;
 
-    private DeflaterPool.Entry _deflaterEntry;
+    private ContentCoding.Encoder _encoder;
     private ByteBuffer _buffer;
+    private String _mimeType;
+    private long _deflateNanos;
 
     public GzipHttpOutputInterceptor(GzipFactory factory, HttpChannel channel, HttpOutput.Interceptor next, boolean syncFlush)
     {
@@ -114,12 +113,6 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
         }
     }
 
-    private void addTrailer()
-    {
-        BufferUtil.putIntLittleEndian(_buffer, (int)_crc.getValue());
-        BufferUtil.putIntLittleEndian(_buffer, _deflaterEntry.get().getTotalIn());
-    }
-
     private void gzip(ByteBuffer content, boolean complete, final Callback callback)
     {
         if (content.hasRemaining() || complete)
@@ -159,6 +152,7 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
         if (ct != null)
         {
             String baseType = HttpField.valueParameters(ct, null);
+            _mimeType = baseType;
             if (!_factory.isMimeTypeGzipable(baseType))
             {
                 LOG.debug("{} exclude by mimeType {}", this, ct);
@@ -190,25 +184,36 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
             if (contentLength < 0 && complete)
                 contentLength = content.remaining();
 
-            _deflaterEntry = _factory.getDeflaterEntry(_channel.getRequest(), contentLength);
-            if (_deflaterEntry == null)
+            _encoder = _factory.getEncoder(_channel.getRequest(), contentLength);
+            if (_encoder == null)
+            {
+                LOG.debug("{} exclude no encoder", this);
+                _state.set(GZState.NOT_COMPRESSING);
+                _interceptor.write(content, complete, callback);
+                return;
+            }
+
+            // Is the content already compressed?
+            if (!_factory.isContentCompressible(content))
             {
-                LOG.debug("{} exclude no deflater", this);
+                LOG.debug("{} exclude incompressible content", this);
+                _encoder.release();
+                _encoder = null;
                 _state.set(GZState.NOT_COMPRESSING);
                 _interceptor.write(content, complete, callback);
                 return;
             }
 
-            fields.put(GZIP.getContentEncoding());
-            _crc.reset();
+            CompressedContentFormat format = _encoder.getFormat();
+            fields.put(format.getContentEncoding());
 
             // Adjust headers
             response.setContentLength(-1);
             String etag = fields.get(HttpHeader.ETAG);
             if (etag != null)
-                fields.put(HttpHeader.ETAG, etagGzip(etag));
+                fields.put(HttpHeader.ETAG, format.etag(etag));
 
-            LOG.debug("{} compressing {}", this, _deflaterEntry);
+            LOG.debug("{} compressing {}", this, _encoder);
             _state.set(GZState.COMPRESSING);
 
             if (BufferUtil.isEmpty(content))
@@ -259,6 +264,7 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
     {
         private final ByteBuffer _content;
         private final boolean _last;
+        private boolean _input;
 
         public GzipBufferCB(ByteBuffer content, boolean complete, Callback callback)
         {
@@ -266,22 +272,15 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
             
             _content = content;
             _last = complete;
-
-            _crc.update(_content.slice());
-
-            Deflater deflater = _deflaterEntry.get();
-            deflater.setInput(_content);
-            if (_last)
-                deflater.finish();
         }
 
         @Override
         protected void onCompleteFailure(Throwable x)
         {
-            if (_deflaterEntry != null)
+            if (_encoder != null)
             {
-                _deflaterEntry.release();
-                _deflaterEntry = null;
+                _encoder.release();
+                _encoder = null;
             }
             super.onCompleteFailure(x);
         }
@@ -289,8 +288,8 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
         @Override
         protected Action process() throws Exception
         {
-            // If we have no deflator
-            if (_deflaterEntry == null)
+            // If we have no encoder
+            if (_encoder == null)
             {
                 // then the trailer has been generated and written below.
                 // we have finished compressing the entire content, so
@@ -306,9 +305,8 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
             // If we have no buffer
             if (_buffer == null)
             {
-                // allocate a buffer and add the gzip header
+                // allocate a buffer
                 _buffer = _channel.getByteBufferPool().acquire(_bufferSize, _channel.isUseOutputDirectByteBuffers());
-                BufferUtil.fill(_buffer, GZIP_HEADER, 0, GZIP_HEADER.length);
             }
             else
             {
@@ -316,43 +314,50 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
                 BufferUtil.clear(_buffer);
             }
 
-            // If the deflator is not finished, then compress more data
-            Deflater deflater = _deflaterEntry.get();
-            if (!deflater.finished())
+            long start = NanoTime.now();
+
+            // Pass the content to the encoder on the first iteration.
+            if (!_input)
             {
-                if (deflater.needsInput() && !_last)
-                    return Action.SUCCEEDED;
+                _input = true;
+                _encoder.setInput(_content);
+                if (_last)
+                    _encoder.finish();
+            }
 
-                int pos = BufferUtil.flipToFill(_buffer);
-                deflater.deflate(_buffer, _syncFlush ? Deflater.SYNC_FLUSH : Deflater.NO_FLUSH);
-                BufferUtil.flipToFlush(_buffer, pos);
+            // If the encoder needs more input, wait for the next write.
+            if (_encoder.needsInput() && !_last)
+            {
+                _deflateNanos += NanoTime.since(start);
+                return Action.SUCCEEDED;
             }
 
-            // If we have finished deflation and there is room for the trailer.
-            if (deflater.finished() && BufferUtil.space(_buffer) >= 8)
+            _encoder.encode(_buffer, _syncFlush);
+            _deflateNanos += NanoTime.since(start);
+
+            // If we have finished encoding, including any trailer, release the encoder
+            // to flag that we will have had completeSuccess when the write below completes.
+            if (_encoder.finished())
             {
-                // add the trailer and recycle the deflator to flag that we will have had completeSuccess when
-                // the write below completes.
-                addTrailer();
-                _deflaterEntry.release();
-                _deflaterEntry = null;
+                _factory.onCompressed(_mimeType, _encoder.getBytesRead(), _encoder.getBytesWritten(), _deflateNanos);
+                _encoder.release();
+                _encoder = null;
             }
 
             // write the compressed buffer.
-            _interceptor.write(_buffer, _deflaterEntry == null, this);
+            _interceptor.write(_buffer, _encoder == null, this);
             return Action.SCHEDULED;
         }
 
         @Override
         public String toString()
         {
-            return String.format("%s[content=%s last=%b buffer=%s deflate=%s %s]",
+            return String.format("%s[content=%s last=%b buffer=%s encoder=%s]",
                 super.toString(),
                 BufferUtil.toDetailString(_content),
                 _last,
                 BufferUtil.toDetailString(_buffer),
-                _deflaterEntry,
-                _deflaterEntry != null && _deflaterEntry.get().finished() ? "(finished)" : "");
+                _encoder);
         }
     }
 }
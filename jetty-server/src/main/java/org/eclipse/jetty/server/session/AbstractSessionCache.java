@@ -16,7 +16,10 @@ package org.eclipse.jetty.server.session;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
 import javax.servlet.http.HttpServletRequest;
 
@@ -101,6 +104,11 @@ public abstract class AbstractSessionCache extends ContainerLifeCycle implements
      */
     protected boolean _invalidateOnShutdown;
 
+    /**
+     * The asynchronous stores in progress, keyed by session id
+     */
+    private final ConcurrentMap<String, CompletableFuture<Void>> _pendingStores = new ConcurrentHashMap<>();
+
     /**
      * Create a new Session object from pre-existing session data
      *
@@ -211,6 +219,10 @@ public abstract class AbstractSessionCache extends ContainerLifeCycle implements
     @Override
     protected void doStop() throws Exception
     {
+        for (String id : _pendingStores.keySet())
+        {
+            awaitPendingStore(id);
+        }
         _sessionDataStore.stop();
         super.doStop();
     }
@@ -330,41 +342,44 @@ public abstract class AbstractSessionCache extends ContainerLifeCycle implements
     protected Session getAndEnter(String id, boolean enter) throws Exception
     {
         Session session = null;
-        AtomicReference<Exception> exception = new AtomicReference<Exception>();
 
-        session = doComputeIfAbsent(id, k ->
+        try
         {
-            if (LOG.isDebugEnabled())
-                LOG.debug("Session {} not found locally in {}, attempting to load", id, this);
-
-            try
+            session = doComputeIfAbsent(id, k ->
             {
-                Session s = loadSession(k);
-                if (s != null)
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Session {} not found locally in {}, attempting to load", id, this);
+
+                try
                 {
-                    try (AutoLock lock = s.lock())
+                    Session s = loadSession(k);
+                    if (s != null)
+                    {
+                        try (AutoLock lock = s.lock())
+                        {
+                            s.setResident(true); //ensure freshly loaded session is resident
+                        }
+                    }
+                    else
                     {
-                        s.setResident(true); //ensure freshly loaded session is resident
+                        if (LOG.isDebugEnabled())
+                            LOG.debug("Session {} not loaded by store", id);
                     }
+                    return s;
                 }
-                else
+                catch (Exception e)
                 {
-                    if (LOG.isDebugEnabled())
-                        LOG.debug("Session {} not loaded by store", id);
+                    //propagate the failure through doComputeIfAbsent, so that
+                    //callers waiting on the same load also see it
+                    throw new LoadException(e);
                 }
-                return s;
-            }
-            catch (Exception e)
-            {
-                exception.set(e);
-                return null;
-            }
-        });
+            });
+        }
+        catch (LoadException e)
+        {
+            throw (Exception)e.getCause();
+        }
 
-        Exception ex = exception.get();
-        if (ex != null)
-            throw ex;
-            
         if (session != null)
         {
             try (AutoLock lock = session.lock())
@@ -402,6 +417,8 @@ public abstract class AbstractSessionCache extends ContainerLifeCycle implements
 
         try
         {
+            //don't read data that is still being written
+            awaitPendingStore(id);
             data = _sessionDataStore.load(id);
 
             if (data == null) //session doesn't exist
@@ -420,6 +437,69 @@ public abstract class AbstractSessionCache extends ContainerLifeCycle implements
         }
     }
 
+    /**
+     * Store the data of a session that remains in this cache with
+     * {@link SessionDataStore#storeAsync(String, SessionData)}, so that the
+     * calling thread does not wait for the persistence layer.
+     *
+     * A failure of a store that completes immediately is thrown, as with a
+     * blocking store; otherwise it is logged, and the data remains dirty so
+     * that it is written again by the next store.
+     *
+     * @param id the session id
+     * @param session the session
+     * @throws Exception if the store failed immediately
+     */
+    private void storeAsync(String id, Session session) throws Exception
+    {
+        CompletableFuture<Void> stored = _sessionDataStore.storeAsync(id, session.getSessionData());
+        if (stored.isDone())
+        {
+            try
+            {
+                stored.join();
+            }
+            catch (CompletionException x)
+            {
+                Throwable cause = x.getCause();
+                if (cause instanceof Exception)
+                    throw (Exception)cause;
+                throw x;
+            }
+            return;
+        }
+
+        _pendingStores.put(id, stored);
+        stored.whenComplete((v, x) ->
+        {
+            _pendingStores.remove(id, stored);
+            if (x != null)
+                LOG.warn("Unable to store session id={}", id, x);
+        });
+    }
+
+    /**
+     * Wait for the asynchronous store of a session, if any, to complete.
+     *
+     * @param id the session id
+     */
+    private void awaitPendingStore(String id)
+    {
+        CompletableFuture<Void> pending = _pendingStores.get(id);
+        if (pending == null)
+            return;
+        if (LOG.isDebugEnabled())
+            LOG.debug("Waiting for pending store of session id={}", id);
+        try
+        {
+            pending.join();
+        }
+        catch (CompletionException x)
+        {
+            //already logged when the store failed
+        }
+    }
+
     /**
      * Add an entirely new session (created by the application calling Request.getSession(true))
      * to the cache. The usage count of the fresh session is incremented.
@@ -537,11 +617,11 @@ public abstract class AbstractSessionCache extends ContainerLifeCycle implements
                 //save the session
                 if (!_sessionDataStore.isPassivating())
                 {
-                    //if our backing datastore isn't the passivating kind, just save the session
-                    _sessionDataStore.store(id, session.getSessionData());
                     //if we evict on session exit, boot it from the cache
                     if (getEvictionPolicy() == EVICT_ON_SESSION_EXIT)
                     {
+                        //if our backing datastore isn't the passivating kind, just save the session
+                        _sessionDataStore.store(id, session.getSessionData());
                         if (LOG.isDebugEnabled())
                             LOG.debug("Eviction on request exit id={}", id);
                         doDelete(session.getId());
@@ -549,6 +629,8 @@ public abstract class AbstractSessionCache extends ContainerLifeCycle implements
                     }
                     else
                     {
+                        //the session stays in the cache, so the request need not wait for the write
+                        storeAsync(id, session);
                         session.setResident(true);
                         doPutIfAbsent(id, session); //ensure it is in our map
                         if (LOG.isDebugEnabled())
@@ -647,6 +729,7 @@ public abstract class AbstractSessionCache extends ContainerLifeCycle implements
         //Always delete it from the backing data store
         if (_sessionDataStore != null)
         {
+            awaitPendingStore(id);
             boolean dsdel = _sessionDataStore.delete(id);
             if (LOG.isDebugEnabled())
                 LOG.debug("Session id={} deleted in session data store {}", id, dsdel);
@@ -786,6 +869,7 @@ public abstract class AbstractSessionCache extends ContainerLifeCycle implements
 
             if (_sessionDataStore != null)
             {
+                awaitPendingStore(oldId);
                 _sessionDataStore.delete(oldId);  //delete the session data with the old id
                 _sessionDataStore.store(newId, session.getSessionData()); //save the session data with the new id
             }
@@ -851,4 +935,15 @@ public abstract class AbstractSessionCache extends ContainerLifeCycle implements
             this.getClass().getName(), this.hashCode(), _evictionPolicy,
             _removeUnloadableSessions, _saveOnCreate, _saveOnInactiveEviction);
     }
+
+    /**
+     * Carries the failure of a session load through {@link #doComputeIfAbsent(String, Function)}.
+     */
+    private static class LoadException extends RuntimeException
+    {
+        private LoadException(Exception cause)
+        {
+            super(cause);
+        }
+    }
 }
@@ -15,6 +15,7 @@ package org.eclipse.jetty.server.session;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
@@ -204,6 +205,98 @@ public abstract class AbstractSessionDataStore extends ContainerLifeCycle implem
         }
     }
 
+    /**
+     * Store the session data asynchronously, if it needs saving according to
+     * the same rules as {@link #store(String, SessionData)}.
+     *
+     * The dirty flags of the data are cleared when the write is started, so that
+     * changes made by subsequent requests are not lost when it completes, and
+     * are set again if the write fails.
+     *
+     * @see #doStoreAsync(String, SessionData, long)
+     */
+    @Override
+    public CompletableFuture<Void> storeAsync(String id, SessionData data)
+    {
+        if (!isStarted())
+            return CompletableFuture.failedFuture(new IllegalStateException("Not started"));
+
+        if (data == null)
+            return CompletableFuture.completedFuture(null);
+
+        long lastSave = data.getLastSaved();
+        long savePeriodMs = (_savePeriodSec <= 0 ? 0 : TimeUnit.SECONDS.toMillis(_savePeriodSec));
+
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Store async: id={}, mdirty={}, dirty={}, lsave={}, period={}, elapsed={}", id, data.isMetaDataDirty(),
+                data.isDirty(), data.getLastSaved(), savePeriodMs, (System.currentTimeMillis() - lastSave));
+        }
+
+        if (!data.isDirty() && (lastSave > 0) &&
+            (!data.isMetaDataDirty() || ((System.currentTimeMillis() - lastSave) < savePeriodMs)))
+            return CompletableFuture.completedFuture(null);
+
+        data.setLastSaved(System.currentTimeMillis());
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        _context.run(() ->
+        {
+            CompletableFuture<Void> stored;
+            try
+            {
+                stored = doStoreAsync(id, data, lastSave);
+            }
+            catch (Throwable x)
+            {
+                stored = CompletableFuture.failedFuture(x);
+            }
+            //the data has been captured, later changes make it dirty again
+            data.clean();
+            stored.whenComplete((v, x) ->
+            {
+                if (x == null)
+                {
+                    result.complete(null);
+                }
+                else
+                {
+                    //save it again next time
+                    data.setDirty(true);
+                    data.setLastSaved(lastSave);
+                    result.completeExceptionally(x);
+                }
+            });
+        });
+        return result;
+    }
+
+    /**
+     * Asynchronously store the session data persistently.
+     *
+     * Implementations must capture the session data before returning, as it may
+     * be modified by subsequent requests, and must apply the writes of the same
+     * session id in the order of the calls.
+     * The default implementation calls {@link #doStore(String, SessionData, long)}
+     * in the calling thread.
+     *
+     * @param id identity of session to store
+     * @param data info of session to store
+     * @param lastSaveTime the last time that the session was persisted
+     * @return a future completed when the session data is stored
+     */
+    protected CompletableFuture<Void> doStoreAsync(String id, SessionData data, long lastSaveTime)
+    {
+        try
+        {
+            doStore(id, data, lastSaveTime);
+            return CompletableFuture.completedFuture(null);
+        }
+        catch (Throwable x)
+        {
+            return CompletableFuture.failedFuture(x);
+        }
+    }
+
     @Override
     public boolean exists(String id) throws Exception
     {
@@ -14,6 +14,8 @@
 package org.eclipse.jetty.server.session;
 
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
@@ -29,7 +31,12 @@ import org.slf4j.LoggerFactory;
 /**
  * DefaultSessionCache
  *
- * A session store that keeps its sessions in memory within a concurrent map
+ * A session store that keeps its sessions in memory within a concurrent map.
+ *
+ * Concurrent requests that miss the cache for the same session id share a single
+ * in-flight load, which is performed outside of any lock held by the map, so that
+ * only one call to the SessionDataStore is made per id. All the requests sharing
+ * a load see its outcome: the session, no session, or the failure to load it.
  */
 @ManagedObject
 public class DefaultSessionCache extends AbstractSessionCache
@@ -41,6 +48,11 @@ public class DefaultSessionCache extends AbstractSessionCache
      */
     private final ConcurrentMap<String, Session> _sessions;
 
+    /**
+     * The loads currently in progress, keyed by session id
+     */
+    private final ConcurrentMap<String, CompletableFuture<Session>> _loading = new ConcurrentHashMap<>();
+
     private final CounterStatistic _stats = new CounterStatistic();
 
     /**
@@ -114,13 +126,75 @@ public class DefaultSessionCache extends AbstractSessionCache
     @Override
     protected Session doComputeIfAbsent(String id, Function<String, Session> mappingFunction)
     {
-        return _sessions.computeIfAbsent(id, k ->
+        Session session = _sessions.get(id);
+        if (session != null)
+            return session;
+
+        CompletableFuture<Session> loading = new CompletableFuture<>();
+        CompletableFuture<Session> inflight = _loading.putIfAbsent(id, loading);
+        if (inflight != null)
+        {
+            //another thread is already loading this session, share its result,
+            //including no session or the failure to load it
+            if (LOG.isDebugEnabled())
+                LOG.debug("Session {} load in progress, waiting", id);
+            try
+            {
+                return inflight.join();
+            }
+            catch (CompletionException x)
+            {
+                Throwable cause = x.getCause();
+                if (cause instanceof RuntimeException)
+                    throw (RuntimeException)cause;
+                if (cause instanceof Error)
+                    throw (Error)cause;
+                throw x;
+            }
+        }
+
+        Throwable failure = null;
+        try
+        {
+            //check again, the session may have been added while we were registering the load
+            session = _sessions.get(id);
+            if (session == null)
+            {
+                session = mappingFunction.apply(id);
+                if (session != null)
+                {
+                    Session existing = _sessions.putIfAbsent(id, session);
+                    if (existing == null)
+                        _stats.increment();
+                    else
+                        session = existing;
+                }
+            }
+            return session;
+        }
+        catch (Throwable x)
+        {
+            failure = x;
+            throw x;
+        }
+        finally
         {
-            Session s = mappingFunction.apply(k);
-            if (s != null)
-                _stats.increment();
-            return s;
-        });
+            _loading.remove(id, loading);
+            if (failure == null)
+                loading.complete(session);
+            else
+                loading.completeExceptionally(failure);
+        }
+    }
+
+    /**
+     * @param id the session id
+     * @return the estimated number of requests waiting for the load in progress of the session
+     */
+    int getLoadWaiters(String id)
+    {
+        CompletableFuture<Session> loading = _loading.get(id);
+        return loading == null ? 0 : loading.getNumberOfDependents();
     }
 
     @Override
@@ -58,6 +58,8 @@ public class DefaultSessionIdManager extends ContainerLifeCycle implements Sessi
     protected String _workerName;
     protected String _workerAttr;
     protected long _reseed = 100000L;
+    protected int _randomStripes;
+    protected Random[] _stripes;
     protected Server _server;
     protected HouseKeeper _houseKeeper;
     protected boolean _ownHouseKeeper;
@@ -187,6 +189,33 @@ public class DefaultSessionIdManager extends ContainerLifeCycle implements Sessi
         _reseed = reseed;
     }
 
+    /**
+     * @return the number of independent random number generators used to create ids, or 0 if a single shared generator is used
+     */
+    @ManagedAttribute(value = "number of random number generators for ids", readonly = true)
+    public int getRandomStripes()
+    {
+        return _randomStripes;
+    }
+
+    /**
+     * Set the number of independent random number generators used to create ids.
+     *
+     * With the default of 0, all ids are drawn from a single shared generator under a lock.
+     * A value greater than 0 creates that many independently seeded {@link SecureRandom}
+     * instances, and each thread draws from one of them selected by its thread id, so that
+     * concurrent session creation does not contend on a single generator. Striping is not
+     * used if a random has been set with {@link #setRandom(Random)}.
+     *
+     * @param stripes the number of random number generators
+     */
+    public void setRandomStripes(int stripes)
+    {
+        if (isRunning())
+            throw new IllegalStateException(getState());
+        _randomStripes = stripes;
+    }
+
     /**
      * Create a new session id if necessary.
      */
@@ -222,51 +251,69 @@ public class DefaultSessionIdManager extends ContainerLifeCycle implements Sessi
      * @return a new unique session id
      */
     public String newSessionId(long seedTerm)
+    {
+        Random[] stripes = _stripes;
+        if (stripes != null)
+        {
+            Random random = stripes[(int)(Thread.currentThread().getId() % stripes.length)];
+            // SecureRandom is thread safe, so no need to lock
+            return newSessionId(random, seedTerm);
+        }
+
+        try (AutoLock l = _lock.lock())
+        {
+            return newSessionId(_random, seedTerm);
+        }
+    }
+
+    /**
+     * @param random the RNG to draw from
+     * @param seedTerm the seed for RNG
+     * @return a new unique session id
+     */
+    protected String newSessionId(Random random, long seedTerm)
     {
         // pick a new unique ID!
         String id = null;
 
-        try (AutoLock l = _lock.lock())
+        while (id == null || id.length() == 0)
         {
-            while (id == null || id.length() == 0)
+            long r0 = _weakRandom
+                ? (hashCode() ^ Runtime.getRuntime().freeMemory() ^ random.nextInt() ^ ((seedTerm) << 32))
+                : random.nextLong();
+            if (r0 < 0)
+                r0 = -r0;
+
+            // random chance to reseed
+            if (_reseed > 0 && (r0 % _reseed) == 1L)
             {
-                long r0 = _weakRandom
-                    ? (hashCode() ^ Runtime.getRuntime().freeMemory() ^ _random.nextInt() ^ ((seedTerm) << 32))
-                    : _random.nextLong();
-                if (r0 < 0)
-                    r0 = -r0;
-
-                // random chance to reseed
-                if (_reseed > 0 && (r0 % _reseed) == 1L)
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Reseeding {}", this);
+                if (random instanceof SecureRandom)
                 {
-                    if (LOG.isDebugEnabled())
-                        LOG.debug("Reseeding {}", this);
-                    if (_random instanceof SecureRandom)
-                    {
-                        SecureRandom secure = (SecureRandom)_random;
-                        secure.setSeed(secure.generateSeed(8));
-                    }
-                    else
-                    {
-                        _random.setSeed(_random.nextLong() ^ System.currentTimeMillis() ^ seedTerm ^ Runtime.getRuntime().freeMemory());
-                    }
+                    SecureRandom secure = (SecureRandom)random;
+                    secure.setSeed(secure.generateSeed(8));
+                }
+                else
+                {
+                    random.setSeed(random.nextLong() ^ System.currentTimeMillis() ^ seedTerm ^ Runtime.getRuntime().freeMemory());
                 }
+            }
 
-                long r1 = _weakRandom
-                    ? (hashCode() ^ Runtime.getRuntime().freeMemory() ^ _random.nextInt() ^ ((seedTerm) << 32))
-                    : _random.nextLong();
-                if (r1 < 0)
-                    r1 = -r1;
+            long r1 = _weakRandom
+                ? (hashCode() ^ Runtime.getRuntime().freeMemory() ^ random.nextInt() ^ ((seedTerm) << 32))
+                : random.nextLong();
+            if (r1 < 0)
+                r1 = -r1;
 
-                id = Long.toString(r0, 36) + Long.toString(r1, 36);
+            id = Long.toString(r0, 36) + Long.toString(r1, 36);
 
-                //add in the id of the node to ensure unique id across cluster
-                //NOTE this is different to the node suffix which denotes which node the request was received on
-                if (!StringUtil.isBlank(_workerName))
-                    id = _workerName + id;
+            //add in the id of the node to ensure unique id across cluster
+            //NOTE this is different to the node suffix which denotes which node the request was received on
+            if (!StringUtil.isBlank(_workerName))
+                id = _workerName + id;
 
-                id = id + Long.toString(COUNTER.getAndIncrement());
-            }
+            id = id + Long.toString(COUNTER.getAndIncrement());
         }
         return id;
     }
@@ -343,6 +390,7 @@ public class DefaultSessionIdManager extends ContainerLifeCycle implements Sessi
             _houseKeeper = null;
         }
         _random = null;
+        _stripes = null;
     }
 
     /**
@@ -352,7 +400,17 @@ public class DefaultSessionIdManager extends ContainerLifeCycle implements Sessi
      */
     public void initRandom()
     {
-        if (_random == null)
+        if (_random == null && _randomStripes > 0)
+        {
+            Random[] stripes = new Random[_randomStripes];
+            for (int i = 0; i < stripes.length; i++)
+            {
+                stripes[i] = newStripeRandom();
+            }
+            _random = stripes[0];
+            _stripes = stripes;
+        }
+        else if (_random == null)
         {
             try
             {
@@ -369,6 +427,26 @@ public class DefaultSessionIdManager extends ContainerLifeCycle implements Sessi
             _random.setSeed(_random.nextLong() ^ System.currentTimeMillis() ^ hashCode() ^ Runtime.getRuntime().freeMemory());
     }
 
+    /**
+     * Create one of the striped random number generators. An algorithm with
+     * per-instance state is preferred, as the platform default may serialize
+     * all instances on a shared entropy source.
+     *
+     * @return a new, independently seeded SecureRandom
+     */
+    protected SecureRandom newStripeRandom()
+    {
+        try
+        {
+            return SecureRandom.getInstance("DRBG");
+        }
+        catch (Exception e)
+        {
+            LOG.trace("IGNORED", e);
+            return new SecureRandom();
+        }
+    }
+
     /**
      * Get the session ID with any worker ID.
      *
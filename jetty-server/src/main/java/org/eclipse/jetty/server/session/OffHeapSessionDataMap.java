@@ -0,0 +1,378 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server.session;
+
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.io.ArrayRetainableByteBufferPool;
+import org.eclipse.jetty.io.RetainableByteBuffer;
+import org.eclipse.jetty.io.RetainableByteBufferPool;
+import org.eclipse.jetty.util.ByteArrayOutputStream2;
+import org.eclipse.jetty.util.ClassLoadingObjectInputStream;
+import org.eclipse.jetty.util.FuturePromise;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * OffHeapSessionDataMap
+ *
+ * Keeps serialized SessionData in direct (off-heap) buffers. Used as the fronting
+ * cache of a {@link CachingSessionDataStore} together with a {@link DefaultSessionCache}
+ * that evicts idle sessions, only sessions in active use are held as live objects on the
+ * heap: idle sessions are passivated to the store and to this map, and are deserialized
+ * again from this map on their next access.
+ *
+ * The total size of the serialized sessions is bounded by {@link #getMaxCapacity()}.
+ * Session data that does not fit is not cached, and is loaded from the delegate
+ * SessionDataStore instead. The buffers are acquired from a {@link RetainableByteBufferPool}
+ * and returned to it when a session is replaced or deleted. The default pool is sized from
+ * the max capacity, so that the buffers it retains, whether attached to a session or
+ * released, also fit within the max capacity; buffers that do not fit in the pool are
+ * not retained after they are released.
+ *
+ * This map is local to the node: it only sees the stores and deletes made through
+ * this node. In a clustered deployment where another node may update a session,
+ * this node will serve its own, possibly stale, copy of the session data until it
+ * next stores or deletes that session. Only use it where sessions are sticky to a
+ * node, or where the SessionCache is configured to always re-read from the store.
+ */
+@ManagedObject
+public class OffHeapSessionDataMap extends AbstractLifeCycle implements SessionDataMap
+{
+    private static final Logger LOG = LoggerFactory.getLogger(OffHeapSessionDataMap.class);
+
+    public static final long DEFAULT_MAX_CAPACITY = 256 * 1024 * 1024L;
+
+    private final ConcurrentMap<String, RetainableByteBuffer> _buffers = new ConcurrentHashMap<>();
+    private final AtomicLong _capacity = new AtomicLong();
+    private final AtomicLong _spills = new AtomicLong();
+    private long _maxCapacity = DEFAULT_MAX_CAPACITY;
+    private RetainableByteBufferPool _bufferPool;
+    protected SessionContext _context;
+
+    /**
+     * @return the maximum number of bytes of serialized session data held off-heap
+     */
+    @ManagedAttribute(value = "max off-heap capacity in bytes", readonly = true)
+    public long getMaxCapacity()
+    {
+        return _maxCapacity;
+    }
+
+    /**
+     * @param maxCapacity the maximum number of bytes of serialized session data held off-heap
+     */
+    public void setMaxCapacity(long maxCapacity)
+    {
+        if (isStarted())
+            throw new IllegalStateException("Started");
+        _maxCapacity = maxCapacity;
+    }
+
+    /**
+     * @return the pool from which the off-heap buffers are acquired
+     */
+    public RetainableByteBufferPool getRetainableByteBufferPool()
+    {
+        return _bufferPool;
+    }
+
+    /**
+     * @param bufferPool the pool from which the off-heap buffers are acquired,
+     * or null to use a pool private to this map and bounded by the max capacity.
+     * A pool set here is not bounded by this map.
+     */
+    public void setRetainableByteBufferPool(RetainableByteBufferPool bufferPool)
+    {
+        if (isStarted())
+            throw new IllegalStateException("Started");
+        _bufferPool = bufferPool;
+    }
+
+    /**
+     * @return the number of bytes of serialized session data currently held off-heap
+     */
+    @ManagedAttribute(value = "off-heap bytes in use", readonly = true)
+    public long getCapacity()
+    {
+        return _capacity.get();
+    }
+
+    /**
+     * @return the number of sessions currently held off-heap
+     */
+    @ManagedAttribute(value = "sessions held off-heap", readonly = true)
+    public int getSessions()
+    {
+        return _buffers.size();
+    }
+
+    /**
+     * @return the number of stores that did not fit within the max capacity
+     */
+    @ManagedAttribute(value = "stores not cached due to capacity", readonly = true)
+    public long getSpills()
+    {
+        return _spills.get();
+    }
+
+    @Override
+    public void initialize(SessionContext context) throws Exception
+    {
+        if (isStarted())
+            throw new IllegalStateException("Context set after OffHeapSessionDataMap started");
+        _context = context;
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        if (_bufferPool == null)
+            _bufferPool = newRetainableByteBufferPool(_maxCapacity);
+        super.doStart();
+    }
+
+    /**
+     * Create a pool whose buffers, in use or not, do not exceed the given capacity.
+     *
+     * The pool has buckets of buffers of 1 KiB to 64 KiB, in 1 KiB steps, each
+     * holding at most the same number of buffers, so that the pool cannot retain
+     * more than the sum of the bucket capacities times the bucket size. Larger
+     * session data, or data that does not fit in a full bucket, uses buffers that
+     * are not pooled.
+     *
+     * @param maxCapacity the max number of bytes retained by the pool
+     * @return a bounded pool
+     */
+    static ArrayRetainableByteBufferPool newRetainableByteBufferPool(long maxCapacity)
+    {
+        int factor = 1024;
+        int buckets = 64;
+        //the bytes retained by a pool holding one buffer in each bucket
+        while (buckets > 2 && factor * (long)buckets * (buckets + 1) / 2 > maxCapacity)
+        {
+            buckets--;
+        }
+        long perBucket = factor * (long)buckets * (buckets + 1) / 2;
+        int bucketSize = (int)Math.max(1, Math.min(Integer.MAX_VALUE, maxCapacity / perBucket));
+        return new ArrayRetainableByteBufferPool(0, factor, factor * buckets, bucketSize, -1, -1);
+    }
+
+    @Override
+    public SessionData load(String id) throws Exception
+    {
+        if (!isStarted())
+            throw new IllegalStateException("Not started");
+
+        RetainableByteBuffer buffer = retain(id);
+        if (buffer == null)
+            return null;
+
+        try
+        {
+            //deserialize straight from the off-heap buffer, which cannot be re-pooled while retained
+            ByteBuffer bytes = buffer.getBuffer().duplicate();
+            FuturePromise<SessionData> result = new FuturePromise<>();
+            Runnable r = () ->
+            {
+                try (ClassLoadingObjectInputStream in = new ClassLoadingObjectInputStream(new ByteBufferInputStream(bytes)))
+                {
+                    result.succeeded((SessionData)in.readObject());
+                }
+                catch (Exception e)
+                {
+                    result.failed(new UnreadableSessionDataException(id, _context, e));
+                }
+            };
+            _context.run(r);
+            return result.getOrThrow();
+        }
+        finally
+        {
+            buffer.release();
+        }
+    }
+
+    /**
+     * Retain the buffer currently mapped to the id, so that it is not
+     * re-pooled by a concurrent store or delete while it is being read.
+     *
+     * @param id the session id
+     * @return the retained buffer, or null if the id is not mapped
+     */
+    private RetainableByteBuffer retain(String id)
+    {
+        while (true)
+        {
+            RetainableByteBuffer buffer = _buffers.get(id);
+            if (buffer == null)
+                return null;
+            try
+            {
+                buffer.retain();
+            }
+            catch (IllegalStateException x)
+            {
+                //released by a concurrent store or delete, look again
+                continue;
+            }
+            //the buffer may have been released and re-acquired before it was retained,
+            //it is only safe to read if it is still the one mapped to the id
+            if (_buffers.get(id) == buffer)
+                return buffer;
+            buffer.release();
+        }
+    }
+
+    @Override
+    public void store(String id, SessionData data) throws Exception
+    {
+        if (!isStarted())
+            throw new IllegalStateException("Not started");
+
+        //serialize in the context so that attribute classloaders are recorded correctly
+        FuturePromise<ByteArrayOutputStream2> result = new FuturePromise<>();
+        Runnable r = () ->
+        {
+            ByteArrayOutputStream2 out = new ByteArrayOutputStream2();
+            try (ObjectOutputStream oos = new ObjectOutputStream(out))
+            {
+                oos.writeObject(data);
+                result.succeeded(out);
+            }
+            catch (Exception e)
+            {
+                result.failed(new UnwriteableSessionDataException(id, _context, e));
+            }
+        };
+        _context.run(r);
+        ByteArrayOutputStream2 bytes = result.getOrThrow();
+
+        int size = bytes.getCount();
+        RetainableByteBuffer buffer = _bufferPool.acquire(size, true);
+        int capacity = buffer.capacity();
+
+        //only the growth over the replaced buffer counts against the max capacity
+        RetainableByteBuffer current = _buffers.get(id);
+        long replaced = current == null ? 0 : current.capacity();
+        if (!reserve(capacity, replaced))
+        {
+            buffer.release();
+            _spills.incrementAndGet();
+            if (LOG.isDebugEnabled())
+                LOG.debug("Session {} of {} bytes exceeds off-heap capacity {}/{}", id, size, _capacity.get(), _maxCapacity);
+            //don't leave stale data behind, the store has the latest version
+            delete(id);
+            return;
+        }
+
+        ByteBuffer byteBuffer = buffer.getBuffer();
+        byteBuffer.clear();
+        byteBuffer.put(bytes.getBuf(), 0, size).flip();
+        release(_buffers.put(id, buffer));
+    }
+
+    /**
+     * Reserve capacity for a buffer, without exceeding the max capacity.
+     *
+     * @param capacity the capacity of the buffer
+     * @param replaced the capacity of the buffer that it replaces, which is released afterwards
+     * @return whether the capacity was reserved
+     */
+    private boolean reserve(long capacity, long replaced)
+    {
+        while (true)
+        {
+            long current = _capacity.get();
+            if (current + capacity - replaced > _maxCapacity)
+                return false;
+            if (_capacity.compareAndSet(current, current + capacity))
+                return true;
+        }
+    }
+
+    @Override
+    public boolean delete(String id) throws Exception
+    {
+        return release(_buffers.remove(id));
+    }
+
+    private boolean release(RetainableByteBuffer buffer)
+    {
+        if (buffer == null)
+            return false;
+        _capacity.addAndGet(-buffer.capacity());
+        buffer.release();
+        return true;
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        _buffers.keySet().forEach(id -> release(_buffers.remove(id)));
+        _capacity.set(0);
+        super.doStop();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s[sessions=%d,capacity=%d/%d]", super.toString(), _buffers.size(), _capacity.get(), _maxCapacity);
+    }
+
+    /**
+     * Reads the remaining bytes of a ByteBuffer, without copying them to the heap.
+     */
+    private static class ByteBufferInputStream extends InputStream
+    {
+        private final ByteBuffer _buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer)
+        {
+            _buffer = buffer;
+        }
+
+        @Override
+        public int read()
+        {
+            return _buffer.hasRemaining() ? _buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len)
+        {
+            if (len == 0)
+                return 0;
+            if (!_buffer.hasRemaining())
+                return -1;
+            len = Math.min(len, _buffer.remaining());
+            _buffer.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public int available()
+        {
+            return _buffer.remaining();
+        }
+    }
+}
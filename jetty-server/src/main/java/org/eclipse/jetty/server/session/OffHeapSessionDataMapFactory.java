@@ -0,0 +1,43 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server.session;
+
+/**
+ * OffHeapSessionDataMapFactory
+ */
+public class OffHeapSessionDataMapFactory implements SessionDataMapFactory
+{
+    protected long _maxCapacity = OffHeapSessionDataMap.DEFAULT_MAX_CAPACITY;
+
+    public long getMaxCapacity()
+    {
+        return _maxCapacity;
+    }
+
+    /**
+     * @param maxCapacity the maximum number of bytes of serialized session data held off-heap
+     */
+    public void setMaxCapacity(long maxCapacity)
+    {
+        _maxCapacity = maxCapacity;
+    }
+
+    @Override
+    public SessionDataMap getSessionDataMap()
+    {
+        OffHeapSessionDataMap map = new OffHeapSessionDataMap();
+        map.setMaxCapacity(getMaxCapacity());
+        return map;
+    }
+}
@@ -0,0 +1,1105 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server.session;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.eclipse.jetty.util.ByteArrayOutputStream2;
+import org.eclipse.jetty.util.ClassLoadingObjectInputStream;
+import org.eclipse.jetty.util.IO;
+import org.eclipse.jetty.util.NanoTime;
+import org.eclipse.jetty.util.StringUtil;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.thread.AutoLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * SegmentedFileSessionDataStore
+ *
+ * A file-based store of session data that appends session records to a small number of
+ * segment files, rather than writing one file per session as {@link FileSessionDataStore} does.
+ *
+ * The location and expiry of every session is held in memory, and is checkpointed to an
+ * index file once {@link #getCheckpointSize()} bytes have been appended or
+ * {@link #getCheckpointInterval()} has elapsed since the last checkpoint. At startup the
+ * index is read, and only the records appended to the segments since the last checkpoint
+ * are replayed. A record that was only partially written before a crash fails its checksum
+ * and is truncated during the replay.
+ *
+ * Segments are rolled over once they reach {@link #getMaxSegmentSize()}, and segments
+ * in which the proportion of live records falls below {@link #getCompactionRatio()} are
+ * compacted by copying their live records to the active segment. The records of a deleted
+ * session are copied too, for as long as an older segment may still hold that session,
+ * so that a replay of all the segments cannot resurrect it. Compaction copies the records
+ * without holding the lock used by loads and stores, which only wait for the append of
+ * each copied record.
+ *
+ * By default the segments are only forced to the storage device at a checkpoint and when
+ * a segment is rolled over, so the records appended since then, although acknowledged,
+ * may be lost if the host crashes. Setting {@link #setForceOnStore(boolean)} forces the
+ * segment after every store and delete, trading throughput for durability.
+ *
+ * A thread that is interrupted while it reads or writes a segment does not leave the
+ * segment closed for other threads: the segment channel is reopened and the operation
+ * retried, and the interrupt status is restored afterwards.
+ *
+ * Each context uses its own subdirectory of the store dir.
+ */
+@ManagedObject
+public class SegmentedFileSessionDataStore extends AbstractSessionDataStore
+{
+    private static final Logger LOG = LoggerFactory.getLogger(SegmentedFileSessionDataStore.class);
+
+    public static final long DEFAULT_MAX_SEGMENT_SIZE = 64 * 1024 * 1024L;
+    public static final double DEFAULT_COMPACTION_RATIO = 0.5D;
+    public static final long DEFAULT_CHECKPOINT_SIZE = 4 * 1024 * 1024L;
+    public static final long DEFAULT_CHECKPOINT_INTERVAL = 60 * 1000L;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String INDEX_FILENAME = "index";
+    private static final int INDEX_MAGIC = 0x4A534958; // JSIX
+    private static final int RECORD_HEADER_SIZE = 8; // body length + crc
+    private static final byte STORE = 1;
+    private static final byte DELETE = 2;
+
+    private final AutoLock _lock = new AutoLock();
+    private final AutoLock _compactLock = new AutoLock();
+    private final Map<String, Location> _index = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, Segment> _segments = new ConcurrentSkipListMap<>();
+    protected File _storeDir;
+    protected boolean _deleteUnrestorableFiles = false;
+    protected long _maxSegmentSize = DEFAULT_MAX_SEGMENT_SIZE;
+    protected double _compactionRatio = DEFAULT_COMPACTION_RATIO;
+    protected long _checkpointSize = DEFAULT_CHECKPOINT_SIZE;
+    protected long _checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+    protected boolean _forceOnStore = false;
+    private Path _contextDir;
+    private Segment _active;
+    private long _uncheckpointed;
+    private long _lastCheckpoint = NanoTime.now();
+
+    @ManagedAttribute(value = "dir where sessions are stored", readonly = true)
+    public File getStoreDir()
+    {
+        return _storeDir;
+    }
+
+    public void setStoreDir(File storeDir)
+    {
+        checkStarted();
+        _storeDir = storeDir;
+    }
+
+    public boolean isDeleteUnrestorableFiles()
+    {
+        return _deleteUnrestorableFiles;
+    }
+
+    public void setDeleteUnrestorableFiles(boolean deleteUnrestorableFiles)
+    {
+        checkStarted();
+        _deleteUnrestorableFiles = deleteUnrestorableFiles;
+    }
+
+    @ManagedAttribute(value = "size in bytes at which a segment is rolled over", readonly = true)
+    public long getMaxSegmentSize()
+    {
+        return _maxSegmentSize;
+    }
+
+    /**
+     * @param maxSegmentSize the size in bytes at which a new segment is started
+     */
+    public void setMaxSegmentSize(long maxSegmentSize)
+    {
+        checkStarted();
+        _maxSegmentSize = maxSegmentSize;
+    }
+
+    @ManagedAttribute(value = "live/total ratio below which a segment is compacted", readonly = true)
+    public double getCompactionRatio()
+    {
+        return _compactionRatio;
+    }
+
+    /**
+     * @param compactionRatio the proportion of live bytes below which a segment is compacted
+     */
+    public void setCompactionRatio(double compactionRatio)
+    {
+        checkStarted();
+        _compactionRatio = compactionRatio;
+    }
+
+    @ManagedAttribute(value = "bytes appended after which the index is checkpointed", readonly = true)
+    public long getCheckpointSize()
+    {
+        return _checkpointSize;
+    }
+
+    /**
+     * @param checkpointSize the number of bytes appended to the segments after which
+     * the index is checkpointed, bounding the records replayed at startup
+     */
+    public void setCheckpointSize(long checkpointSize)
+    {
+        checkStarted();
+        _checkpointSize = checkpointSize;
+    }
+
+    @ManagedAttribute(value = "ms after which the index is checkpointed", readonly = true)
+    public long getCheckpointInterval()
+    {
+        return _checkpointInterval;
+    }
+
+    /**
+     * @param checkpointInterval the time in ms after which any records appended
+     * to the segments since the last checkpoint are checkpointed
+     */
+    public void setCheckpointInterval(long checkpointInterval)
+    {
+        checkStarted();
+        _checkpointInterval = checkpointInterval;
+    }
+
+    @ManagedAttribute(value = "are segments forced after every record", readonly = true)
+    public boolean isForceOnStore()
+    {
+        return _forceOnStore;
+    }
+
+    /**
+     * @param forceOnStore whether the segment is forced to the storage device after every
+     * store or delete, so that it survives a crash, rather than only at the next checkpoint
+     * or segment roll over
+     */
+    public void setForceOnStore(boolean forceOnStore)
+    {
+        checkStarted();
+        _forceOnStore = forceOnStore;
+    }
+
+    @ManagedAttribute(value = "number of segment files", readonly = true)
+    public int getSegmentCount()
+    {
+        return _segments.size();
+    }
+
+    @ManagedAttribute(value = "number of sessions in the index", readonly = true)
+    public int getSessionCount()
+    {
+        return _index.size();
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        initializeStore();
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        try (AutoLock c = _compactLock.lock())
+        {
+            if (_contextDir != null)
+                checkpoint();
+            try (AutoLock l = _lock.lock())
+            {
+                for (Segment segment : _segments.values())
+                {
+                    segment.close();
+                }
+                _segments.clear();
+                _index.clear();
+                _active = null;
+                _contextDir = null;
+            }
+        }
+        super.doStop();
+    }
+
+    /**
+     * Read the index and replay the segments written since it was checkpointed.
+     *
+     * @throws Exception if the store dir cannot be used or the segments cannot be read
+     */
+    public void initializeStore() throws Exception
+    {
+        if (_storeDir == null)
+            throw new IllegalStateException("No file store specified");
+
+        if (!_storeDir.exists() && !_storeDir.mkdirs())
+            throw new IllegalStateException("Could not create " + _storeDir);
+
+        if (!(_storeDir.isDirectory() && _storeDir.canWrite() && _storeDir.canRead()))
+            throw new IllegalStateException(_storeDir.getAbsolutePath() + " must be readable/writeable dir");
+
+        String contextString = _context.getCanonicalContextPath() + "_" + _context.getVhost();
+        _contextDir = _storeDir.toPath().resolve(StringUtil.sanitizeFileSystemName(contextString));
+        Files.createDirectories(_contextDir);
+
+        try (AutoLock l = _lock.lock())
+        {
+            try (Stream<Path> stream = Files.list(_contextDir))
+            {
+                stream.filter(p -> isSegmentFilename(p.getFileName().toString())).forEach(p ->
+                {
+                    String name = p.getFileName().toString();
+                    long number = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                    _segments.put(number, new Segment(number, p));
+                });
+            }
+            for (Segment segment : _segments.values())
+            {
+                segment.open();
+            }
+
+            long replayFrom = 0;
+            long replayOffset = 0;
+            Path indexFile = _contextDir.resolve(INDEX_FILENAME);
+            if (Files.exists(indexFile))
+            {
+                try
+                {
+                    long[] checkpoint = readIndex(indexFile);
+                    replayFrom = checkpoint[0];
+                    replayOffset = checkpoint[1];
+                }
+                catch (Exception e)
+                {
+                    LOG.warn("Unreadable index {}, replaying all segments", indexFile, e);
+                    _index.clear();
+                }
+            }
+
+            for (Segment segment : _segments.values())
+            {
+                if (segment.number >= replayFrom)
+                    replay(segment, segment.number == replayFrom ? replayOffset : 0);
+            }
+
+            _index.forEach((id, location) ->
+            {
+                Segment segment = _segments.get(location.segment);
+                if (segment != null)
+                    segment.addLive(id, location.length);
+            });
+
+            if (_segments.isEmpty())
+                roll();
+            else
+                _active = _segments.lastEntry().getValue();
+            _uncheckpointed = 0;
+            _lastCheckpoint = NanoTime.now();
+
+            if (LOG.isDebugEnabled())
+                LOG.debug("Initialized {} with {} sessions in {} segments", this, _index.size(), _segments.size());
+        }
+    }
+
+    @Override
+    public SessionData doLoad(String id) throws Exception
+    {
+        Location location = _index.get(id);
+        if (location == null)
+            return null;
+
+        byte[] body;
+        try
+        {
+            body = readBody(location);
+        }
+        catch (ClosedChannelException e)
+        {
+            //the segment was compacted away while we were reading, try the new location
+            location = _index.get(id);
+            if (location == null)
+                return null;
+            body = readBody(location);
+        }
+
+        try
+        {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+            in.readByte(); // record type
+            in.readUTF(); // id
+            in.readLong(); // expiry
+            long lastSaved = in.readLong();
+            SessionData data = load(in, id);
+            data.setLastSaved(lastSaved);
+            return data;
+        }
+        catch (UnreadableSessionDataException e)
+        {
+            if (isDeleteUnrestorableFiles())
+            {
+                try
+                {
+                    delete(id);
+                    LOG.warn("Deleted unrestorable record for session {}", id);
+                }
+                catch (Exception x)
+                {
+                    LOG.warn("Unable to delete unrestorable record for session {}", id, x);
+                }
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void doStore(String id, SessionData data, long lastSaveTime) throws Exception
+    {
+        ByteArrayOutputStream2 body = new ByteArrayOutputStream2();
+        try
+        {
+            DataOutputStream out = new DataOutputStream(body);
+            out.writeByte(STORE);
+            out.writeUTF(id);
+            out.writeLong(data.getExpiry());
+            out.writeLong(data.getLastSaved());
+            save(out, id, data);
+            out.flush();
+        }
+        catch (Exception e)
+        {
+            throw new UnwriteableSessionDataException(id, _context, e);
+        }
+
+        Segment segment;
+        try (AutoLock l = _lock.lock())
+        {
+            Location location = append(STORE, id, body);
+            segment = _active;
+            segment.addLive(id, location.length);
+            retire(id, _index.put(id, new Location(location.segment, location.offset, location.length, data.getExpiry())));
+        }
+        if (_forceOnStore)
+            segment.force();
+    }
+
+    @Override
+    public boolean delete(String id) throws Exception
+    {
+        Segment segment;
+        try (AutoLock l = _lock.lock())
+        {
+            Location location = _index.remove(id);
+            if (location == null)
+                return false;
+
+            ByteArrayOutputStream2 body = new ByteArrayOutputStream2();
+            DataOutputStream out = new DataOutputStream(body);
+            out.writeByte(DELETE);
+            out.writeUTF(id);
+            out.writeLong(0);
+            out.flush();
+            append(DELETE, id, body);
+            retire(id, location);
+            segment = _active;
+        }
+        if (_forceOnStore)
+            segment.force();
+        return true;
+    }
+
+    @Override
+    public boolean doExists(String id) throws Exception
+    {
+        Location location = _index.get(id);
+        if (location == null)
+            return false;
+
+        if (location.expiry <= 0)
+            return true; //never expires
+        return location.expiry > System.currentTimeMillis(); //hasn't yet expired
+    }
+
+    @Override
+    public Set<String> doCheckExpired(Set<String> candidates, long time)
+    {
+        Set<String> expired = new HashSet<>();
+        for (String id : candidates)
+        {
+            Location location = _index.get(id);
+            // no such record, therefore no longer any such session, it can be expired
+            if (location == null || (location.expiry > 0 && location.expiry <= time))
+                expired.add(id);
+        }
+        return expired;
+    }
+
+    @Override
+    public Set<String> doGetExpired(long timeLimit)
+    {
+        Set<String> expired = new HashSet<>();
+        _index.forEach((id, location) ->
+        {
+            if (location.expiry > 0 && location.expiry <= timeLimit)
+                expired.add(id);
+        });
+
+        //take advantage of the periodic call to tidy up the segments
+        try
+        {
+            compact();
+        }
+        catch (Exception e)
+        {
+            LOG.warn("Unable to compact {}", _contextDir, e);
+        }
+        return expired;
+    }
+
+    @Override
+    public void doCleanOrphans(long time)
+    {
+        //sessions for other contexts are in other directories, and each
+        //context's expired sessions are found via doGetExpired
+    }
+
+    @Override
+    @ManagedAttribute(value = "are sessions serialized by this store", readonly = true)
+    public boolean isPassivating()
+    {
+        return true;
+    }
+
+    /**
+     * Copy the live records out of any segments whose live ratio has fallen
+     * below the compaction ratio, delete those segments and checkpoint the index
+     * if segments were compacted or a checkpoint is due.
+     * <p>
+     * The records are read without holding the lock used by {@link #doStore(String, SessionData, long)}
+     * and {@link #doLoad(String)}, which is only taken to append each copied record and
+     * to swap its index entry, if the session has not been stored or deleted meanwhile.
+     *
+     * @throws IOException if the segments cannot be written
+     */
+    @ManagedOperation(value = "compact the segments and checkpoint the index", impact = "ACTION")
+    public void compact() throws IOException
+    {
+        try (AutoLock c = _compactLock.lock())
+        {
+            List<Segment> sparse = new ArrayList<>();
+            try (AutoLock l = _lock.lock())
+            {
+                if (_contextDir == null)
+                    return;
+                for (Segment segment : _segments.values())
+                {
+                    if (segment != _active && segment.size > 0 && segment.live < segment.size * _compactionRatio)
+                        sparse.add(segment);
+                }
+            }
+
+            for (Segment segment : sparse)
+            {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Compacting {} live={} size={}", segment.path, segment.live, segment.size);
+
+                //only the active segment is appended to, so a sparse segment is not written while it is copied
+                List<String> liveIds;
+                try (AutoLock l = _lock.lock())
+                {
+                    liveIds = new ArrayList<>(segment.liveIds);
+                }
+                for (String id : liveIds)
+                {
+                    Location location = _index.get(id);
+                    if (location == null || location.segment != segment.number)
+                        continue;
+                    ByteArrayOutputStream2 body = new ByteArrayOutputStream2();
+                    body.write(readBody(location));
+                    try (AutoLock l = _lock.lock())
+                    {
+                        //the session was stored again or deleted while its record was copied
+                        if (_index.get(id) != location)
+                            continue;
+                        Location moved = append(STORE, id, body);
+                        _active.addLive(id, moved.length);
+                        _index.put(id, new Location(moved.segment, moved.offset, moved.length, location.expiry));
+                        retire(id, location);
+                    }
+                }
+
+                for (Map.Entry<String, Location> entry : tombstones(segment).entrySet())
+                {
+                    String id = entry.getKey();
+                    if (isShadowed(id, segment.number))
+                    {
+                        ByteArrayOutputStream2 body = new ByteArrayOutputStream2();
+                        body.write(readBody(entry.getValue()));
+                        try (AutoLock l = _lock.lock())
+                        {
+                            //a session stored again meanwhile must not be deleted by a replay
+                            if (!_index.containsKey(id))
+                                append(DELETE, id, body);
+                        }
+                    }
+                }
+            }
+
+            boolean checkpointDue;
+            try (AutoLock l = _lock.lock())
+            {
+                checkpointDue = isCheckpointDue();
+            }
+            if (!sparse.isEmpty() || checkpointDue)
+                checkpoint();
+
+            //only remove the old segments once the index no longer refers to them
+            for (Segment segment : sparse)
+            {
+                try (AutoLock l = _lock.lock())
+                {
+                    _segments.remove(segment.number);
+                }
+                segment.close();
+                Files.deleteIfExists(segment.path);
+            }
+        }
+    }
+
+    private boolean isCheckpointDue()
+    {
+        return _uncheckpointed > 0 && (_uncheckpointed >= _checkpointSize || NanoTime.millisSince(_lastCheckpoint) >= _checkpointInterval);
+    }
+
+    /**
+     * @return the locations of the delete records in the segment for sessions that are not live again
+     */
+    private Map<String, Location> tombstones(Segment segment) throws IOException
+    {
+        Map<String, Location> tombstones = new HashMap<>();
+        scan(segment, 0, (type, id, expiry, position, length) ->
+        {
+            if (type == DELETE)
+                tombstones.put(id, new Location(segment.number, position, length, 0));
+            else
+                tombstones.remove(id);
+        });
+        //a session that was stored again after it was deleted no longer needs the delete record
+        tombstones.keySet().removeIf(_index::containsKey);
+        return tombstones;
+    }
+
+    /**
+     * @return whether a segment older than the given segment number holds a record for the session,
+     * which a replay would resurrect without the delete record
+     */
+    private boolean isShadowed(String id, long number) throws IOException
+    {
+        for (Segment older : _segments.headMap(number).values())
+        {
+            if (older.ids == null)
+            {
+                Set<String> ids = new HashSet<>();
+                scan(older, 0, (type, stored, expiry, position, length) ->
+                {
+                    if (type == STORE)
+                        ids.add(stored);
+                });
+                older.ids = ids;
+            }
+            if (older.ids.contains(id))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Write the index of session locations, together with the position in the active
+     * segment up to which it is complete, to the index file. The index is copied while
+     * holding the lock, but the active segment is forced and the index file synced
+     * before it replaces the previous one without holding the lock.
+     */
+    private void checkpoint() throws IOException
+    {
+        assert _compactLock.isHeldByCurrentThread();
+
+        Segment active;
+        long checkpointed;
+        ByteArrayOutputStream2 bytes = new ByteArrayOutputStream2();
+        try (AutoLock l = _lock.lock())
+        {
+            active = _active;
+            checkpointed = _uncheckpointed;
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(INDEX_MAGIC);
+            out.writeLong(active == null ? 0 : active.number);
+            out.writeLong(active == null ? 0 : active.size);
+            out.writeInt(_index.size());
+            for (Map.Entry<String, Location> entry : _index.entrySet())
+            {
+                byte[] id = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                Location location = entry.getValue();
+                out.writeShort(id.length);
+                out.write(id);
+                out.writeLong(location.segment);
+                out.writeLong(location.offset);
+                out.writeInt(location.length);
+                out.writeLong(location.expiry);
+            }
+            out.flush();
+        }
+
+        //segments other than the active one were forced when they were rolled over
+        if (active != null)
+            active.force();
+
+        Path tmp = _contextDir.resolve(INDEX_FILENAME + ".tmp");
+        //a FileOutputStream, unlike a FileChannel, is not closed by an interrupt
+        try (FileOutputStream file = new FileOutputStream(tmp.toFile()))
+        {
+            file.write(bytes.getBuf(), 0, bytes.getCount());
+            file.getFD().sync();
+        }
+        Files.move(tmp, _contextDir.resolve(INDEX_FILENAME), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        try (AutoLock l = _lock.lock())
+        {
+            _uncheckpointed -= checkpointed;
+            _lastCheckpoint = NanoTime.now();
+        }
+    }
+
+    /**
+     * Read the index file.
+     *
+     * @return the segment number and offset from which to replay records
+     */
+    private long[] readIndex(Path indexFile) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+        if (buffer.getInt() != INDEX_MAGIC)
+            throw new IOException("Not an index file");
+        long segment = buffer.getLong();
+        long offset = buffer.getLong();
+        int count = buffer.getInt();
+        Map<String, Location> index = new HashMap<>();
+        for (int i = 0; i < count; i++)
+        {
+            byte[] id = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(id);
+            index.put(new String(id, StandardCharsets.UTF_8), new Location(buffer.getLong(), buffer.getLong(), buffer.getInt(), buffer.getLong()));
+        }
+        //ignore entries for segments that no longer exist
+        index.values().removeIf(location -> !_segments.containsKey(location.segment));
+        _index.putAll(index);
+        return new long[]{segment, offset};
+    }
+
+    /**
+     * Apply the records in a segment to the index, truncating the segment
+     * at the first record that is incomplete or corrupt.
+     */
+    private void replay(Segment segment, long offset) throws IOException
+    {
+        long position = scan(segment, offset, (type, id, expiry, at, length) ->
+        {
+            if (type == STORE)
+                _index.put(id, new Location(segment.number, at, length, expiry));
+            else
+                _index.remove(id);
+        });
+
+        if (position < segment.size)
+        {
+            LOG.warn("Truncating {} at {} of {} bytes, incomplete record", segment.path, position, segment.size);
+            segment.access(channel -> channel.truncate(position));
+            segment.size = position;
+        }
+    }
+
+    /**
+     * Visit the records in a segment, stopping at the first record that is incomplete or corrupt.
+     *
+     * @return the position after the last complete record
+     */
+    private long scan(Segment segment, long offset, RecordVisitor visitor) throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        long position = offset;
+        while (position < segment.size)
+        {
+            long at = position;
+            if (!segment.access(channel -> readFully(channel, header.clear(), at)))
+                break;
+            header.flip();
+            int length = header.getInt();
+            int crc = header.getInt();
+            if (length <= 0 || position + RECORD_HEADER_SIZE + length > segment.size)
+                break;
+
+            ByteBuffer body = ByteBuffer.allocate(length);
+            if (!segment.access(channel -> readFully(channel, body.clear(), at + RECORD_HEADER_SIZE)) || crc(body.array()) != crc)
+                break;
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(body.array()));
+            byte type = in.readByte();
+            String id = in.readUTF();
+            long expiry = in.readLong();
+            visitor.visit(type, id, expiry, position, RECORD_HEADER_SIZE + length);
+            position += RECORD_HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    private Location append(byte type, String id, ByteArrayOutputStream2 body) throws IOException
+    {
+        assert _lock.isHeldByCurrentThread();
+
+        int length = body.getCount();
+        if (_active.size > 0 && _active.size + RECORD_HEADER_SIZE + length > _maxSegmentSize)
+            roll();
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + length);
+        record.putInt(length);
+        record.putInt(crc(body.getBuf(), length));
+        record.put(body.getBuf(), 0, length);
+        record.flip();
+
+        long offset = _active.size;
+        _active.access(channel ->
+        {
+            long position = offset;
+            record.rewind();
+            while (record.hasRemaining())
+            {
+                position += channel.write(record, position);
+            }
+            return null;
+        });
+        _active.size = offset + record.capacity();
+        if (type == STORE && _active.ids != null)
+            _active.ids.add(id);
+        _uncheckpointed += record.capacity();
+        return new Location(_active.number, offset, RECORD_HEADER_SIZE + length, 0);
+    }
+
+    private void retire(String id, Location location)
+    {
+        if (location == null)
+            return;
+        Segment segment = _segments.get(location.segment);
+        if (segment != null)
+            segment.removeLive(id, location.length);
+    }
+
+    private void roll() throws IOException
+    {
+        //the records of the previous segment must be durable before records are appended elsewhere
+        if (_active != null)
+            _active.force();
+        long number = _segments.isEmpty() ? 0 : _segments.lastKey() + 1;
+        Segment segment = new Segment(number, _contextDir.resolve(SEGMENT_PREFIX + number + SEGMENT_SUFFIX));
+        segment.open();
+        segment.ids = new HashSet<>();
+        _segments.put(number, segment);
+        _active = segment;
+    }
+
+    private byte[] readBody(Location location) throws IOException
+    {
+        Segment segment = _segments.get(location.segment);
+        if (segment == null)
+            throw new ClosedChannelException();
+
+        ByteBuffer record = ByteBuffer.allocate(location.length);
+        if (!segment.access(channel -> readFully(channel, record.clear(), location.offset)))
+            throw new EOFException(segment.path + "@" + location.offset);
+        record.flip();
+        int length = record.getInt();
+        int crc = record.getInt();
+        byte[] body = new byte[length];
+        record.get(body);
+        if (crc(body) != crc)
+            throw new IOException("Corrupt record in " + segment.path + "@" + location.offset);
+        return body;
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            int read = channel.read(buffer, position);
+            if (read < 0)
+                return false;
+            position += read;
+        }
+        return true;
+    }
+
+    private static int crc(byte[] bytes)
+    {
+        return crc(bytes, bytes.length);
+    }
+
+    private static int crc(byte[] bytes, int length)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, length);
+        return (int)crc.getValue();
+    }
+
+    private static boolean isSegmentFilename(String filename)
+    {
+        if (!filename.startsWith(SEGMENT_PREFIX) || !filename.endsWith(SEGMENT_SUFFIX))
+            return false;
+        String number = filename.substring(SEGMENT_PREFIX.length(), filename.length() - SEGMENT_SUFFIX.length());
+        return !number.isEmpty() && number.chars().allMatch(Character::isDigit);
+    }
+
+    /**
+     * Save the session data.
+     *
+     * @param os the output stream to save to
+     * @param id identity of the session
+     * @param data the info of the session
+     */
+    protected void save(OutputStream os, String id, SessionData data) throws IOException
+    {
+        DataOutputStream out = new DataOutputStream(os);
+        out.writeUTF(id);
+        out.writeUTF(_context.getCanonicalContextPath());
+        out.writeUTF(_context.getVhost());
+        out.writeUTF(data.getLastNode());
+        out.writeLong(data.getCreated());
+        out.writeLong(data.getAccessed());
+        out.writeLong(data.getLastAccessed());
+        out.writeLong(data.getCookieSet());
+        out.writeLong(data.getExpiry());
+        out.writeLong(data.getMaxInactiveMs());
+
+        ObjectOutputStream oos = new ObjectOutputStream(out);
+        SessionData.serializeAttributes(data, oos);
+        oos.flush();
+    }
+
+    /**
+     * Load the session data from a record.
+     *
+     * @param is input stream containing session data
+     * @param expectedId the id we've been told to load
+     * @return the session data
+     */
+    protected SessionData load(InputStream is, String expectedId) throws Exception
+    {
+        try
+        {
+            DataInputStream di = new DataInputStream(is);
+
+            String id = di.readUTF();
+            final String contextPath = di.readUTF();
+            final String vhost = di.readUTF();
+            final String lastNode = di.readUTF();
+            final long created = di.readLong();
+            final long accessed = di.readLong();
+            final long lastAccessed = di.readLong();
+            final long cookieSet = di.readLong();
+            final long expiry = di.readLong();
+            final long maxIdle = di.readLong();
+
+            SessionData data = newSessionData(id, created, accessed, lastAccessed, maxIdle);
+            data.setContextPath(contextPath);
+            data.setVhost(vhost);
+            data.setLastNode(lastNode);
+            data.setCookieSet(cookieSet);
+            data.setExpiry(expiry);
+            data.setMaxInactiveMs(maxIdle);
+
+            // Attributes
+            ClassLoadingObjectInputStream ois = new ClassLoadingObjectInputStream(is);
+            SessionData.deserializeAttributes(data, ois);
+            return data;
+        }
+        catch (Exception e)
+        {
+            throw new UnreadableSessionDataException(expectedId, _context, e);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s[dir=%s,segments=%d,sessions=%d]", super.toString(), _contextDir, _segments.size(), _index.size());
+    }
+
+    private static class Location
+    {
+        private final long segment;
+        private final long offset;
+        private final int length;
+        private final long expiry;
+
+        private Location(long segment, long offset, int length, long expiry)
+        {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.expiry = expiry;
+        }
+    }
+
+    @FunctionalInterface
+    private interface RecordVisitor
+    {
+        void visit(byte type, String id, long expiry, long position, int length) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface ChannelOperation<T>
+    {
+        T apply(FileChannel channel) throws IOException;
+    }
+
+    private static class Segment
+    {
+        private final long number;
+        private final Path path;
+        private final Set<String> liveIds = new HashSet<>();
+        private volatile FileChannel channel;
+        private volatile boolean closed;
+        private Set<String> ids;
+        private long size;
+        private long live;
+
+        private Segment(long number, Path path)
+        {
+            this.number = number;
+            this.path = path;
+        }
+
+        private void open() throws IOException
+        {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            size = channel.size();
+        }
+
+        private void addLive(String id, int length)
+        {
+            liveIds.add(id);
+            live += length;
+        }
+
+        private void removeLive(String id, int length)
+        {
+            liveIds.remove(id);
+            live -= length;
+        }
+
+        private void force() throws IOException
+        {
+            access(channel ->
+            {
+                channel.force(false);
+                return null;
+            });
+        }
+
+        /**
+         * Apply an operation to the channel of this segment. If the channel is closed
+         * because a thread was interrupted while using it, the channel is reopened and
+         * the operation is retried, so that the interrupt neither fails the operation
+         * nor leaves the segment unusable by other threads.
+         */
+        private <T> T access(ChannelOperation<T> operation) throws IOException
+        {
+            boolean interrupted = false;
+            try
+            {
+                while (true)
+                {
+                    try
+                    {
+                        return operation.apply(channel());
+                    }
+                    catch (ClosedChannelException x)
+                    {
+                        //a segment removed by compaction stays closed
+                        if (closed)
+                            throw x;
+                        if (x instanceof ClosedByInterruptException)
+                            interrupted |= Thread.interrupted();
+                    }
+                }
+            }
+            finally
+            {
+                if (interrupted)
+                    Thread.currentThread().interrupt();
+            }
+        }
+
+        private FileChannel channel() throws IOException
+        {
+            FileChannel channel = this.channel;
+            if (channel.isOpen())
+                return channel;
+            synchronized (this)
+            {
+                if (closed)
+                    throw new ClosedChannelException();
+                if (!this.channel.isOpen())
+                    this.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                return this.channel;
+            }
+        }
+
+        private void close()
+        {
+            synchronized (this)
+            {
+                closed = true;
+                IO.close(channel);
+            }
+        }
+    }
+}
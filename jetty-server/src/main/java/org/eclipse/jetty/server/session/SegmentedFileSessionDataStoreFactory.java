@@ -0,0 +1,122 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server.session;
+
+/**
+ * SegmentedFileSessionDataStoreFactory
+ */
+public class SegmentedFileSessionDataStoreFactory extends FileSessionDataStoreFactory
+{
+    long _maxSegmentSize = SegmentedFileSessionDataStore.DEFAULT_MAX_SEGMENT_SIZE;
+    double _compactionRatio = SegmentedFileSessionDataStore.DEFAULT_COMPACTION_RATIO;
+    long _checkpointSize = SegmentedFileSessionDataStore.DEFAULT_CHECKPOINT_SIZE;
+    long _checkpointInterval = SegmentedFileSessionDataStore.DEFAULT_CHECKPOINT_INTERVAL;
+    boolean _forceOnStore = false;
+
+    /**
+     * @return the size in bytes at which a new segment is started
+     */
+    public long getMaxSegmentSize()
+    {
+        return _maxSegmentSize;
+    }
+
+    /**
+     * @param maxSegmentSize the size in bytes at which a new segment is started
+     */
+    public void setMaxSegmentSize(long maxSegmentSize)
+    {
+        _maxSegmentSize = maxSegmentSize;
+    }
+
+    /**
+     * @return the proportion of live bytes below which a segment is compacted
+     */
+    public double getCompactionRatio()
+    {
+        return _compactionRatio;
+    }
+
+    /**
+     * @param compactionRatio the proportion of live bytes below which a segment is compacted
+     */
+    public void setCompactionRatio(double compactionRatio)
+    {
+        _compactionRatio = compactionRatio;
+    }
+
+    /**
+     * @return the number of bytes appended after which the index is checkpointed
+     */
+    public long getCheckpointSize()
+    {
+        return _checkpointSize;
+    }
+
+    /**
+     * @param checkpointSize the number of bytes appended after which the index is checkpointed
+     */
+    public void setCheckpointSize(long checkpointSize)
+    {
+        _checkpointSize = checkpointSize;
+    }
+
+    /**
+     * @return the time in ms after which appended records are checkpointed
+     */
+    public long getCheckpointInterval()
+    {
+        return _checkpointInterval;
+    }
+
+    /**
+     * @param checkpointInterval the time in ms after which appended records are checkpointed
+     */
+    public void setCheckpointInterval(long checkpointInterval)
+    {
+        _checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * @return whether segments are forced to the storage device after every store and delete
+     */
+    public boolean isForceOnStore()
+    {
+        return _forceOnStore;
+    }
+
+    /**
+     * @param forceOnStore whether segments are forced to the storage device after every store and delete
+     */
+    public void setForceOnStore(boolean forceOnStore)
+    {
+        _forceOnStore = forceOnStore;
+    }
+
+    @Override
+    public SessionDataStore getSessionDataStore(SessionHandler handler)
+    {
+        SegmentedFileSessionDataStore sfsds = new SegmentedFileSessionDataStore();
+        sfsds.setDeleteUnrestorableFiles(isDeleteUnrestorableFiles());
+        sfsds.setStoreDir(getStoreDir());
+        sfsds.setMaxSegmentSize(getMaxSegmentSize());
+        sfsds.setCompactionRatio(getCompactionRatio());
+        sfsds.setCheckpointSize(getCheckpointSize());
+        sfsds.setCheckpointInterval(getCheckpointInterval());
+        sfsds.setForceOnStore(isForceOnStore());
+        sfsds.setGracePeriodSec(getGracePeriodSec());
+        sfsds.setSavePeriodSec(getSavePeriodSec());
+        return sfsds;
+    }
+}
@@ -14,6 +14,7 @@
 package org.eclipse.jetty.server.session;
 
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * SessionDataStore
@@ -63,4 +64,36 @@ public interface SessionDataStore extends SessionDataMap
      * @throws Exception if problem checking existence with persistence layer
      */
     public boolean exists(String id) throws Exception;
+
+    /**
+     * Store the session data without waiting for the persistence layer.
+     *
+     * The SessionCache calls this method when the last request exits a session
+     * that remains in the cache, so that the request thread is not held for the
+     * round trip to a remote store. Until the returned future completes, the
+     * SessionCache does not load or delete the same session id.
+     *
+     * The session data may be modified by subsequent requests after this method
+     * returns, so implementations must take a snapshot of it (for example by
+     * serializing it) before returning, and only perform the write asynchronously.
+     * Writes of the same session id must be applied in the order of the calls.
+     *
+     * The default implementation calls {@link #store(String, SessionData)}.
+     *
+     * @param id identity of session to store
+     * @param data info of the session
+     * @return a future completed when the session data is stored
+     */
+    public default CompletableFuture<Void> storeAsync(String id, SessionData data)
+    {
+        try
+        {
+            store(id, data);
+            return CompletableFuture.completedFuture(null);
+        }
+        catch (Throwable x)
+        {
+            return CompletableFuture.failedFuture(x);
+        }
+    }
 }
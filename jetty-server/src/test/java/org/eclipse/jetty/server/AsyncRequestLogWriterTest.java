@@ -0,0 +1,119 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server;
+
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.jetty.toolchain.test.jupiter.WorkDir;
+import org.eclipse.jetty.toolchain.test.jupiter.WorkDirExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@ExtendWith(WorkDirExtension.class)
+public class AsyncRequestLogWriterTest
+{
+    public WorkDir workDir;
+
+    @Test
+    public void testConcurrentWritesBlock() throws Exception
+    {
+        Path log = workDir.getEmptyPathDir().resolve("request.log");
+        AsyncRequestLogWriter writer = new AsyncRequestLogWriter(log.toString(), 16);
+        writer.setOverflowPolicy(AsyncRequestLogWriter.OverflowPolicy.BLOCK);
+        writer.start();
+
+        int threads = 8;
+        int entries = 1000;
+        try
+        {
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++)
+            {
+                int thread = t;
+                Thread worker = new Thread(() ->
+                {
+                    try
+                    {
+                        for (int i = 0; i < entries; i++)
+                        {
+                            writer.write(new StringBuilder("entry-").append(thread).append('-').append(i));
+                        }
+                    }
+                    catch (Exception e)
+                    {
+                        throw new RuntimeException(e);
+                    }
+                });
+                workers.add(worker);
+                worker.start();
+            }
+            for (Thread worker : workers)
+            {
+                worker.join();
+            }
+        }
+        finally
+        {
+            writer.stop();
+        }
+
+        List<String> lines = Files.readAllLines(log, Charset.defaultCharset());
+        Set<String> unique = new HashSet<>(lines);
+        assertEquals(threads * entries, lines.size());
+        assertEquals(threads * entries, unique.size());
+        assertThat(writer.getDroppedEntries(), is(0L));
+        assertEquals(threads * entries, writer.getWrittenEntries());
+        assertThat(writer.getWriteBatches(), lessThanOrEqualTo((long)threads * entries));
+    }
+
+    @Test
+    public void testDropWhenFull() throws Exception
+    {
+        Path log = workDir.getEmptyPathDir().resolve("request.log");
+        AsyncRequestLogWriter writer = new AsyncRequestLogWriter(log.toString(), 4);
+        assertEquals(4, writer.getQueueCapacity());
+
+        // Not started, so nothing drains the queue
+        for (int i = 0; i < 10; i++)
+        {
+            writer.write("entry-" + i);
+        }
+        assertEquals(4, writer.getQueueDepth());
+        assertEquals(6, writer.getDroppedEntries());
+
+        writer.start();
+        writer.stop();
+        List<String> lines = Files.readAllLines(log, Charset.defaultCharset());
+        assertThat(lines.size(), is(4));
+        assertThat(writer.getWriteBatches(), greaterThan(0L));
+        assertEquals(4, writer.getWrittenEntries());
+
+        writer.resetStatistics();
+        assertEquals(0, writer.getDroppedEntries());
+        assertEquals(0, writer.getWrittenEntries());
+        assertEquals(0, writer.getWriteBatches());
+    }
+}
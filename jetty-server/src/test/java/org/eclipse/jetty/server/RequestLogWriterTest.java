@@ -0,0 +1,113 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jetty.toolchain.test.jupiter.WorkDir;
+import org.eclipse.jetty.toolchain.test.jupiter.WorkDirExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+
+@ExtendWith(WorkDirExtension.class)
+public class RequestLogWriterTest
+{
+    public WorkDir workDir;
+
+    @Test
+    public void testWriteCharSequence() throws Exception
+    {
+        Path log = workDir.getEmptyPathDir().resolve("request.log");
+        RequestLogWriter writer = new RequestLogWriter(log.toString());
+        writer.start();
+
+        String longEntry = "x".repeat(5000);
+        StringBuilder builder = new StringBuilder();
+        try
+        {
+            builder.append("GET /ascii HTTP/1.1");
+            writer.write(builder);
+            builder.setLength(0);
+            builder.append("GET /café HTTP/1.1");
+            writer.write(builder);
+            writer.write(longEntry);
+        }
+        finally
+        {
+            writer.stop();
+        }
+
+        List<String> lines = Files.readAllLines(log, Charset.defaultCharset());
+        assertThat(lines, contains("GET /ascii HTTP/1.1", "GET /café HTTP/1.1", longEntry));
+    }
+
+    @Test
+    public void testWriteCharSequenceCallsOverriddenWriteString() throws Exception
+    {
+        List<String> entries = new ArrayList<>();
+        RequestLogWriter writer = new RequestLogWriter()
+        {
+            @Override
+            public void write(String requestEntry)
+            {
+                entries.add(requestEntry);
+            }
+        };
+
+        writer.write(new StringBuilder("GET / HTTP/1.1"));
+        assertThat(entries, contains("GET / HTTP/1.1"));
+    }
+
+    @Test
+    public void testSubclassOptsIntoWriteEntry() throws Exception
+    {
+        Path log = workDir.getEmptyPathDir().resolve("request.log");
+        List<String> entries = new ArrayList<>();
+        RequestLogWriter writer = new RequestLogWriter(log.toString())
+        {
+            @Override
+            public void write(String requestEntry)
+            {
+                entries.add(requestEntry);
+            }
+
+            @Override
+            public void write(CharSequence requestEntry) throws IOException
+            {
+                writeEntry(requestEntry);
+            }
+        };
+        writer.start();
+        try
+        {
+            writer.write(new StringBuilder("GET / HTTP/1.1"));
+        }
+        finally
+        {
+            writer.stop();
+        }
+
+        assertThat(entries, empty());
+        assertThat(Files.readAllLines(log, Charset.defaultCharset()), contains("GET / HTTP/1.1"));
+    }
+}
@@ -14,14 +14,19 @@
 package org.eclipse.jetty.server;
 
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 import org.eclipse.jetty.http.CompressedContentFormat;
 import org.eclipse.jetty.http.HttpContent;
@@ -31,6 +36,7 @@ import org.eclipse.jetty.toolchain.test.FS;
 import org.eclipse.jetty.toolchain.test.jupiter.WorkDir;
 import org.eclipse.jetty.toolchain.test.jupiter.WorkDirExtension;
 import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.IO;
 import org.eclipse.jetty.util.resource.PathResource;
 import org.eclipse.jetty.util.resource.Resource;
 import org.eclipse.jetty.util.resource.ResourceCollection;
@@ -41,8 +47,11 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @ExtendWith(WorkDirExtension.class)
@@ -356,6 +365,93 @@ public class ResourceCacheTest
         assertEquals(getContent(cache, "four"), "4 - four (no extension)");
     }
 
+    @Test
+    public void testCompressedVariant() throws Exception
+    {
+        Path basePath = workDir.getEmptyPathDir();
+        makeFile(basePath.resolve("big.txt"), "0123456789".repeat(1000));
+        makeFile(basePath.resolve("small.txt"), "0123456789");
+        Resource resource = new PathResource(basePath);
+
+        CachedContentFactory cache = new CachedContentFactory(null, resource, new MimeTypes(), false, true, new CompressedContentFormat[]{CompressedContentFormat.GZIP});
+        cache.setCompressedVariants(true);
+
+        // Small content is not compressed.
+        CachedContentFactory.CachedHttpContent small = (CachedContentFactory.CachedHttpContent)cache.getContent("small.txt", 4096);
+        assertFalse(small.startCompressedVariant());
+        assertThat(small.getPrecompressedContents(), nullValue());
+
+        // The variant is only available once generated.
+        List<Runnable> tasks = new ArrayList<>();
+        cache.setExecutor(tasks::add);
+        CachedContentFactory.CachedHttpContent content = (CachedContentFactory.CachedHttpContent)cache.getContent("big.txt", 4096);
+        assertThat(content.getPrecompressedContents(), nullValue());
+        assertTrue(content.startCompressedVariant());
+        assertTrue(content.startCompressedVariant());
+        assertThat(content.getPrecompressedContents(), nullValue());
+
+        // Concurrent requests are coalesced into a single compression.
+        assertEquals(1, tasks.size());
+        tasks.get(0).run();
+
+        Map<CompressedContentFormat, ? extends HttpContent> variants = content.getPrecompressedContents();
+        HttpContent gzip = variants.get(CompressedContentFormat.GZIP);
+        assertThat(gzip, not(nullValue()));
+        assertThat(gzip.getContentEncodingValue(), is("gzip"));
+        assertThat(gzip.getETagValue(), is(content.getResource().getWeakETag(CompressedContentFormat.GZIP.getEtagSuffix())));
+        assertThat(gzip.getContentLengthValue(), lessThan(content.getContentLengthValue()));
+        assertEquals(content.getContentLengthValue() + gzip.getContentLengthValue(), cache.getCachedSize());
+
+        byte[] bytes = BufferUtil.toArray(gzip.getIndirectBuffer());
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes)))
+        {
+            assertEquals("0123456789".repeat(1000), IO.toString(in, UTF_8));
+        }
+
+        // The variant is compressed only once, and only serving it counts as a hit.
+        Map<CompressedContentFormat, ? extends HttpContent> againVariants = cache.getContent("big.txt", 4096).getPrecompressedContents();
+        assertThat(againVariants, sameInstance(variants));
+        HttpContent again = againVariants.get(CompressedContentFormat.GZIP);
+        assertThat(again, sameInstance(gzip));
+        assertTrue(content.startCompressedVariant());
+        assertEquals(1, tasks.size());
+        assertEquals(1, cache.getCompressedVariantsCreated());
+        assertEquals(0, cache.getCompressedVariantHits());
+
+        // The variant is evicted with the content.
+        cache.flushCache();
+        assertEquals(0, cache.getCachedSize());
+    }
+
+    @Test
+    public void testCompressedVariantInDirectBuffer() throws Exception
+    {
+        Path basePath = workDir.getEmptyPathDir();
+        makeFile(basePath.resolve("big.txt"), "0123456789".repeat(1000));
+        Resource resource = new PathResource(basePath);
+
+        CachedContentFactory cache = new CachedContentFactory(null, resource, new MimeTypes(), false, true, new CompressedContentFormat[]{CompressedContentFormat.GZIP})
+        {
+            @Override
+            protected ByteBuffer compress(HttpContent content, CompressedContentFormat format)
+            {
+                ByteBuffer compressed = super.compress(content, format);
+                ByteBuffer direct = BufferUtil.allocateDirect(compressed.remaining());
+                BufferUtil.append(direct, compressed);
+                return direct;
+            }
+        };
+        cache.setCompressedVariants(true);
+
+        CachedContentFactory.CachedHttpContent content = (CachedContentFactory.CachedHttpContent)cache.getContent("big.txt", 4096);
+        assertTrue(content.startCompressedVariant());
+        HttpContent gzip = content.getPrecompressedContents().get(CompressedContentFormat.GZIP);
+        try (GZIPInputStream in = new GZIPInputStream(gzip.getInputStream()))
+        {
+            assertEquals("0123456789".repeat(1000), IO.toString(in, UTF_8));
+        }
+    }
+
     static String getContent(CachedContentFactory rc, String path) throws Exception
     {
         HttpContent content = rc.getContent(path, rc.getMaxCachedFileSize());
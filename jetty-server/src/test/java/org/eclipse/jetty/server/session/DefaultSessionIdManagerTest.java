@@ -0,0 +1,75 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server.session;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jetty.server.Server;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * DefaultSessionIdManagerTest
+ */
+public class DefaultSessionIdManagerTest
+{
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 4})
+    public void testConcurrentIdsUnique(int stripes) throws Exception
+    {
+        DefaultSessionIdManager idManager = new DefaultSessionIdManager(new Server());
+        idManager.setWorkerName("node0");
+        idManager.setRandomStripes(stripes);
+        idManager.start();
+        try
+        {
+            int threads = 8;
+            int ids = 1000;
+            Set<String> generated = ConcurrentHashMap.newKeySet();
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++)
+            {
+                Thread worker = new Thread(() ->
+                {
+                    for (int i = 0; i < ids; i++)
+                    {
+                        generated.add(idManager.newSessionId(i));
+                    }
+                });
+                workers.add(worker);
+                worker.start();
+            }
+            for (Thread worker : workers)
+            {
+                worker.join();
+            }
+
+            assertEquals(threads * ids, generated.size());
+            for (String id : generated)
+            {
+                assertTrue(id.startsWith("node0"));
+            }
+        }
+        finally
+        {
+            idManager.stop();
+        }
+    }
+}
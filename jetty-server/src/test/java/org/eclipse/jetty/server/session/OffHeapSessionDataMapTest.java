@@ -0,0 +1,160 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server.session;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.io.ArrayRetainableByteBufferPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * OffHeapSessionDataMapTest
+ */
+public class OffHeapSessionDataMapTest
+{
+    private OffHeapSessionDataMap _map;
+
+    @AfterEach
+    public void after() throws Exception
+    {
+        if (_map != null)
+            _map.stop();
+    }
+
+    private OffHeapSessionDataMap newMap(long maxCapacity) throws Exception
+    {
+        return newMap(maxCapacity, null);
+    }
+
+    private OffHeapSessionDataMap newMap(long maxCapacity, ArrayRetainableByteBufferPool pool) throws Exception
+    {
+        _map = new OffHeapSessionDataMap();
+        _map.setMaxCapacity(maxCapacity);
+        _map.setRetainableByteBufferPool(pool);
+        _map.initialize(new SessionContext("node0", null));
+        _map.start();
+        return _map;
+    }
+
+    private SessionData newSessionData(String id)
+    {
+        long now = System.currentTimeMillis();
+        SessionData data = new SessionData(id, "/test", "0.0.0.0", now, now, now, TimeUnit.MINUTES.toMillis(10));
+        data.setLastNode("node0");
+        data.setAttribute("name", "value");
+        return data;
+    }
+
+    @Test
+    public void testStoreLoadDelete() throws Exception
+    {
+        OffHeapSessionDataMap map = newMap(OffHeapSessionDataMap.DEFAULT_MAX_CAPACITY);
+
+        SessionData data = newSessionData("1234");
+        map.store("1234", data);
+        assertEquals(1, map.getSessions());
+        assertTrue(map.getCapacity() > 0);
+
+        SessionData loaded = map.load("1234");
+        assertNotNull(loaded);
+        assertNotSame(data, loaded);
+        assertEquals("1234", loaded.getId());
+        assertEquals(data.getExpiry(), loaded.getExpiry());
+        assertEquals("value", loaded.getAttribute("name"));
+
+        assertTrue(map.delete("1234"));
+        assertNull(map.load("1234"));
+        assertFalse(map.delete("1234"));
+        assertEquals(0, map.getCapacity());
+    }
+
+    @Test
+    public void testReplaceReleasesCapacity() throws Exception
+    {
+        OffHeapSessionDataMap map = newMap(OffHeapSessionDataMap.DEFAULT_MAX_CAPACITY);
+
+        SessionData data = newSessionData("1234");
+        map.store("1234", data);
+        long capacity = map.getCapacity();
+        map.store("1234", data);
+        assertEquals(capacity, map.getCapacity());
+        assertEquals(1, map.getSessions());
+    }
+
+    @Test
+    public void testSpillWhenFull() throws Exception
+    {
+        OffHeapSessionDataMap map = newMap(OffHeapSessionDataMap.DEFAULT_MAX_CAPACITY, new ArrayRetainableByteBufferPool());
+        map.store("1234", newSessionData("1234"));
+        long size = map.getCapacity();
+        map.stop();
+
+        //a pool that always pools the buffers of this size, so that their capacity is the same
+        map = newMap(size + size / 2, new ArrayRetainableByteBufferPool());
+        map.store("1234", newSessionData("1234"));
+        map.store("5678", newSessionData("5678"));
+
+        assertNotNull(map.load("1234"));
+        assertNull(map.load("5678"));
+        assertEquals(1, map.getSpills());
+        assertEquals(size, map.getCapacity());
+    }
+
+    @Test
+    public void testReplaceWhenFull() throws Exception
+    {
+        OffHeapSessionDataMap map = newMap(OffHeapSessionDataMap.DEFAULT_MAX_CAPACITY, new ArrayRetainableByteBufferPool());
+        map.store("1234", newSessionData("1234"));
+        long size = map.getCapacity();
+        map.stop();
+
+        map = newMap(size, new ArrayRetainableByteBufferPool());
+        map.store("1234", newSessionData("1234"));
+        map.store("1234", newSessionData("1234"));
+
+        assertNotNull(map.load("1234"));
+        assertEquals(0, map.getSpills());
+        assertEquals(size, map.getCapacity());
+    }
+
+    @Test
+    public void testPoolIsBoundedByMaxCapacity() throws Exception
+    {
+        long maxCapacity = 64 * 1024;
+        OffHeapSessionDataMap map = newMap(maxCapacity);
+        ArrayRetainableByteBufferPool pool = (ArrayRetainableByteBufferPool)map.getRetainableByteBufferPool();
+
+        //sessions of many sizes, stored then deleted, return their buffers to the pool
+        for (int i = 0; i < 200; i++)
+        {
+            SessionData data = newSessionData("id" + i);
+            data.setAttribute("bytes", new byte[i * 300]);
+            map.store("id" + i, data);
+            map.delete("id" + i);
+        }
+
+        assertEquals(0, map.getCapacity());
+        assertThat(pool.getDirectMemory(), lessThanOrEqualTo(maxCapacity));
+    }
+}
@@ -23,6 +23,7 @@ import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -275,6 +276,33 @@ public class SniSslConnectionFactoryTest
         assertThat(response.getStatus(), is(400));
     }
 
+    @Test
+    public void testSNISelectorModifiesCertificates() throws Exception
+    {
+        start(ssl ->
+        {
+            ssl.setKeyStorePath("src/test/resources/keystore_sni.p12");
+            ssl.setSNISelector((keyType, issuers, session, sniHost, certificates) ->
+            {
+                // Custom selectors are given their own copy of the certificates.
+                List<X509> list = (List<X509>)certificates;
+                list.sort(Comparator.comparing(X509::getAlias));
+                if (sniHost != null)
+                    list.removeIf(x509 -> !x509.matches(sniHost));
+                return ssl.sniSelect(keyType, issuers, session, sniHost, list);
+            });
+        });
+
+        for (int i = 0; i < 2; ++i)
+        {
+            String response = getResponse("jetty.eclipse.org", "jetty.eclipse.org");
+            assertThat(response, Matchers.containsString("X-HOST: jetty.eclipse.org"));
+
+            response = getResponse("www.example.com", "www.example.com");
+            assertThat(response, Matchers.containsString("X-HOST: www.example.com"));
+        }
+    }
+
     @DisabledOnOs(value = OS.WINDOWS, disabledReason = "See Issue #6609 - TLSv1.3 behavior differences between Linux and Windows")
     @Test
     public void testWrongSNIRejectedFunction() throws Exception
@@ -0,0 +1,147 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server.ssl;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.function.BooleanSupplier;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.SslConnectionFactory;
+import org.eclipse.jetty.server.SslHandshakeLimit;
+import org.eclipse.jetty.server.handler.DefaultHandler;
+import org.eclipse.jetty.util.IO;
+import org.eclipse.jetty.util.NanoTime;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SslHandshakeLimitTest
+{
+    private Server _server;
+    private ServerConnector _connector;
+    private SslHandshakeLimit _limit;
+
+    @BeforeEach
+    public void before() throws Exception
+    {
+        _server = new Server();
+
+        SslContextFactory.Server sslContextFactory = new SslContextFactory.Server();
+        sslContextFactory.setKeyStorePath(new File("src/test/resources/keystore.p12").getAbsolutePath());
+        sslContextFactory.setKeyStorePassword("storepwd");
+
+        _connector = new ServerConnector(_server,
+            new SslConnectionFactory(sslContextFactory, HttpVersion.HTTP_1_1.asString()),
+            new HttpConnectionFactory());
+        _server.addConnector(_connector);
+        _server.setHandler(new DefaultHandler());
+
+        _limit = new SslHandshakeLimit(1, _server);
+        _server.addBean(_limit);
+        _server.start();
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException
+    {
+        long start = NanoTime.now();
+        while (!condition.getAsBoolean())
+        {
+            assertFalse(NanoTime.secondsSince(start) > 5, "timeout");
+            Thread.sleep(10);
+        }
+    }
+
+    @AfterEach
+    public void after() throws Exception
+    {
+        _server.stop();
+    }
+
+    @Test
+    public void testPendingHandshakeLimitsAccepting() throws Exception
+    {
+        // A connection that does not complete the TLS handshake.
+        try (Socket socket = new Socket("localhost", _connector.getLocalPort()))
+        {
+            waitFor(_limit::isLimiting);
+            assertEquals(1, _limit.getHandshakes());
+            assertEquals(1, _limit.getLimited());
+            assertThat(_connector.isAccepting(), is(false));
+        }
+
+        waitFor(_connector::isAccepting);
+        assertEquals(0, _limit.getHandshakes());
+        assertThat(_limit.isLimiting(), is(false));
+    }
+
+    @Test
+    public void testStalledHandshakeTimesOut() throws Exception
+    {
+        _limit.setHandshakeTimeout(500);
+
+        // A connection that never sends a TLS record.
+        try (Socket socket = new Socket("localhost", _connector.getLocalPort()))
+        {
+            waitFor(_limit::isLimiting);
+
+            // The slot is freed and the connection closed.
+            socket.setSoTimeout(5000);
+            assertEquals(-1, socket.getInputStream().read());
+            waitFor(_connector::isAccepting);
+            assertEquals(0, _limit.getHandshakes());
+            assertEquals(1, _limit.getHandshakesTimedOut());
+        }
+    }
+
+    @Test
+    public void testHandshakeLatency() throws Exception
+    {
+        SslContextFactory.Client clientContextFactory = new SslContextFactory.Client(true);
+        clientContextFactory.start();
+        SSLContext sslContext = clientContextFactory.getSslContext();
+        try (SSLSocket socket = (SSLSocket)sslContext.getSocketFactory().createSocket("localhost", _connector.getLocalPort()))
+        {
+            socket.startHandshake();
+            OutputStream output = socket.getOutputStream();
+            output.write(("GET / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            output.flush();
+            assertThat(IO.toString(socket.getInputStream()), containsString("HTTP/1.1 404"));
+        }
+        finally
+        {
+            clientContextFactory.stop();
+        }
+
+        waitFor(() -> _limit.getHandshakes() == 0);
+        assertEquals(1, _limit.getHandshakesRecorded());
+        assertTrue(_limit.getHandshakeLatencyMean() > 0);
+        assertTrue(_connector.isAccepting());
+    }
+}
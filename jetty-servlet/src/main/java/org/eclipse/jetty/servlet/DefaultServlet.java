@@ -103,6 +103,13 @@ import org.slf4j.LoggerFactory;
  *  maxCachedFileSize The maximum size of a file to cache
  *  maxCachedFiles    The maximum number of files to cache
  *
+ *  compressedVariants
+ *                    If True and gzip is a precompressed format, cached resources without a
+ *                    precompressed file are gzipped once in memory, by the server thread pool
+ *                    when first requested by a client accepting gzip, and then served as
+ *                    precompressed content. The minimum size of resource to compress is set by
+ *                    minCompressedVariantSize (defaults to 1024).
+ *
  *  useFileMappedBuffer
  *                    If set to true, it will use mapped file buffer to serve static content
  *                    when using NIO connector. Setting this value to false means that
@@ -260,6 +267,10 @@ public class DefaultServlet extends HttpServlet implements ResourceFactory, Welc
                     _cache.setMaxCachedFileSize(maxCachedFileSize);
                 if (maxCachedFiles >= -1)
                     _cache.setMaxCachedFiles(maxCachedFiles);
+                _cache.setCompressedVariants(getInitBoolean("compressedVariants", false));
+                _cache.setMinCompressedVariantSize(getInitInt("minCompressedVariantSize", _cache.getMinCompressedVariantSize()));
+                if (_contextHandler.getServer() != null)
+                    _cache.setExecutor(_contextHandler.getServer().getThreadPool());
                 _servletContext.setAttribute(resourceCache == null ? "resourceCache" : resourceCache, _cache);
             }
         }
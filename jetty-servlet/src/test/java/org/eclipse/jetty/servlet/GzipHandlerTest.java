@@ -23,8 +23,13 @@ import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.Enumeration;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
 import javax.servlet.AsyncContext;
 import javax.servlet.DispatcherType;
 import javax.servlet.Filter;
@@ -44,7 +49,9 @@ import org.eclipse.jetty.http.HttpStatus;
 import org.eclipse.jetty.http.HttpTester;
 import org.eclipse.jetty.server.HttpOutput;
 import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.gzip.ContentCoding;
 import org.eclipse.jetty.server.handler.gzip.GzipHandler;
 import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.IO;
@@ -344,6 +351,177 @@ public class GzipHandlerTest
         assertEquals(__content, testOut.toString("UTF8"));
     }
 
+    @Test
+    public void testWildcardAcceptEncoding() throws Exception
+    {
+        HttpTester.Request request = HttpTester.newRequest();
+        request.setMethod("GET");
+        request.setURI("/ctx/content");
+        request.setVersion("HTTP/1.0");
+        request.setHeader("Host", "tester");
+        request.setHeader("accept-encoding", "br, *;q=0.5");
+
+        HttpTester.Response response = HttpTester.parseResponse(_connector.getResponse(request.generate()));
+        assertThat(response.getStatus(), is(200));
+        assertThat(response.get("Content-Encoding"), equalToIgnoringCase("gzip"));
+
+        request.setHeader("accept-encoding", "*, gzip;q=0");
+        response = HttpTester.parseResponse(_connector.getResponse(request.generate()));
+        assertThat(response.getStatus(), is(200));
+        assertThat(response.get("Content-Encoding"), not(equalToIgnoringCase("gzip")));
+        assertEquals(__content, response.getContent());
+    }
+
+    @Test
+    public void testIncompressibleContent() throws Exception
+    {
+        gzipHandler.setEntropyThreshold(7.5);
+
+        byte[] random = new byte[4096];
+        new Random().nextBytes(random);
+
+        HttpTester.Request request = HttpTester.newRequest();
+        request.setMethod("POST");
+        request.setURI("/ctx/echo/random");
+        request.setVersion("HTTP/1.0");
+        request.setHeader("Host", "tester");
+        request.setHeader("Content-Type", "application/x-random");
+        request.setHeader("accept-encoding", "gzip");
+        request.setContent(random);
+
+        HttpTester.Response response = HttpTester.parseResponse(_connector.getResponse(request.generate()));
+        assertThat(response.getStatus(), is(200));
+        assertThat(response.get("Content-Encoding"), nullValue());
+        assertThat(response.getContentBytes(), is(random));
+        assertThat(gzipHandler.getIncompressible(), is(1L));
+
+        // Text content is still compressed, and accounted per mime type.
+        request.setHeader("Content-Type", "text/plain");
+        request.setContent(__bytes);
+        response = HttpTester.parseResponse(_connector.getResponse(request.generate()));
+        assertThat(response.getStatus(), is(200));
+        assertThat(response.get("Content-Encoding"), is("gzip"));
+        assertThat(gzipHandler.getCompressionRatios().get("text/plain"), Matchers.lessThan(1.0));
+        assertThat(gzipHandler.getCompressionNanos().get("text/plain"), Matchers.greaterThan(0L));
+    }
+
+    @Test
+    public void testCompressionStatisticsAreBounded() throws Exception
+    {
+        HttpTester.Request request = HttpTester.newRequest();
+        request.setMethod("POST");
+        request.setURI("/ctx/echo/text");
+        request.setVersion("HTTP/1.0");
+        request.setHeader("Host", "tester");
+        request.setHeader("accept-encoding", "gzip");
+        request.setContent(__bytes);
+
+        for (int i = 0; i < 100; i++)
+        {
+            request.setHeader("Content-Type", "text/x-test-" + i);
+            HttpTester.Response response = HttpTester.parseResponse(_connector.getResponse(request.generate()));
+            assertThat(response.get("Content-Encoding"), is("gzip"));
+        }
+
+        Map<String, Double> ratios = gzipHandler.getCompressionRatios();
+        assertThat(ratios.size(), Matchers.lessThanOrEqualTo(65));
+        assertThat(ratios.get("other"), Matchers.lessThan(1.0));
+    }
+
+    @Test
+    public void testOverloadBypass() throws Exception
+    {
+        HttpTester.Request request = HttpTester.newRequest();
+        request.setMethod("GET");
+        request.setURI("/ctx/content");
+        request.setVersion("HTTP/1.0");
+        request.setHeader("Host", "tester");
+        request.setHeader("accept-encoding", "gzip");
+
+        // Any utilization is high load.
+        gzipHandler.setHighLoadUtilization(0);
+        HttpTester.Response response = HttpTester.parseResponse(_connector.getResponse(request.generate()));
+        assertThat(response.get("Content-Encoding"), is("gzip"));
+        assertThat(gzipHandler.getHighLoadCompressed(), is(1L));
+        InputStream testIn = new GZIPInputStream(new ByteArrayInputStream(response.getContentBytes()));
+        assertEquals(__content, IO.toString(testIn, StandardCharsets.UTF_8));
+
+        // Any utilization is overload.
+        gzipHandler.setOverloadUtilization(0);
+        response = HttpTester.parseResponse(_connector.getResponse(request.generate()));
+        assertThat(response.get("Content-Encoding"), nullValue());
+        assertThat(response.getContent(), is(__content));
+        assertThat(gzipHandler.getOverloadBypassed(), is(1L));
+    }
+
+    @Test
+    public void testIncompressibleContentReleasesEncoder() throws Exception
+    {
+        DeflateCoding coding = new DeflateCoding();
+        gzipHandler.addContentCoding(coding);
+        gzipHandler.setEntropyThreshold(7.5);
+
+        byte[] random = new byte[4096];
+        new Random().nextBytes(random);
+
+        HttpTester.Request request = HttpTester.newRequest();
+        request.setMethod("POST");
+        request.setURI("/ctx/echo/random");
+        request.setVersion("HTTP/1.0");
+        request.setHeader("Host", "tester");
+        request.setHeader("Content-Type", "application/x-random");
+        request.setHeader("accept-encoding", "deflate");
+        request.setContent(random);
+
+        HttpTester.Response response = HttpTester.parseResponse(_connector.getResponse(request.generate()));
+        assertThat(response.getStatus(), is(200));
+        assertThat(response.get("Content-Encoding"), nullValue());
+        assertThat(response.getContentBytes(), is(random));
+        assertThat(gzipHandler.getIncompressible(), is(1L));
+        assertThat(coding.encoders.get(), is(1));
+        assertThat(coding.released.get(), is(1));
+    }
+
+    @Test
+    public void testContentCodingNegotiation() throws Exception
+    {
+        _server.getChildHandlerByClass(GzipHandler.class).addContentCoding(new DeflateCoding());
+
+        HttpTester.Request request = HttpTester.newRequest();
+        request.setMethod("GET");
+        request.setURI("/ctx/content");
+        request.setVersion("HTTP/1.0");
+        request.setHeader("Host", "tester");
+
+        // The registered coding is preferred over gzip for the same quality.
+        request.setHeader("accept-encoding", "gzip, deflate");
+        HttpTester.Response response = HttpTester.parseResponse(_connector.getResponse(request.generate()));
+        assertThat(response.getStatus(), is(200));
+        assertThat(response.get("Content-Encoding"), equalToIgnoringCase("deflate"));
+        assertThat(response.get("Vary"), containsString("Accept-Encoding"));
+        ByteArrayOutputStream testOut = new ByteArrayOutputStream();
+        IO.copy(new InflaterInputStream(new ByteArrayInputStream(response.getContentBytes())), testOut);
+        assertEquals(__content, testOut.toString("UTF8"));
+
+        // Otherwise the coding with the highest quality is selected.
+        request.setHeader("accept-encoding", "gzip, deflate;q=0.5");
+        response = HttpTester.parseResponse(_connector.getResponse(request.generate()));
+        assertThat(response.get("Content-Encoding"), equalToIgnoringCase("gzip"));
+
+        request.setHeader("accept-encoding", "gzip;q=0.2, *;q=0.5");
+        response = HttpTester.parseResponse(_connector.getResponse(request.generate()));
+        assertThat(response.get("Content-Encoding"), equalToIgnoringCase("deflate"));
+
+        request.setHeader("accept-encoding", "deflate;q=0, *");
+        response = HttpTester.parseResponse(_connector.getResponse(request.generate()));
+        assertThat(response.get("Content-Encoding"), equalToIgnoringCase("gzip"));
+
+        request.setHeader("accept-encoding", "br");
+        response = HttpTester.parseResponse(_connector.getResponse(request.generate()));
+        assertThat(response.get("Content-Encoding"), nullValue());
+        assertEquals(__content, response.getContent());
+    }
+
     @Test
     public void testBlockingResponse() throws Exception
     {
@@ -936,4 +1114,84 @@ public class GzipHandlerTest
         {
         }
     }
+
+    private static class DeflateCoding implements ContentCoding
+    {
+        private static final CompressedContentFormat DEFLATE = new CompressedContentFormat("deflate", ".zz");
+
+        private final AtomicInteger encoders = new AtomicInteger();
+        private final AtomicInteger released = new AtomicInteger();
+
+        @Override
+        public CompressedContentFormat getFormat()
+        {
+            return DEFLATE;
+        }
+
+        @Override
+        public Encoder newEncoder(Request request)
+        {
+            encoders.incrementAndGet();
+            Deflater deflater = new Deflater();
+            return new Encoder()
+            {
+                @Override
+                public CompressedContentFormat getFormat()
+                {
+                    return DEFLATE;
+                }
+
+                @Override
+                public void setInput(ByteBuffer input)
+                {
+                    deflater.setInput(input);
+                }
+
+                @Override
+                public void finish()
+                {
+                    deflater.finish();
+                }
+
+                @Override
+                public boolean needsInput()
+                {
+                    return !deflater.finished() && deflater.needsInput();
+                }
+
+                @Override
+                public boolean finished()
+                {
+                    return deflater.finished();
+                }
+
+                @Override
+                public void encode(ByteBuffer output, boolean flush)
+                {
+                    int pos = BufferUtil.flipToFill(output);
+                    deflater.deflate(output, flush ? Deflater.SYNC_FLUSH : Deflater.NO_FLUSH);
+                    BufferUtil.flipToFlush(output, pos);
+                }
+
+                @Override
+                public long getBytesRead()
+                {
+                    return deflater.getBytesRead();
+                }
+
+                @Override
+                public long getBytesWritten()
+                {
+                    return deflater.getBytesWritten();
+                }
+
+                @Override
+                public void release()
+                {
+                    released.incrementAndGet();
+                    deflater.end();
+                }
+            };
+        }
+    }
 }
@@ -41,6 +41,14 @@ public class DeflaterPool extends CompressionPool<Deflater>
         this.nowrap = nowrap;
     }
 
+    /**
+     * @return the default compression level for Deflater objects
+     */
+    public int getCompressionLevel()
+    {
+        return compressionLevel;
+    }
+
     @Override
     protected Deflater newPooled()
     {
@@ -57,6 +65,8 @@ public class DeflaterPool extends CompressionPool<Deflater>
     protected void reset(Deflater deflater)
     {
         deflater.reset();
+        // Users may have changed the level of the pooled instance.
+        deflater.setLevel(compressionLevel);
     }
 
     public static DeflaterPool ensurePool(Container container)
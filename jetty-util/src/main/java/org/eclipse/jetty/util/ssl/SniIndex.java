@@ -0,0 +1,128 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util.ssl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jetty.util.StringUtil;
+
+/**
+ * <p>An index of {@link X509} certificates by the names they are valid for.</p>
+ * <p>{@link #match(String)} returns the same certificates as
+ * {@link X509#matches(String)} would, but with a constant number of hash
+ * lookups: one for the exact names, and two for the wildcard names (the host
+ * itself and the host without its first label, since a wildcard only covers
+ * one label), so that the cost of selecting a certificate from the SNI host
+ * does not depend on the number of certificates.
+ * Only IP address hosts, that cannot be indexed by name, are matched by
+ * iterating over the certificates.</p>
+ * <p>Instances are not thread-safe while being built, and are meant to be
+ * published once all the certificates have been {@link #add(X509) added}.</p>
+ */
+public class SniIndex
+{
+    private final Map<String, List<X509>> _hosts = new HashMap<>();
+    private final Map<String, List<X509>> _wilds = new HashMap<>();
+    private final List<X509> _certificates = new ArrayList<>();
+
+    /**
+     * @param x509 the certificate to index by its host and wildcard names
+     */
+    public void add(X509 x509)
+    {
+        _certificates.add(x509);
+        for (String host : x509.getHosts())
+        {
+            _hosts.computeIfAbsent(host, k -> new ArrayList<>(1)).add(x509);
+        }
+        for (String wild : x509.getWilds())
+        {
+            _wilds.computeIfAbsent(wild, k -> new ArrayList<>(1)).add(x509);
+        }
+    }
+
+    /**
+     * @return the number of indexed certificates
+     */
+    public int size()
+    {
+        return _certificates.size();
+    }
+
+    /**
+     * @param host the host, typically from the SNI extension
+     * @return the certificates that match the host, in the order they were added
+     * within exact and then wildcard matches
+     */
+    public List<X509> match(String host)
+    {
+        if (host == null)
+            return Collections.emptyList();
+        host = StringUtil.asciiToLowerCase(host);
+
+        List<X509> exact = _hosts.get(host);
+        List<X509> wildDomain = _wilds.get(host);
+        List<X509> wild = null;
+        int dot = host.indexOf('.');
+        if (dot >= 0)
+            wild = _wilds.get(host.substring(dot + 1));
+
+        if (exact == null && wildDomain == null && wild == null)
+        {
+            if (X509.seemsIPAddress(host))
+                return matchAll(host);
+            return Collections.emptyList();
+        }
+        if (wildDomain == null && wild == null)
+            return Collections.unmodifiableList(exact);
+        if (exact == null && wildDomain == null)
+            return Collections.unmodifiableList(wild);
+
+        Set<X509> matches = new LinkedHashSet<>();
+        addAll(matches, exact);
+        addAll(matches, wildDomain);
+        addAll(matches, wild);
+        return new ArrayList<>(matches);
+    }
+
+    private List<X509> matchAll(String host)
+    {
+        List<X509> matches = new ArrayList<>();
+        for (X509 x509 : _certificates)
+        {
+            if (x509.matches(host))
+                matches.add(x509);
+        }
+        return matches;
+    }
+
+    private static void addAll(Collection<X509> matches, List<X509> x509s)
+    {
+        if (x509s != null)
+            matches.addAll(x509s);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{certificates=%d,hosts=%d,wilds=%d}", getClass().getSimpleName(), hashCode(), _certificates.size(), _hosts.size(), _wilds.size());
+    }
+}
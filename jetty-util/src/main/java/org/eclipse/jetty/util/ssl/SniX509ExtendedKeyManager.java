@@ -17,13 +17,17 @@ import java.net.Socket;
 import java.security.Principal;
 import java.security.PrivateKey;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 import javax.net.ssl.ExtendedSSLSession;
@@ -50,6 +54,7 @@ public class SniX509ExtendedKeyManager extends X509ExtendedKeyManager
 
     private final X509ExtendedKeyManager _delegate;
     private final SslContextFactory.Server _sslContextFactory;
+    private final Map<String, ServerAliases> _serverAliases = new ConcurrentHashMap<>();
     private UnaryOperator<String> _aliasMapper = UnaryOperator.identity();
 
     public SniX509ExtendedKeyManager(X509ExtendedKeyManager keyManager, SslContextFactory.Server sslContextFactory)
@@ -88,6 +93,7 @@ public class SniX509ExtendedKeyManager extends X509ExtendedKeyManager
     public void setAliasMapper(UnaryOperator<String> aliasMapper)
     {
         _aliasMapper = Objects.requireNonNull(aliasMapper);
+        _serverAliases.clear();
     }
 
     @Override
@@ -102,7 +108,32 @@ public class SniX509ExtendedKeyManager extends X509ExtendedKeyManager
         return _delegate.chooseEngineClientAlias(keyType, issuers, engine);
     }
 
-    protected String chooseServerAlias(String keyType, Principal[] issuers, Collection<SNIMatcher> matchers, SSLSession session)
+    /**
+     * <p>Returns the aliases suitable for the given keyType and issuers, together with their certificates.</p>
+     * <p>The nested key manager does not change after creation, so when no issuers are specified,
+     * which is the common case, the result is computed once per keyType, rather than for every
+     * TLS handshake with a cost proportional to the number of certificates.</p>
+     *
+     * @param keyType the key algorithm type name
+     * @param issuers the list of acceptable CA issuer subject names or null if it does not matter which issuers are used
+     * @return the server aliases, or null if there are no suitable aliases
+     */
+    private ServerAliases findServerAliases(String keyType, Principal[] issuers)
+    {
+        if (issuers != null && issuers.length > 0)
+            return newServerAliases(keyType, issuers);
+        ServerAliases serverAliases = _serverAliases.get(keyType);
+        if (serverAliases == null)
+        {
+            serverAliases = newServerAliases(keyType, issuers);
+            if (serverAliases == null)
+                return null;
+            _serverAliases.putIfAbsent(keyType, serverAliases);
+        }
+        return serverAliases;
+    }
+
+    private ServerAliases newServerAliases(String keyType, Principal[] issuers)
     {
         // Look for the aliases that are suitable for the keyType and issuers.
         String[] mangledAliases = _delegate.getServerAliases(keyType, issuers);
@@ -114,6 +145,22 @@ public class SniX509ExtendedKeyManager extends X509ExtendedKeyManager
         Arrays.stream(mangledAliases)
             .forEach(alias -> aliasMap.put(getAliasMapper().apply(alias), alias));
 
+        // Filter the certificates by alias.
+        Set<X509> certificates = aliasMap.keySet().stream()
+            .map(_sslContextFactory::getX509)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        return new ServerAliases(Collections.unmodifiableMap(aliasMap), Collections.unmodifiableSet(certificates));
+    }
+
+    protected String chooseServerAlias(String keyType, Principal[] issuers, Collection<SNIMatcher> matchers, SSLSession session)
+    {
+        ServerAliases serverAliases = findServerAliases(keyType, issuers);
+        if (serverAliases == null)
+            return null;
+        Map<String, String> aliasMap = serverAliases._aliasMap;
+
         String host = null;
         if (session instanceof ExtendedSSLSession)
         {
@@ -144,17 +191,19 @@ public class SniX509ExtendedKeyManager extends X509ExtendedKeyManager
 
         try
         {
-            // Filter the certificates by alias.
-            Collection<X509> certificates = aliasMap.keySet().stream()
-                .map(_sslContextFactory::getX509)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-
             // Delegate the decision to accept to the sniSelector.
             SniSelector sniSelector = _sslContextFactory.getSNISelector();
+            String alias;
             if (sniSelector == null)
-                sniSelector = _sslContextFactory;
-            String alias = sniSelector.sniSelect(keyType, issuers, session, host, certificates);
+            {
+                // The default selector only looks up the certificates, so it uses the shared set.
+                alias = _sslContextFactory.sniSelect(keyType, issuers, session, host, serverAliases._certificates);
+            }
+            else
+            {
+                // Custom selectors may sort or filter the certificates in place.
+                alias = sniSelector.sniSelect(keyType, issuers, session, host, new ArrayList<>(serverAliases._certificates));
+            }
 
             // Check the selected alias.
             if (alias == null || alias == SniSelector.DELEGATE)
@@ -238,6 +287,18 @@ public class SniX509ExtendedKeyManager extends X509ExtendedKeyManager
         return _delegate.getServerAliases(keyType, issuers);
     }
 
+    private static class ServerAliases
+    {
+        private final Map<String, String> _aliasMap;
+        private final Set<X509> _certificates;
+
+        private ServerAliases(Map<String, String> aliasMap, Set<X509> certificates)
+        {
+            _aliasMap = aliasMap;
+            _certificates = certificates;
+        }
+    }
+
     /**
      * <p>Selects a certificate based on SNI information.</p>
      */
@@ -251,12 +312,17 @@ public class SniX509ExtendedKeyManager extends X509ExtendedKeyManager
          * <p>This method may be invoked multiple times during the TLS handshake, with different parameters.
          * For example, the {@code keyType} could be different, and subsequently the collection of certificates
          * (because they need to match the {@code keyType}).</p>
+         * <p>A selector configured with {@link SslContextFactory.Server#setSNISelector(SniSelector)}
+         * is passed a new modifiable {@link List} for every invocation, in the order of the nested
+         * key manager aliases. The default {@link SslContextFactory.Server#sniSelect(String, Principal[], SSLSession, String, Collection)}
+         * is instead passed an unmodifiable {@link java.util.Set}, computed once per {@code keyType} and shared
+         * by all the TLS handshakes, so that {@link Collection#contains(Object)} is a constant-time operation.</p>
          *
          * @param keyType the key algorithm type name
          * @param issuers the list of acceptable CA issuer subject names or null if it does not matter which issuers are used
          * @param session the TLS handshake session or null if not known.
          * @param sniHost the server name indication sent by the client, or null if the client did not send the server name indication
-         * @param certificates the list of certificates matching {@code keyType} and {@code issuers} known to this SslContextFactory
+         * @param certificates the certificates matching {@code keyType} and {@code issuers} known to this SslContextFactory
          * @return the alias of the certificate to return to the client, from the {@code certificates} list,
          * or {@link SniSelector#DELEGATE} if the certificate choice should be delegated to the
          * nested key manager or null for no match.
@@ -140,6 +140,7 @@ public abstract class SslContextFactory extends AbstractLifeCycle implements Dum
     private final Map<String, X509> _aliasX509 = new HashMap<>();
     private final Map<String, X509> _certHosts = new HashMap<>();
     private final Map<String, X509> _certWilds = new HashMap<>();
+    private volatile SniIndex _sniIndex = new SniIndex();
     private String[] _selectedProtocols;
     private boolean _useCipherSuitesOrder = true;
     private Comparator<String> _cipherComparator;
@@ -210,7 +211,7 @@ public abstract class SslContextFactory extends AbstractLifeCycle implements Dum
         super.doStart();
         try (AutoLock l = _lock.lock())
         {
-            load();
+            load(Collections.emptyMap());
         }
         checkConfiguration();
     }
@@ -261,7 +262,7 @@ public abstract class SslContextFactory extends AbstractLifeCycle implements Dum
         }
     }
 
-    private void load() throws Exception
+    private void load(Map<String, X509> previous) throws Exception
     {
         SSLContext context = _setContext;
         KeyStore keyStore = _setKeyStore;
@@ -297,6 +298,7 @@ public abstract class SslContextFactory extends AbstractLifeCycle implements Dum
                 // Look for X.509 certificates to create alias map
                 if (keyStore != null)
                 {
+                    SniIndex sniIndex = new SniIndex();
                     for (String alias : Collections.list(keyStore.aliases()))
                     {
                         Certificate certificate = keyStore.getCertificate(alias);
@@ -311,8 +313,12 @@ public abstract class SslContextFactory extends AbstractLifeCycle implements Dum
                                     LOG.debug("Skipping {}", x509C);
                                 continue;
                             }
-                            X509 x509 = new X509(alias, x509C);
+                            // Reuse the names parsed from certificates that did not change on reload.
+                            X509 x509 = previous.get(alias);
+                            if (x509 == null || !x509.getCertificate().equals(x509C))
+                                x509 = new X509(alias, x509C);
                             _aliasX509.put(alias, x509);
+                            sniIndex.add(x509);
 
                             if (isValidateCerts())
                             {
@@ -336,6 +342,8 @@ public abstract class SslContextFactory extends AbstractLifeCycle implements Dum
                             }
                         }
                     }
+
+                    _sniIndex = sniIndex;
                 }
 
                 // Instantiate key and trust managers
@@ -447,6 +455,7 @@ public abstract class SslContextFactory extends AbstractLifeCycle implements Dum
         _aliasX509.clear();
         _certHosts.clear();
         _certWilds.clear();
+        _sniIndex = new SniIndex();
     }
 
     Map<String, X509> aliasCerts()
@@ -464,6 +473,11 @@ public abstract class SslContextFactory extends AbstractLifeCycle implements Dum
         return _certWilds;
     }
 
+    SniIndex sniIndex()
+    {
+        return _sniIndex;
+    }
+
     @ManagedAttribute(value = "The selected TLS protocol versions", readonly = true)
     public String[] getSelectedProtocols()
     {
@@ -1897,8 +1911,9 @@ public abstract class SslContextFactory extends AbstractLifeCycle implements Dum
         try (AutoLock l = _lock.lock())
         {
             consumer.accept(this);
+            Map<String, X509> previous = new HashMap<>(_aliasX509);
             unload();
-            load();
+            load(previous);
         }
     }
 
@@ -2345,9 +2360,11 @@ public abstract class SslContextFactory extends AbstractLifeCycle implements Dum
             }
             else
             {
-                // Match the SNI host.
-                List<X509> matching = certificates.stream()
-                    .filter(x509 -> x509.matches(sniHost))
+                // Match the SNI host with the index, then restrict
+                // to the certificates valid for this keyType.
+                List<X509> anyMatching = sniIndex().match(sniHost);
+                List<X509> matching = anyMatching.stream()
+                    .filter(certificates::contains)
                     .collect(Collectors.toList());
 
                 if (matching.isEmpty())
@@ -2355,9 +2372,7 @@ public abstract class SslContextFactory extends AbstractLifeCycle implements Dum
                     // There is no match for this SNI among the certificates valid for
                     // this keyType; check if there is any certificate that matches this
                     // SNI, as we will likely be called again with a different keyType.
-                    boolean anyMatching = aliasCerts().values().stream()
-                        .anyMatch(x509 -> x509.matches(sniHost));
-                    alias = sniRequired || anyMatching ? null : SniX509ExtendedKeyManager.SniSelector.DELEGATE;
+                    alias = sniRequired || !anyMatching.isEmpty() ? null : SniX509ExtendedKeyManager.SniSelector.DELEGATE;
                 }
                 else
                 {
@@ -199,7 +199,7 @@ public class X509
         return false;
     }
 
-    private static boolean seemsIPAddress(String host)
+    static boolean seemsIPAddress(String host)
     {
         return IPV4_REGEXP.matcher(host).matches() || IPV6_REGEXP.matcher(host).matches();
     }
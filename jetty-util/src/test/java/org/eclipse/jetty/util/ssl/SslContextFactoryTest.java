@@ -23,7 +23,9 @@ import java.security.KeyStore;
 import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.regex.Matcher;
@@ -60,6 +62,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -344,6 +347,35 @@ public class SslContextFactoryTest
         assertFalse(cf.getX509("wild").matches("other.com"));
     }
 
+    @Test
+    public void testSNISelectWithIndex() throws Exception
+    {
+        SslContextFactory.Server cf = new SslContextFactory.Server();
+        cf.setKeyStoreResource(Resource.newSystemResource("snikeystore.p12"));
+        cf.setKeyStorePassword("storepwd");
+        cf.start();
+
+        Collection<X509> certificates = new HashSet<>(cf.aliasCerts().values());
+        assertEquals(certificates.size(), cf.sniIndex().size());
+        assertEquals("jetty", cf.sniSelect("RSA", null, null, "Jetty.Eclipse.org", certificates));
+        assertEquals("san", cf.sniSelect("RSA", null, null, "m.san.com", certificates));
+        assertEquals("wild", cf.sniSelect("RSA", null, null, "www.domain.com", certificates));
+        assertEquals("wild", cf.sniSelect("RSA", null, null, "domain.com", certificates));
+        assertEquals(SniX509ExtendedKeyManager.SniSelector.DELEGATE, cf.sniSelect("RSA", null, null, "foo.bar.domain.com", certificates));
+        assertEquals(SniX509ExtendedKeyManager.SniSelector.DELEGATE, cf.sniSelect("RSA", null, null, "eclipse.org", certificates));
+        // A matching certificate that is not valid for the keyType is not selected, nor delegated.
+        certificates.remove(cf.getX509("other"));
+        assertNull(cf.sniSelect("RSA", null, null, "www.example.com", certificates));
+
+        // The certificates that did not change are reused on reload.
+        X509 jetty = cf.getX509("jetty");
+        cf.reload(scf -> {});
+        assertSame(jetty, cf.getX509("jetty"));
+        assertEquals(List.of(jetty), cf.sniIndex().match("jetty.eclipse.org"));
+
+        cf.stop();
+    }
+
     @Test
     public void testNonDefaultKeyStoreTypeUsedForTrustStore() throws Exception
     {
@@ -91,6 +91,25 @@ public interface Configuration
      */
     void setMaxOutgoingFrames(int maxOutgoingFrames);
 
+    /**
+     * Get the maximum delay of small data frames sent without batching.
+     * If greater than zero, such frames are aggregated and written together with the frames sent
+     * after them, so that many small frames do not each require a separate write to the network.
+     * The aggregated frames are written at most this delay after the first of them was sent.
+     * The default value is zero, which writes frames sent without batching immediately.
+     *
+     * @return the auto batch delay
+     */
+    Duration getAutoBatchDelay();
+
+    /**
+     * Set the maximum delay of small data frames sent without batching.
+     *
+     * @param autoBatchDelay the auto batch delay (delay &lt;= 0 writes frames immediately)
+     * @see #getAutoBatchDelay()
+     */
+    void setAutoBatchDelay(Duration autoBatchDelay);
+
     interface Customizer
     {
         void customize(Configuration configurable);
@@ -107,6 +126,7 @@ public interface Configuration
         private Long maxBinaryMessageSize;
         private Long maxTextMessageSize;
         private Integer maxOutgoingFrames;
+        private Duration autoBatchDelay;
 
         @Override
         public Duration getIdleTimeout()
@@ -216,6 +236,18 @@ public interface Configuration
             this.maxOutgoingFrames = maxOutgoingFrames;
         }
 
+        @Override
+        public Duration getAutoBatchDelay()
+        {
+            return autoBatchDelay == null ? WebSocketConstants.DEFAULT_AUTO_BATCH_DELAY : autoBatchDelay;
+        }
+
+        @Override
+        public void setAutoBatchDelay(Duration autoBatchDelay)
+        {
+            this.autoBatchDelay = autoBatchDelay;
+        }
+
         @Override
         public void customize(Configuration configurable)
         {
@@ -237,16 +269,18 @@ public interface Configuration
                 configurable.setMaxTextMessageSize(maxTextMessageSize);
             if (maxOutgoingFrames != null)
                 configurable.setMaxOutgoingFrames(maxOutgoingFrames);
+            if (autoBatchDelay != null)
+                configurable.setAutoBatchDelay(autoBatchDelay);
         }
 
         @Override
         public String toString()
         {
             return String.format("%s@%x{idleTimeout=%s, writeTimeout=%s, autoFragment=%s, maxFrameSize=%s, " +
-                    "inputBufferSize=%s, outputBufferSize=%s, maxBinaryMessageSize=%s, maxTextMessageSize=%s, maxOutgoingFrames=%s}",
+                    "inputBufferSize=%s, outputBufferSize=%s, maxBinaryMessageSize=%s, maxTextMessageSize=%s, maxOutgoingFrames=%s, autoBatchDelay=%s}",
                 getClass().getSimpleName(), hashCode(),
                 idleTimeout, writeTimeout, autoFragment, maxFrameSize, inputBufferSize, outputBufferSize,
-                maxBinaryMessageSize, maxTextMessageSize, maxOutgoingFrames);
+                maxBinaryMessageSize, maxTextMessageSize, maxOutgoingFrames, autoBatchDelay);
         }
     }
 }
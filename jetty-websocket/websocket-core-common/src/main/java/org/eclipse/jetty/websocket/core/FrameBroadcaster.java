@@ -0,0 +1,223 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.websocket.core;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Sends the same {@link Frame} to many {@link CoreSession}s.</p>
+ * <p>The payload of the broadcast frame is shared by all the sessions: each session is sent a new frame
+ * with a slice of the payload, so that the payload is neither copied nor encoded once per session.
+ * On the server side the payload of unmasked frames is written directly by the flusher of each connection.
+ * Extensions that transform the payload (for example {@code permessage-deflate}) still run once per session,
+ * because with context takeover the compressed form of a message depends on the previous messages of the session.
+ * The payload must therefore not be modified until the broadcast callback has completed.</p>
+ * <p>Each session may have at most {@link #getMaxPendingFrames()} broadcast frames not yet written.
+ * A session that exceeds this limit is a slow consumer: the frame is not sent to it and,
+ * if {@link #isCloseSlowConsumers()} is true, the session is closed with {@link CloseStatus#TRY_AGAIN_LATER}.</p>
+ */
+@ManagedObject("Broadcasts frames to many sessions")
+public class FrameBroadcaster
+{
+    private static final Logger LOG = LoggerFactory.getLogger(FrameBroadcaster.class);
+
+    private final ConcurrentMap<CoreSession, AtomicInteger> pending = new ConcurrentHashMap<>();
+    private final LongAdder framesSent = new LongAdder();
+    private final LongAdder framesFailed = new LongAdder();
+    private final LongAdder slowConsumers = new LongAdder();
+    private int maxPendingFrames = 64;
+    private boolean closeSlowConsumers = true;
+
+    /**
+     * @return the maximum number of broadcast frames that may be pending for a single session
+     */
+    @ManagedAttribute("The maximum number of broadcast frames pending per session")
+    public int getMaxPendingFrames()
+    {
+        return maxPendingFrames;
+    }
+
+    /**
+     * @param maxPendingFrames the maximum number of broadcast frames that may be pending for a single session
+     */
+    public void setMaxPendingFrames(int maxPendingFrames)
+    {
+        if (maxPendingFrames <= 0)
+            throw new IllegalArgumentException("Invalid max pending frames " + maxPendingFrames);
+        this.maxPendingFrames = maxPendingFrames;
+    }
+
+    /**
+     * @return whether sessions that exceed the max pending frames are closed
+     */
+    @ManagedAttribute("Whether slow consumers are closed")
+    public boolean isCloseSlowConsumers()
+    {
+        return closeSlowConsumers;
+    }
+
+    /**
+     * @param closeSlowConsumers whether sessions that exceed the max pending frames are closed,
+     * if false the broadcast frames are only dropped for those sessions
+     */
+    public void setCloseSlowConsumers(boolean closeSlowConsumers)
+    {
+        this.closeSlowConsumers = closeSlowConsumers;
+    }
+
+    @ManagedAttribute("The number of frames sent to sessions")
+    public long getFramesSent()
+    {
+        return framesSent.sum();
+    }
+
+    @ManagedAttribute("The number of frames that failed to be sent to sessions")
+    public long getFramesFailed()
+    {
+        return framesFailed.sum();
+    }
+
+    @ManagedAttribute("The number of times a frame was not sent to a slow consumer")
+    public long getSlowConsumers()
+    {
+        return slowConsumers.sum();
+    }
+
+    @ManagedAttribute("The number of sessions with pending broadcast frames")
+    public int getPendingSessions()
+    {
+        return pending.size();
+    }
+
+    @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
+    public void resetStatistics()
+    {
+        framesSent.reset();
+        framesFailed.reset();
+        slowConsumers.reset();
+    }
+
+    /**
+     * Send a frame to many sessions.
+     *
+     * @param frame the frame to broadcast
+     * @param sessions the sessions to send the frame to
+     * @param callback the callback completed once the frame has been sent, failed or dropped for every session;
+     * it is always succeeded, failures to send to an individual session are only counted
+     * @param batch whether the frame may be batched by each session
+     */
+    public void broadcast(Frame frame, Collection<? extends CoreSession> sessions, Callback callback, boolean batch)
+    {
+        ByteBuffer payload = frame.getPayload();
+        AtomicInteger remaining = new AtomicInteger(sessions.size() + 1);
+        Runnable complete = () ->
+        {
+            if (remaining.decrementAndGet() == 0)
+                callback.succeeded();
+        };
+
+        for (CoreSession session : sessions)
+        {
+            if (!session.isOutputOpen())
+            {
+                complete.run();
+                continue;
+            }
+
+            if (!acquire(session))
+            {
+                slowConsumers.increment();
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Slow consumer {}", session);
+                if (closeSlowConsumers)
+                    session.close(CloseStatus.TRY_AGAIN_LATER, "Slow consumer", Callback.NOOP);
+                complete.run();
+                continue;
+            }
+
+            Frame copy = new Frame(frame.getOpCode(), frame.isFin(), payload == null ? null : payload.slice());
+            session.sendFrame(copy, Callback.from(() ->
+            {
+                framesSent.increment();
+                release(session);
+                complete.run();
+            }, x ->
+            {
+                framesFailed.increment();
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Failed broadcast to {}", session, x);
+                release(session);
+                complete.run();
+            }), batch);
+        }
+
+        complete.run();
+    }
+
+    /**
+     * Count a broadcast frame that was not sent to a session because the session cannot be
+     * sent a frame, for example because it is not supported by a subclass or because it is
+     * in the middle of sending a fragmented message.
+     *
+     * @param session the session not sent the frame
+     * @param cause the reason the frame was not sent
+     */
+    protected void notSent(Object session, Throwable cause)
+    {
+        framesFailed.increment();
+        if (LOG.isDebugEnabled())
+            LOG.debug("Not broadcast to {}", session, cause);
+    }
+
+    private boolean acquire(CoreSession session)
+    {
+        // The counts are only modified within compute, so the limit is checked atomically.
+        boolean[] acquired = new boolean[1];
+        pending.compute(session, (s, c) ->
+        {
+            if (c == null)
+                c = new AtomicInteger();
+            if (c.get() < maxPendingFrames)
+            {
+                c.incrementAndGet();
+                acquired[0] = true;
+            }
+            return c.get() == 0 ? null : c;
+        });
+        return acquired[0];
+    }
+
+    private void release(CoreSession session)
+    {
+        pending.computeIfPresent(session, (s, c) -> c.decrementAndGet() == 0 ? null : c);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[pending=%d,maxPending=%d]", getClass().getSimpleName(), hashCode(), pending.size(), maxPendingFrames);
+    }
+}
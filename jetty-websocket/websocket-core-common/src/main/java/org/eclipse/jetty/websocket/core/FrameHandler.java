@@ -14,6 +14,7 @@
 package org.eclipse.jetty.websocket.core;
 
 import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.thread.Invocable;
 
 /**
  * Interface for local WebSocket Endpoint Frame handling.
@@ -45,8 +46,15 @@ import org.eclipse.jetty.util.Callback;
  * <li>The {@link #onClosed(CloseStatus, Callback)} method is always called once a websocket connection is terminated, either gracefully or not. The error code
  * will indicate the nature of the close.</li>
  * </ul>
+ * <p>
+ * A FrameHandler that never blocks in its methods, and never blocks on the completion of the callbacks passed to them,
+ * may return {@link Invocable.InvocationType#NON_BLOCKING} from {@link #getInvocationType()}. Frames are then read,
+ * parsed and passed to {@link #onFrame(Frame, Callback)} directly by the selector thread, without a dispatch to
+ * the thread pool for each read. A demand made while frames are being handled on the same thread is still
+ * dispatched. There is no equivalent opt-in for annotated Jetty or javax endpoints, whose message sinks may block.
+ * </p>
  */
-public interface FrameHandler extends IncomingFrames
+public interface FrameHandler extends IncomingFrames, Invocable
 {
     /**
      * Async notification that Connection is being opened.
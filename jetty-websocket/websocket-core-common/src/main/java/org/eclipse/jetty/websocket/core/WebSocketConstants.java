@@ -31,6 +31,7 @@ public final class WebSocketConstants
     public static final boolean DEFAULT_AUTO_FRAGMENT = true;
     public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofSeconds(30);
     public static final Duration DEFAULT_WRITE_TIMEOUT = Duration.ZERO;
+    public static final Duration DEFAULT_AUTO_BATCH_DELAY = Duration.ZERO;
 
     /**
      * Globally Unique Identifier for use in WebSocket handshake within {@code Sec-WebSocket-Accept} and <code>Sec-WebSocket-Key</code> http headers.
@@ -61,13 +61,19 @@ public class FrameFlusher extends IteratingCallback
     private final List<Entry> entries;
     private final List<Entry> previousEntries;
     private final List<Entry> failedEntries;
+    private final List<Entry> autoBatchedEntries = new ArrayList<>();
+
+    private final LongAdder autoBatchedFrames = new LongAdder();
+    private final LongAdder autoFlushes = new LongAdder();
 
     private List<ByteBuffer> releasableBuffers = new ArrayList<>();
     private ByteBuffer batchBuffer;
+    private boolean batchBufferQueued;
     private boolean canEnqueue = true;
-    private boolean flushed = true;
     private Throwable closedCause;
     private long idleTimeout;
+    private long autoBatchDelay;
+    private boolean autoFlushScheduled;
     private boolean useDirectByteBuffers;
 
     public FrameFlusher(ByteBufferPool bufferPool, Scheduler scheduler, Generator generator, EndPoint endPoint, int bufferSize, int maxGather)
@@ -94,6 +100,29 @@ public class FrameFlusher extends IteratingCallback
         this.useDirectByteBuffers = useDirectByteBuffers;
     }
 
+    /**
+     * @return the max delay in nanoseconds of small data frames enqueued without batching, or 0 if they are written immediately
+     */
+    public long getAutoBatchDelay()
+    {
+        return autoBatchDelay;
+    }
+
+    /**
+     * <p>Set the max delay of small data frames enqueued without batching.</p>
+     * <p>If greater than zero, such frames are aggregated into the batch buffer as if they were enqueued with batching,
+     * and the batch buffer is flushed at most this delay after the first aggregated frame,
+     * or earlier if it fills up or a frame that cannot be aggregated is enqueued.
+     * Unlike the callbacks of batched frames, which are succeeded once the frame is aggregated,
+     * the callbacks of such frames are only succeeded once the batch buffer has been written.</p>
+     *
+     * @param autoBatchDelay the max delay in nanoseconds, or 0 to write such frames immediately
+     */
+    public void setAutoBatchDelay(long autoBatchDelay)
+    {
+        this.autoBatchDelay = autoBatchDelay;
+    }
+
     /**
      * Enqueue a Frame to be written to the endpoint.
      *
@@ -105,12 +134,16 @@ public class FrameFlusher extends IteratingCallback
      */
     public boolean enqueue(Frame frame, Callback callback, boolean batch)
     {
-        Entry entry = new Entry(frame, callback, batch);
+        long autoBatchDelay = this.autoBatchDelay;
+        boolean autoBatch = !batch && autoBatchDelay > 0 && frame != FLUSH_FRAME &&
+            frame.isDataFrame() && frame.getPayloadLength() < bufferSize / 4;
+        Entry entry = new Entry(frame, callback, batch || autoBatch, autoBatch);
         byte opCode = frame.getOpCode();
 
         Throwable dead;
         List<Entry> failedEntries = null;
         CloseStatus closeStatus = null;
+        boolean scheduleAutoFlush = false;
 
         try (AutoLock l = lock.lock())
         {
@@ -143,11 +176,18 @@ public class FrameFlusher extends IteratingCallback
                             break;
                     }
 
+                    // The first auto batched frame schedules a flush, which bounds the latency of the following ones.
+                    if (autoBatch && !autoFlushScheduled)
+                    {
+                        autoFlushScheduled = true;
+                        scheduleAutoFlush = true;
+                    }
+
                     /* If the queue was empty then no timeout has been set, so we set a timeout to check the current
                     entry when it expires. When the timeout expires we will go over entries in the queue and
                     entries list to see if any of them have expired, it will then reset the timeout for the frame
                     with the soonest expiry time. */
-                    if ((idleTimeout > 0) && (queue.size() == 1) && entries.isEmpty())
+                    if ((idleTimeout > 0) && (queue.size() == 1) && entries.isEmpty() && autoBatchedEntries.isEmpty())
                         timeoutScheduler.schedule(this::timeoutExpired, idleTimeout, TimeUnit.MILLISECONDS);
                 }
             }
@@ -175,6 +215,10 @@ public class FrameFlusher extends IteratingCallback
             if (LOG.isDebugEnabled())
                 LOG.debug("Enqueued {} to {}", entry, this);
 
+            if (autoBatch)
+                autoBatchedFrames.increment();
+            if (scheduleAutoFlush)
+                timeoutScheduler.schedule(this::autoFlush, autoBatchDelay, TimeUnit.NANOSECONDS);
             return true;
         }
 
@@ -182,6 +226,17 @@ public class FrameFlusher extends IteratingCallback
         return false;
     }
 
+    private void autoFlush()
+    {
+        try (AutoLock l = lock.lock())
+        {
+            autoFlushScheduled = false;
+        }
+        autoFlushes.increment();
+        if (enqueue(FLUSH_FRAME, Callback.NOOP, false))
+            iterate();
+    }
+
     public void onClose(Throwable cause)
     {
         try (AutoLock l = lock.lock())
@@ -208,7 +263,8 @@ public class FrameFlusher extends IteratingCallback
             previousEntries.addAll(entries);
             entries.clear();
 
-            if (flushed && batchBuffer != null)
+            // The batch buffer is reused once it has been written.
+            if (batchBuffer != null && !batchBufferQueued)
                 BufferUtil.clear(batchBuffer);
 
             while (!queue.isEmpty() && entries.size() <= maxGather)
@@ -225,7 +281,11 @@ public class FrameFlusher extends IteratingCallback
 
                 int batchSpace = batchBuffer == null ? bufferSize : BufferUtil.space(batchBuffer);
 
+                // The batchBuffer can only be appended to if it is the last buffer to be written.
+                boolean appendable = !batchBufferQueued || buffers.get(buffers.size() - 1) == batchBuffer;
+
                 boolean batch = entry.batch &&
+                    appendable &&
                     !entry.frame.isControlFrame() &&
                     entry.frame.getPayloadLength() < bufferSize / 4 &&
                     (batchSpace - Generator.MAX_HEADER_LENGTH) >= entry.frame.getPayloadLength();
@@ -234,19 +294,25 @@ public class FrameFlusher extends IteratingCallback
                 {
                     // Acquire a batchBuffer if we don't have one.
                     if (batchBuffer == null)
-                    {
                         batchBuffer = acquireBuffer(bufferSize);
-                        buffers.add(batchBuffer);
-                    }
+                    queueBatchBuffer();
 
                     // Generate the frame into the batchBuffer.
                     generator.generateWholeFrame(entry.frame, batchBuffer);
+
+                    // Auto batched entries are succeeded with the write of the batchBuffer.
+                    if (entry.autoBatch)
+                    {
+                        entries.remove(entries.size() - 1);
+                        autoBatchedEntries.add(entry);
+                    }
                 }
                 else
                 {
-                    if (batchBuffer != null && batchSpace >= Generator.MAX_HEADER_LENGTH)
+                    if (batchBuffer != null && appendable && batchSpace >= Generator.MAX_HEADER_LENGTH)
                     {
                         // Use the batch space for our header.
+                        queueBatchBuffer();
                         generator.generateHeader(entry.frame, batchBuffer);
                     }
                     else
@@ -273,13 +339,15 @@ public class FrameFlusher extends IteratingCallback
                     }
                     flush = true;
                 }
-
-                flushed = flush;
             }
 
             // If we are going to flush we should release any buffers we have allocated after the callback completes.
             if (flush)
             {
+                // The batchBuffer is written by this flush, so the auto batched entries are succeeded with it.
+                entries.addAll(autoBatchedEntries);
+                autoBatchedEntries.clear();
+
                 final List<ByteBuffer> callbackBuffers = releasableBuffers;
                 releasableBuffers = new ArrayList<>();
                 releasingCallback = Callback.from(releasingCallback, () ->
@@ -329,6 +397,7 @@ public class FrameFlusher extends IteratingCallback
             bytesOut.add(bytes);
             endPoint.write(releasingCallback, bufferArray);
             buffers.clear();
+            batchBufferQueued = false;
         }
         else
         {
@@ -339,6 +408,15 @@ public class FrameFlusher extends IteratingCallback
         return Action.SCHEDULED;
     }
 
+    private void queueBatchBuffer()
+    {
+        if (!batchBufferQueued)
+        {
+            buffers.add(batchBuffer);
+            batchBufferQueued = true;
+        }
+    }
+
     private ByteBuffer acquireBuffer(int capacity)
     {
         return bufferPool.acquire(capacity, isUseDirectByteBuffers());
@@ -367,7 +445,7 @@ public class FrameFlusher extends IteratingCallback
             /* Iterate through entries in both the queue and entries list.
             If any entry has expired then we fail the FrameFlusher.
             Otherwise we will try to schedule a new timeout. */
-            Iterator<Entry> iterator = TypeUtil.concat(entries.iterator(), queue.iterator());
+            Iterator<Entry> iterator = TypeUtil.concat(TypeUtil.concat(autoBatchedEntries.iterator(), entries.iterator()), queue.iterator());
             while (iterator.hasNext())
             {
                 Entry entry = iterator.next();
@@ -378,8 +456,10 @@ public class FrameFlusher extends IteratingCallback
                     failed = true;
                     canEnqueue = false;
                     closedCause = new WebSocketWriteTimeoutException("FrameFlusher Write Timeout");
+                    failedEntries.addAll(autoBatchedEntries);
                     failedEntries.addAll(entries);
                     failedEntries.addAll(queue);
+                    autoBatchedEntries.clear();
                     entries.clear();
                     queue.clear();
                     break;
@@ -390,7 +470,7 @@ public class FrameFlusher extends IteratingCallback
             }
 
             // if a timeout is set schedule a new timeout if we haven't failed and still have entries
-            if (!failed && idleTimeout > 0 && !(entries.isEmpty() && queue.isEmpty()))
+            if (!failed && idleTimeout > 0 && !(autoBatchedEntries.isEmpty() && entries.isEmpty() && queue.isEmpty()))
             {
                 long nextTimeout = earliestEntry + idleTimeout - currentTime;
                 timeoutScheduler.schedule(this::timeoutExpired, nextTimeout, TimeUnit.MILLISECONDS);
@@ -411,6 +491,9 @@ public class FrameFlusher extends IteratingCallback
             failedEntries.addAll(queue);
             queue.clear();
 
+            failedEntries.addAll(autoBatchedEntries);
+            autoBatchedEntries.clear();
+
             failedEntries.addAll(entries);
             entries.clear();
 
@@ -496,6 +579,24 @@ public class FrameFlusher extends IteratingCallback
         return bytesOut.longValue();
     }
 
+    /**
+     * @return the number of frames enqueued without batching that were aggregated
+     * @see #setAutoBatchDelay(long)
+     */
+    public long getAutoBatchedFrames()
+    {
+        return autoBatchedFrames.longValue();
+    }
+
+    /**
+     * @return the number of flushes triggered by the expiry of the auto batch delay
+     * @see #setAutoBatchDelay(long)
+     */
+    public long getAutoFlushes()
+    {
+        return autoFlushes.longValue();
+    }
+
     @Override
     public String toString()
     {
@@ -509,10 +610,12 @@ public class FrameFlusher extends IteratingCallback
     {
         private ByteBuffer headerBuffer;
         private final long timeOfCreation = System.currentTimeMillis();
+        private final boolean autoBatch;
 
-        private Entry(Frame frame, Callback callback, boolean batch)
+        private Entry(Frame frame, Callback callback, boolean batch, boolean autoBatch)
         {
             super(frame, callback, batch);
+            this.autoBatch = autoBatch;
         }
 
         private long getTimeOfCreation()
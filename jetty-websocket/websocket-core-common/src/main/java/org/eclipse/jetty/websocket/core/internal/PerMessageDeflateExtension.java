@@ -41,6 +41,21 @@ import org.slf4j.LoggerFactory;
  * Per Message Deflate Compression extension for WebSocket.
  * <p>
  * Attempts to follow <a href="https://tools.ietf.org/html/rfc7692">Compression Extensions for WebSocket</a>
+ * <p>
+ * The {@link Deflater} and {@link Inflater} are acquired from the pools of the {@link WebSocketComponents} when
+ * needed and, if the corresponding {@code no_context_takeover} parameter has been negotiated, released back to the
+ * pools at the end of each message so that idle sessions do not hold any compression memory.
+ * <p>
+ * The following private parameters (not sent to the remote endpoint) may be set on the negotiated configuration:
+ * <ul>
+ * <li>{@code @deflate_buffer_size} / {@code @inflate_buffer_size}: the size of the buffers used to compress and
+ * decompress frame payloads.</li>
+ * <li>{@code @min_compression_percent}: the minimum percentage of bytes that compression must save on outgoing
+ * messages; if the saving is lower once {@code @compression_sample_size} bytes have been compressed, outgoing
+ * messages are sent uncompressed for the rest of the session and the Deflater is released.
+ * Defaults to 0, which never disables compression.</li>
+ * <li>{@code @compression_sample_size}: the number of bytes to compress before checking the compression ratio.</li>
+ * </ul>
  */
 public class PerMessageDeflateExtension extends AbstractExtension implements DemandChain
 {
@@ -48,6 +63,7 @@ public class PerMessageDeflateExtension extends AbstractExtension implements Dem
     private static final ByteBuffer TAIL_BYTES_BUF = ByteBuffer.wrap(TAIL_BYTES);
     private static final Logger LOG = LoggerFactory.getLogger(PerMessageDeflateExtension.class);
     private static final int DEFAULT_BUF_SIZE = 8 * 1024;
+    private static final int DEFAULT_COMPRESSION_SAMPLE_SIZE = 64 * 1024;
 
     private final OutgoingFlusher outgoingFlusher;
     private final IncomingFlusher incomingFlusher;
@@ -61,6 +77,13 @@ public class PerMessageDeflateExtension extends AbstractExtension implements Dem
     private int inflateBufferSize = DEFAULT_BUF_SIZE;
     private boolean incomingContextTakeover = true;
     private boolean outgoingContextTakeover = true;
+    private int minCompressionPercent;
+    private int compressionSampleSize = DEFAULT_COMPRESSION_SAMPLE_SIZE;
+    private volatile boolean outgoingCompressionEnabled = true;
+    private volatile long deflaterInput;
+    private volatile long deflaterOutput;
+    private volatile long inflaterInput;
+    private volatile long inflaterOutput;
 
     public PerMessageDeflateExtension()
     {
@@ -133,6 +156,16 @@ public class PerMessageDeflateExtension extends AbstractExtension implements Dem
                     inflateBufferSize = config.getParameter(key, DEFAULT_BUF_SIZE);
                     break;
                 }
+                case "@min_compression_percent":
+                {
+                    minCompressionPercent = config.getParameter(key, 0);
+                    break;
+                }
+                case "@compression_sample_size":
+                {
+                    compressionSampleSize = config.getParameter(key, DEFAULT_COMPRESSION_SAMPLE_SIZE);
+                    break;
+                }
                 default:
                 {
                     throw new IllegalArgumentException();
@@ -216,6 +249,71 @@ public class PerMessageDeflateExtension extends AbstractExtension implements Dem
         }
     }
 
+    /**
+     * @return the number of uncompressed bytes given to the Deflater
+     */
+    public long getDeflaterInput()
+    {
+        return deflaterInput;
+    }
+
+    /**
+     * @return the number of compressed bytes produced by the Deflater
+     */
+    public long getDeflaterOutput()
+    {
+        return deflaterOutput;
+    }
+
+    /**
+     * @return the number of compressed bytes given to the Inflater
+     */
+    public long getInflaterInput()
+    {
+        return inflaterInput;
+    }
+
+    /**
+     * @return the number of uncompressed bytes produced by the Inflater
+     */
+    public long getInflaterOutput()
+    {
+        return inflaterOutput;
+    }
+
+    /**
+     * @return the ratio of compressed to uncompressed bytes of outgoing messages, or 1.0 if nothing has been compressed
+     */
+    public double getDeflateRatio()
+    {
+        long input = deflaterInput;
+        return input == 0 ? 1.0 : (double)deflaterOutput / input;
+    }
+
+    /**
+     * @return whether outgoing messages are compressed, false if compression has been disabled due to a poor ratio
+     * @see #getDeflateRatio()
+     */
+    public boolean isOutgoingCompressionEnabled()
+    {
+        return outgoingCompressionEnabled;
+    }
+
+    private void checkDeflateRatio()
+    {
+        if (minCompressionPercent <= 0 || deflaterInput < compressionSampleSize)
+            return;
+
+        long saved = deflaterInput - deflaterOutput;
+        if (saved * 100 < deflaterInput * minCompressionPercent)
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("Disabling outgoing compression, ratio {} {}", getDeflateRatio(), this);
+            outgoingCompressionEnabled = false;
+            releaseDeflater();
+        }
+    }
+
     @Override
     public String toString()
     {
@@ -264,6 +362,7 @@ public class PerMessageDeflateExtension extends AbstractExtension implements Dem
         private boolean _first;
         private Frame _frame;
         private boolean _batch;
+        private boolean _compressed;
 
         @Override
         protected boolean onFrame(Frame frame, Callback callback, boolean batch)
@@ -274,6 +373,16 @@ public class PerMessageDeflateExtension extends AbstractExtension implements Dem
                 return true;
             }
 
+            // Whether a message is compressed is only decided on its first frame.
+            if (frame.getOpCode() != OpCode.CONTINUATION)
+                _compressed = outgoingCompressionEnabled;
+            if (!_compressed)
+            {
+                nextOutgoingFrame(frame, callback, batch);
+                return true;
+            }
+
+            deflaterInput += frame.getPayloadLength();
             _first = true;
             _frame = frame;
             _batch = batch;
@@ -347,6 +456,9 @@ public class PerMessageDeflateExtension extends AbstractExtension implements Dem
 
             if (LOG.isDebugEnabled())
                 LOG.debug("Compressed {}: payload:{}", _frame, payload.remaining());
+            deflaterOutput += payload.remaining();
+            if (finished && _frame.isFin())
+                checkDeflateRatio();
 
             Frame chunk = new Frame(_first ? _frame.getOpCode() : OpCode.CONTINUATION);
             chunk.setRsv1(_first && _frame.getOpCode() != OpCode.CONTINUATION);
@@ -404,6 +516,7 @@ public class PerMessageDeflateExtension extends AbstractExtension implements Dem
                 }
 
                 // Provide the frames payload as input to the Inflater.
+                inflaterInput += frame.getPayloadLength();
                 _tailBytes = false;
                 getInflater().setInput(frame.getPayload().slice());
             }
@@ -459,6 +572,7 @@ public class PerMessageDeflateExtension extends AbstractExtension implements Dem
                 }
             }
 
+            inflaterOutput += payload.remaining();
             Frame chunk = new Frame(first ? frame.getOpCode() : OpCode.CONTINUATION);
             chunk.setRsv1(false);
             chunk.setPayload(payload);
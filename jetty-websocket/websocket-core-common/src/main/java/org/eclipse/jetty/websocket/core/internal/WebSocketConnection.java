@@ -33,6 +33,7 @@ import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.component.Dumpable;
 import org.eclipse.jetty.util.thread.AutoLock;
+import org.eclipse.jetty.util.thread.Invocable;
 import org.eclipse.jetty.util.thread.Scheduler;
 import org.eclipse.jetty.websocket.core.Behavior;
 import org.eclipse.jetty.websocket.core.Frame;
@@ -52,6 +53,12 @@ public class WebSocketConnection extends AbstractConnection implements Connectio
      */
     private static final int MIN_BUFFER_SIZE = Generator.MAX_HEADER_LENGTH;
 
+    /**
+     * Set while a thread fills and parses any connection, so that a demand made while
+     * handling a frame, possibly for another connection, is not filled and parsed inline.
+     */
+    private static final ThreadLocal<Boolean> FILLING_AND_PARSING = new ThreadLocal<>();
+
     private final AutoLock lock = new AutoLock();
     private final ByteBufferPool bufferPool;
     private final RetainableByteBufferPool retainableByteBufferPool;
@@ -68,6 +75,8 @@ public class WebSocketConnection extends AbstractConnection implements Connectio
     private RetainableByteBuffer networkBuffer;
     private boolean useInputDirectByteBuffers;
     private boolean useOutputDirectByteBuffers;
+    private final boolean nonBlocking;
+    private final Callback nonBlockingReadCallback = new NonBlockingReadCallback();
 
     /**
      * Create a WSConnection.
@@ -123,6 +132,7 @@ public class WebSocketConnection extends AbstractConnection implements Connectio
         this.parser = new Parser(bufferPool, coreSession);
         this.flusher = new Flusher(scheduler, coreSession.getOutputBufferSize(), generator, endp);
         this.setInputBufferSize(coreSession.getInputBufferSize());
+        this.nonBlocking = Invocable.getInvocationType(coreSession.getHandler()) == Invocable.InvocationType.NON_BLOCKING;
 
         if (this.coreSession.getBehavior() == Behavior.CLIENT && randomMask == null)
             randomMask = new SecureRandom();
@@ -380,8 +390,27 @@ public class WebSocketConnection extends AbstractConnection implements Connectio
 
         if (fillAndParse)
         {
-            // TODO can we just fillAndParse();
-            getExecutor().execute(this);
+            // A non blocking handler can be called by the thread that demands,
+            // unless that thread is already filling and parsing, to bound the stack.
+            if (nonBlocking && FILLING_AND_PARSING.get() == null)
+                fillAndParse();
+            else
+                getExecutor().execute(this);
+        }
+    }
+
+    @Override
+    public void fillInterested()
+    {
+        if (nonBlocking)
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("fillInterested non blocking {}", this);
+            getEndPoint().fillInterested(nonBlockingReadCallback);
+        }
+        else
+        {
+            super.fillInterested();
         }
     }
 
@@ -435,6 +464,22 @@ public class WebSocketConnection extends AbstractConnection implements Connectio
     }
 
     private void fillAndParse()
+    {
+        boolean nested = FILLING_AND_PARSING.get() != null;
+        if (!nested)
+            FILLING_AND_PARSING.set(Boolean.TRUE);
+        try
+        {
+            fillAndParseFrames();
+        }
+        finally
+        {
+            if (!nested)
+                FILLING_AND_PARSING.remove();
+        }
+    }
+
+    private void fillAndParseFrames()
     {
         acquireNetworkBuffer();
 
@@ -640,6 +685,33 @@ public class WebSocketConnection extends AbstractConnection implements Connectio
             flusher.iterate();
     }
 
+    private class NonBlockingReadCallback implements Callback
+    {
+        @Override
+        public void succeeded()
+        {
+            onFillable();
+        }
+
+        @Override
+        public void failed(Throwable x)
+        {
+            onFillInterestedFailed(x);
+        }
+
+        @Override
+        public InvocationType getInvocationType()
+        {
+            return InvocationType.NON_BLOCKING;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x{%s}", getClass().getSimpleName(), hashCode(), WebSocketConnection.this);
+        }
+    }
+
     private class Flusher extends FrameFlusher
     {
         private Flusher(Scheduler scheduler, int bufferSize, Generator generator, EndPoint endpoint)
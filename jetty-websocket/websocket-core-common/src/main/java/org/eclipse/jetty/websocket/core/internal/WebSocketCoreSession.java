@@ -81,6 +81,7 @@ public class WebSocketCoreSession implements IncomingFrames, CoreSession, Dumpab
     private long maxTextMessageSize = WebSocketConstants.DEFAULT_MAX_TEXT_MESSAGE_SIZE;
     private Duration idleTimeout = WebSocketConstants.DEFAULT_IDLE_TIMEOUT;
     private Duration writeTimeout = WebSocketConstants.DEFAULT_WRITE_TIMEOUT;
+    private Duration autoBatchDelay = WebSocketConstants.DEFAULT_AUTO_BATCH_DELAY;
     private ClassLoader classLoader;
 
     public WebSocketCoreSession(FrameHandler handler, Behavior behavior, Negotiated negotiated, WebSocketComponents components)
@@ -206,6 +207,7 @@ public class WebSocketCoreSession implements IncomingFrames, CoreSession, Dumpab
     {
         connection.getEndPoint().setIdleTimeout(idleTimeout.toMillis());
         connection.getFrameFlusher().setIdleTimeout(writeTimeout.toMillis());
+        connection.getFrameFlusher().setAutoBatchDelay(Math.max(0, autoBatchDelay.toNanos()));
         extensionStack.setLastDemand(connection::demand);
         this.connection = connection;
     }
@@ -646,6 +648,20 @@ public class WebSocketCoreSession implements IncomingFrames, CoreSession, Dumpab
         this.maxOutgoingFrames = maxOutgoingFrames;
     }
 
+    @Override
+    public Duration getAutoBatchDelay()
+    {
+        return autoBatchDelay;
+    }
+
+    @Override
+    public void setAutoBatchDelay(Duration autoBatchDelay)
+    {
+        this.autoBatchDelay = autoBatchDelay;
+        if (connection != null)
+            connection.getFrameFlusher().setAutoBatchDelay(Math.max(0, autoBatchDelay.toNanos()));
+    }
+
     private class IncomingAdaptor implements IncomingFrames
     {
         @Override
@@ -14,7 +14,10 @@
 package org.eclipse.jetty.websocket.core.internal.messages;
 
 import java.lang.invoke.MethodHandle;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
+import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.Utf8StringBuilder;
 import org.eclipse.jetty.websocket.core.CoreSession;
@@ -45,12 +48,20 @@ public class StringMessageSink extends AbstractMessageSink
                     size, maxTextMessageSize));
             }
 
-            if (out == null)
-                out = new Utf8StringBuilder(session.getInputBufferSize());
+            if (frame.isFin() && out == null)
+            {
+                // A single frame message is decoded directly from the payload.
+                methodHandle.invoke(toString(frame.getPayload()));
+            }
+            else
+            {
+                if (out == null)
+                    out = new Utf8StringBuilder(session.getInputBufferSize());
 
-            out.append(frame.getPayload());
-            if (frame.isFin())
-                methodHandle.invoke(out.toString());
+                out.append(frame.getPayload());
+                if (frame.isFin())
+                    methodHandle.invoke(out.toString());
+            }
 
             callback.succeeded();
             session.demand(1);
@@ -69,4 +80,41 @@ public class StringMessageSink extends AbstractMessageSink
             }
         }
     }
+
+    private static String toString(ByteBuffer payload)
+    {
+        if (BufferUtil.isEmpty(payload))
+            return "";
+
+        // Most text messages are ASCII, which can be decoded with a single copy.
+        if (isAscii(payload))
+            return BufferUtil.toString(payload, StandardCharsets.US_ASCII);
+
+        Utf8StringBuilder utf8 = new Utf8StringBuilder(payload.remaining());
+        utf8.append(payload);
+        return utf8.toString();
+    }
+
+    private static boolean isAscii(ByteBuffer buffer)
+    {
+        if (buffer.hasArray())
+        {
+            byte[] array = buffer.array();
+            int end = buffer.arrayOffset() + buffer.limit();
+            for (int i = buffer.arrayOffset() + buffer.position(); i < end; i++)
+            {
+                if (array[i] < 0)
+                    return false;
+            }
+        }
+        else
+        {
+            for (int i = buffer.position(); i < buffer.limit(); i++)
+            {
+                if (buffer.get(i) < 0)
+                    return false;
+            }
+        }
+        return true;
+    }
 }
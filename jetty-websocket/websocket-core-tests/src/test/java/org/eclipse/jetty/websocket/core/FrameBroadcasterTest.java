@@ -0,0 +1,114 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.websocket.core;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.FutureCallback;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class FrameBroadcasterTest
+{
+    @Test
+    public void testBroadcastSharesPayload() throws Exception
+    {
+        FrameBroadcaster broadcaster = new FrameBroadcaster();
+        List<CapturingSession> sessions = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+        {
+            sessions.add(new CapturingSession());
+        }
+
+        ByteBuffer payload = BufferUtil.toBuffer("Hello Everyone");
+        FutureCallback callback = new FutureCallback();
+        broadcaster.broadcast(new Frame(OpCode.TEXT, payload), sessions, callback, false);
+        assertThat(callback.isDone(), is(false));
+
+        for (CapturingSession session : sessions)
+        {
+            Frame frame = session.frames.get(0);
+            assertThat(frame.getOpCode(), is(OpCode.TEXT));
+            assertThat(frame.isFin(), is(true));
+            assertThat(frame.getPayloadAsUTF8(), is("Hello Everyone"));
+            // The payload is shared, not copied.
+            assertThat(frame.getPayload().array() == payload.array(), is(true));
+            // Consuming the payload of one session does not affect the others.
+            frame.getPayload().position(frame.getPayload().limit());
+            session.callbacks.remove(0).succeeded();
+        }
+
+        callback.block();
+        assertThat(broadcaster.getFramesSent(), is(3L));
+        assertThat(broadcaster.getPendingSessions(), is(0));
+        assertThat(payload.remaining(), is(14));
+    }
+
+    @Test
+    public void testSlowConsumer() throws Exception
+    {
+        FrameBroadcaster broadcaster = new FrameBroadcaster();
+        broadcaster.setMaxPendingFrames(2);
+        CapturingSession fast = new CapturingSession();
+        CapturingSession slow = new CapturingSession();
+        List<CapturingSession> sessions = List.of(fast, slow);
+
+        for (int i = 0; i < 3; i++)
+        {
+            broadcaster.broadcast(new Frame(OpCode.TEXT, "message" + i), sessions, Callback.NOOP, false);
+            fast.callbacks.remove(0).succeeded();
+        }
+
+        assertThat(fast.frames.size(), is(3));
+        assertThat(fast.closeStatus, nullValue());
+        assertThat(slow.frames.size(), is(2));
+        assertThat(slow.closeStatus, is(CloseStatus.TRY_AGAIN_LATER));
+        assertThat(broadcaster.getSlowConsumers(), is(1L));
+
+        // Once the pending frames complete the session can be sent to again.
+        slow.callbacks.remove(0).failed(new Exception("test"));
+        broadcaster.setCloseSlowConsumers(false);
+        broadcaster.broadcast(new Frame(OpCode.TEXT, "message3"), List.of(slow), Callback.NOOP, false);
+        assertThat(slow.frames.size(), is(3));
+        assertThat(broadcaster.getFramesFailed(), is(1L));
+    }
+
+    private static class CapturingSession extends CoreSession.Empty
+    {
+        private final List<Frame> frames = new ArrayList<>();
+        private final List<Callback> callbacks = new ArrayList<>();
+        private Integer closeStatus;
+
+        @Override
+        public void sendFrame(Frame frame, Callback callback, boolean batch)
+        {
+            frames.add(frame);
+            callbacks.add(callback);
+        }
+
+        @Override
+        public void close(int statusCode, String reason, Callback callback)
+        {
+            closeStatus = statusCode;
+            callback.succeeded();
+        }
+    }
+}
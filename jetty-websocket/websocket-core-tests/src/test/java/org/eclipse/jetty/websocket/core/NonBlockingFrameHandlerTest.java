@@ -0,0 +1,223 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.websocket.core;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.thread.Invocable;
+import org.eclipse.jetty.websocket.core.client.WebSocketCoreClient;
+import org.eclipse.jetty.websocket.core.server.WebSocketNegotiator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class NonBlockingFrameHandlerTest
+{
+    private WebSocketServer server;
+    private WebSocketCoreClient client;
+    private InvocationCapturingHandler serverHandler;
+
+    @AfterEach
+    public void shutdown() throws Exception
+    {
+        if (client != null)
+            client.stop();
+        if (server != null)
+            server.stop();
+    }
+
+    @Test
+    public void testNonBlockingHandlerCalledBySelector() throws Exception
+    {
+        InvocationCapturingHandler serverHandler = new InvocationCapturingHandler(Invocable.InvocationType.NON_BLOCKING);
+        start(serverHandler);
+
+        // Frames read once the connection is fill interested are handled directly by the non blocking read callback.
+        // The first frames may be read by the initial demand, before fill interest is registered.
+        int nonBlocking = 0;
+        for (boolean invocation : send(5))
+        {
+            if (invocation)
+                nonBlocking++;
+        }
+        assertThat(nonBlocking > 0, is(true));
+    }
+
+    @Test
+    public void testBlockingHandlerDispatched() throws Exception
+    {
+        InvocationCapturingHandler serverHandler = new InvocationCapturingHandler(Invocable.InvocationType.BLOCKING);
+        start(serverHandler);
+
+        for (boolean invocation : send(5))
+        {
+            assertThat(invocation, is(false));
+        }
+    }
+
+    @Test
+    public void testDemandWhileHandlingFrameIsDispatched() throws Exception
+    {
+        server = new WebSocketServer(WebSocketNegotiator.from(negotiation -> new EchoFrameHandler()));
+        client = new WebSocketCoreClient(null, new WebSocketComponents());
+        server.start();
+        client.start();
+
+        DemandingHandler second = new DemandingHandler(null);
+        DemandingHandler first = new DemandingHandler(second);
+        client.connect(first, server.getUri()).get(5, TimeUnit.SECONDS);
+        client.connect(second, server.getUri()).get(5, TimeUnit.SECONDS);
+
+        // The echo to the second session is left unread until the first session handles its echo,
+        // which demands for the second session from within the first session's fillAndParse.
+        second.coreSession.sendFrame(new Frame(OpCode.TEXT, "second"), Callback.NOOP, false);
+        Thread.sleep(500);
+        first.coreSession.demand(1);
+        first.coreSession.sendFrame(new Frame(OpCode.TEXT, "first"), Callback.NOOP, false);
+
+        assertThat(first.depths.poll(5, TimeUnit.SECONDS), is(1));
+        assertThat(second.depths.poll(5, TimeUnit.SECONDS), is(1));
+    }
+
+    private void start(InvocationCapturingHandler handler) throws Exception
+    {
+        serverHandler = handler;
+        server = new WebSocketServer(new TestWebSocketNegotiator(handler));
+        client = new WebSocketCoreClient(null, new WebSocketComponents());
+        server.start();
+        client.start();
+    }
+
+    private boolean[] send(int count) throws Exception
+    {
+        TestFrameHandler clientHandler = new TestFrameHandler();
+        client.connect(clientHandler, server.getUri()).get(5, TimeUnit.SECONDS);
+
+        boolean[] invocations = new boolean[count];
+        for (int i = 0; i < count; i++)
+        {
+            clientHandler.sendText("message" + i);
+            Frame frame = serverHandler.receivedFrames.poll(5, TimeUnit.SECONDS);
+            assertThat(frame.getPayloadAsUTF8(), is("message" + i));
+            invocations[i] = serverHandler.invocations.poll(5, TimeUnit.SECONDS);
+        }
+        clientHandler.sendClose();
+        return invocations;
+    }
+
+    private static class InvocationCapturingHandler extends TestFrameHandler
+    {
+        private final Invocable.InvocationType invocationType;
+        private final BlockingQueue<Boolean> invocations = new LinkedBlockingQueue<>();
+
+        private InvocationCapturingHandler(Invocable.InvocationType invocationType)
+        {
+            this.invocationType = invocationType;
+        }
+
+        @Override
+        public InvocationType getInvocationType()
+        {
+            return invocationType;
+        }
+
+        @Override
+        public void onFrame(Frame frame)
+        {
+            if (frame.getOpCode() == OpCode.TEXT)
+                invocations.offer(isNonBlockingRead());
+            super.onFrame(frame);
+        }
+
+        private static boolean isNonBlockingRead()
+        {
+            for (StackTraceElement element : Thread.currentThread().getStackTrace())
+            {
+                if (element.getClassName().endsWith("WebSocketConnection$NonBlockingReadCallback"))
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    private static class DemandingHandler implements FrameHandler
+    {
+        private final DemandingHandler next;
+        private final BlockingQueue<Integer> depths = new LinkedBlockingQueue<>();
+        private volatile CoreSession coreSession;
+
+        private DemandingHandler(DemandingHandler next)
+        {
+            this.next = next;
+        }
+
+        @Override
+        public InvocationType getInvocationType()
+        {
+            return InvocationType.NON_BLOCKING;
+        }
+
+        @Override
+        public boolean isDemanding()
+        {
+            return true;
+        }
+
+        @Override
+        public void onOpen(CoreSession coreSession, Callback callback)
+        {
+            this.coreSession = coreSession;
+            callback.succeeded();
+        }
+
+        @Override
+        public void onFrame(Frame frame, Callback callback)
+        {
+            callback.succeeded();
+            if (frame.getOpCode() != OpCode.TEXT)
+                return;
+            depths.offer(fillAndParseDepth());
+            if (next != null)
+                next.coreSession.demand(1);
+        }
+
+        @Override
+        public void onError(Throwable cause, Callback callback)
+        {
+            callback.succeeded();
+        }
+
+        @Override
+        public void onClosed(CloseStatus closeStatus, Callback callback)
+        {
+            callback.succeeded();
+        }
+
+        private static int fillAndParseDepth()
+        {
+            int depth = 0;
+            for (StackTraceElement element : Thread.currentThread().getStackTrace())
+            {
+                if (element.getClassName().endsWith("WebSocketConnection") && element.getMethodName().equals("fillAndParse"))
+                    depth++;
+            }
+            return depth;
+        }
+    }
+}
@@ -19,6 +19,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.jetty.toolchain.test.ByteBufferAssert;
@@ -525,6 +526,46 @@ public class PerMessageDeflateExtensionTest extends AbstractExtensionTest
         //assertThat("Frame.payload", actual.getPayload(), is(BufferUtil.EMPTY_BUFFER));
     }
 
+    @Test
+    public void testOutgoingCompressionDisabledOnPoorRatio() throws Exception
+    {
+        PerMessageDeflateExtension ext = new PerMessageDeflateExtension();
+        ext.init(ExtensionConfig.parse("permessage-deflate; @min_compression_percent=20; @compression_sample_size=1024"), components);
+        ext.setCoreSession(newSession());
+        OutgoingFramesCapture capture = new OutgoingFramesCapture();
+        ext.setNextOutgoingFrames(capture);
+
+        // Compressible messages keep compression enabled.
+        String text = "Hello World ".repeat(200);
+        ext.sendFrame(new Frame(OpCode.TEXT, true, text), Callback.NOOP, false);
+        assertThat(capture.frames.poll(1, TimeUnit.SECONDS).isRsv1(), is(true));
+        assertThat(ext.isOutgoingCompressionEnabled(), is(true));
+        assertThat(ext.getDeflaterInput(), is((long)text.length()));
+        assertThat(ext.getDeflateRatio() < 0.2, is(true));
+
+        // Random data does not compress, so compression is disabled after the message.
+        byte[] random = new byte[64 * 1024];
+        new Random(42).nextBytes(random);
+        ext.sendFrame(new Frame(OpCode.BINARY, true, ByteBuffer.wrap(random)), Callback.NOOP, false);
+        Frame frame = capture.frames.poll(1, TimeUnit.SECONDS);
+        while (!frame.isFin())
+        {
+            frame = capture.frames.poll(1, TimeUnit.SECONDS);
+        }
+        assertThat(ext.isOutgoingCompressionEnabled(), is(false));
+
+        // Subsequent messages, including their continuations, are sent uncompressed.
+        ext.sendFrame(new Frame(OpCode.TEXT, false, "Hello "), Callback.NOOP, false);
+        ext.sendFrame(new Frame(OpCode.CONTINUATION, true, "World"), Callback.NOOP, false);
+        frame = capture.frames.poll(1, TimeUnit.SECONDS);
+        assertThat(frame.isRsv1(), is(false));
+        assertThat(frame.getPayloadAsUTF8(), is("Hello "));
+        frame = capture.frames.poll(1, TimeUnit.SECONDS);
+        assertThat(frame.isRsv1(), is(false));
+        assertThat(frame.getPayloadAsUTF8(), is("World"));
+        assertThat(ext.getDeflaterInput(), is((long)text.length() + random.length));
+    }
+
     @Test
     public void testPyWebSocketClientNoContextTakeoverThreeOra()
     {
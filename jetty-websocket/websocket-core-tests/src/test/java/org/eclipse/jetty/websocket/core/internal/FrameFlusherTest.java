@@ -24,6 +24,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.jetty.io.ByteBufferPool;
@@ -46,6 +47,7 @@ import org.slf4j.LoggerFactory;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -226,10 +228,158 @@ public class FrameFlusherTest
         assertTrue(succeededCloseFrame.await(1, TimeUnit.SECONDS));
     }
 
+    @Test
+    public void testBatchedFramesAreAggregatedUntilFlush() throws Exception
+    {
+        Generator generator = new Generator();
+        CapturingEndPoint endPoint = new CapturingEndPoint(bufferPool);
+        FrameFlusher frameFlusher = new FrameFlusher(bufferPool, scheduler, generator, endPoint, 1024, 8);
+
+        FutureCallback batched = new FutureCallback();
+        assertTrue(frameFlusher.enqueue(new Frame(OpCode.TEXT).setPayload("frame0").setFin(true), batched, true));
+        for (int i = 1; i < 4; i++)
+        {
+            Frame frame = new Frame(OpCode.TEXT).setPayload("frame" + i).setFin(true);
+            assertTrue(frameFlusher.enqueue(frame, Callback.NOOP, true));
+        }
+        frameFlusher.iterate();
+
+        // Batched frames are succeeded once aggregated, and only written by a flush.
+        batched.get(5, TimeUnit.SECONDS);
+        assertThat(endPoint.writes.get(), is(0));
+
+        assertTrue(frameFlusher.enqueue(FrameFlusher.FLUSH_FRAME, Callback.NOOP, false));
+        frameFlusher.iterate();
+        for (int i = 0; i < 4; i++)
+        {
+            Frame frame = endPoint.incomingFrames.poll(5, TimeUnit.SECONDS);
+            assertThat(frame.getPayloadAsUTF8(), is("frame" + i));
+        }
+        assertThat(endPoint.writes.get(), is(1));
+    }
+
+    @Test
+    public void testFrameNotBatchedIsWrittenWithBatch() throws Exception
+    {
+        Generator generator = new Generator();
+        CapturingEndPoint endPoint = new CapturingEndPoint(bufferPool);
+        FrameFlusher frameFlusher = new FrameFlusher(bufferPool, scheduler, generator, endPoint, 1024, 8);
+
+        assertTrue(frameFlusher.enqueue(new Frame(OpCode.TEXT).setPayload("small").setFin(true), Callback.NOOP, true));
+        assertTrue(frameFlusher.enqueue(new Frame(OpCode.BINARY).setPayload(new byte[2048]).setFin(true), Callback.NOOP, false));
+        assertTrue(frameFlusher.enqueue(new Frame(OpCode.TEXT).setPayload("after").setFin(true), Callback.NOOP, false));
+        frameFlusher.iterate();
+
+        // The batch and the frames that are not batched are written in order, with a single write.
+        assertThat(endPoint.incomingFrames.poll(5, TimeUnit.SECONDS).getPayloadAsUTF8(), is("small"));
+        assertThat(endPoint.incomingFrames.poll(5, TimeUnit.SECONDS).getPayloadLength(), is(2048));
+        assertThat(endPoint.incomingFrames.poll(5, TimeUnit.SECONDS).getPayloadAsUTF8(), is("after"));
+        assertThat(endPoint.writes.get(), is(1));
+    }
+
+    @Test
+    public void testBatchBufferReusedAcrossFlushes() throws Exception
+    {
+        Generator generator = new Generator();
+        CapturingEndPoint endPoint = new CapturingEndPoint(bufferPool);
+        FrameFlusher frameFlusher = new FrameFlusher(bufferPool, scheduler, generator, endPoint, 1024, 1);
+
+        for (int i = 0; i < 4; i++)
+        {
+            Frame frame = new Frame(OpCode.TEXT).setPayload("frame" + i).setFin(true);
+            assertTrue(frameFlusher.enqueue(frame, Callback.NOOP, i % 2 == 0));
+        }
+        frameFlusher.iterate();
+
+        for (int i = 0; i < 4; i++)
+        {
+            Frame frame = endPoint.incomingFrames.poll(5, TimeUnit.SECONDS);
+            assertThat(frame.getPayloadAsUTF8(), is("frame" + i));
+        }
+    }
+
+    @Test
+    public void testAutoBatch() throws Exception
+    {
+        Generator generator = new Generator();
+        CapturingEndPoint endPoint = new CapturingEndPoint(bufferPool);
+        FrameFlusher frameFlusher = new FrameFlusher(bufferPool, scheduler, generator, endPoint, 4096, 8);
+        frameFlusher.setAutoBatchDelay(TimeUnit.MILLISECONDS.toNanos(100));
+
+        int count = 20;
+        for (int i = 0; i < count; i++)
+        {
+            Frame frame = new Frame(OpCode.TEXT).setPayload("frame" + i).setFin(true);
+            if (frameFlusher.enqueue(frame, Callback.NOOP, false))
+                frameFlusher.iterate();
+        }
+        assertThat(endPoint.writes.get(), is(0));
+
+        for (int i = 0; i < count; i++)
+        {
+            Frame frame = endPoint.incomingFrames.poll(5, TimeUnit.SECONDS);
+            assertThat(frame.getPayloadAsUTF8(), is("frame" + i));
+        }
+        assertThat(endPoint.writes.get(), is(1));
+        assertThat(frameFlusher.getAutoBatchedFrames(), is((long)count));
+        assertThat(frameFlusher.getAutoFlushes(), is(1L));
+
+        // Control frames and frames that do not fit the batch buffer are written immediately, after the aggregated frames.
+        frameFlusher.enqueue(new Frame(OpCode.TEXT).setPayload("small").setFin(true), Callback.NOOP, false);
+        frameFlusher.enqueue(new Frame(OpCode.BINARY).setPayload(new byte[2048]).setFin(true), Callback.NOOP, false);
+        frameFlusher.iterate();
+        assertThat(endPoint.incomingFrames.poll(5, TimeUnit.SECONDS).getPayloadAsUTF8(), is("small"));
+        assertThat(endPoint.incomingFrames.poll(5, TimeUnit.SECONDS).getPayloadLength(), is(2048));
+        assertThat(endPoint.writes.get(), is(2));
+    }
+
+    @Test
+    public void testAutoBatchSucceedsCallbacksOnceWritten() throws Exception
+    {
+        Generator generator = new Generator();
+        BlockingEndpoint endPoint = new BlockingEndpoint(bufferPool);
+        FrameFlusher frameFlusher = new FrameFlusher(bufferPool, scheduler, generator, endPoint, 4096, 8);
+        frameFlusher.setAutoBatchDelay(TimeUnit.SECONDS.toNanos(1));
+
+        FutureCallback first = new FutureCallback();
+        FutureCallback second = new FutureCallback();
+        assertTrue(frameFlusher.enqueue(new Frame(OpCode.TEXT).setPayload("first").setFin(true), first, false));
+        frameFlusher.iterate();
+        assertTrue(frameFlusher.enqueue(new Frame(OpCode.TEXT).setPayload("second").setFin(true), second, false));
+        frameFlusher.iterate();
+
+        // The aggregated frames are not yet written, so their callbacks are not yet succeeded.
+        assertThat(endPoint.writes.get(), is(0));
+        assertFalse(first.isDone());
+        assertFalse(second.isDone());
+
+        // A frame that is not aggregated writes the batch, which succeeds the callbacks.
+        FutureCallback large = new FutureCallback();
+        assertTrue(frameFlusher.enqueue(new Frame(OpCode.BINARY).setPayload(new byte[2048]).setFin(true), large, false));
+        frameFlusher.iterate();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        large.get(5, TimeUnit.SECONDS);
+        assertThat(endPoint.writes.get(), is(1));
+        assertThat(endPoint.incomingFrames.poll(5, TimeUnit.SECONDS).getPayloadAsUTF8(), is("first"));
+        assertThat(endPoint.incomingFrames.poll(5, TimeUnit.SECONDS).getPayloadAsUTF8(), is("second"));
+        assertThat(endPoint.incomingFrames.poll(5, TimeUnit.SECONDS).getPayloadLength(), is(2048));
+
+        // The callbacks of frames aggregated when the flusher fails are failed.
+        FutureCallback failed = new FutureCallback();
+        assertTrue(frameFlusher.enqueue(new Frame(OpCode.TEXT).setPayload("failed").setFin(true), failed, false));
+        frameFlusher.iterate();
+        assertFalse(failed.isDone());
+        frameFlusher.onClose(new ClosedChannelException());
+        ExecutionException x = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertThat(x.getCause(), instanceOf(ClosedChannelException.class));
+    }
+
     public static class CapturingEndPoint extends MockEndpoint
     {
         public Parser parser;
         public LinkedBlockingQueue<Frame> incomingFrames = new LinkedBlockingQueue<>();
+        public AtomicInteger writes = new AtomicInteger();
 
         public CapturingEndPoint(ByteBufferPool bufferPool)
         {
@@ -246,14 +396,17 @@ public class FrameFlusherTest
         public void write(Callback callback, ByteBuffer... buffers) throws WritePendingException
         {
             Objects.requireNonNull(callback);
+            writes.incrementAndGet();
             try
             {
                 for (ByteBuffer buffer : buffers)
                 {
-                    Parser.ParsedFrame frame = parser.parse(buffer);
-                    if (frame != null)
+                    while (buffer.hasRemaining())
                     {
-                        incomingFrames.offer(frame);
+                        Parser.ParsedFrame frame = parser.parse(buffer);
+                        if (frame == null)
+                            break;
+                        incomingFrames.offer(Frame.copy(frame));
                     }
                 }
                 callback.succeeded();
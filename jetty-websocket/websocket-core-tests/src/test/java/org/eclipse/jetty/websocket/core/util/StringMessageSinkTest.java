@@ -70,6 +70,29 @@ public class StringMessageSinkTest
         assertThat(endpoint.messages.poll(5, TimeUnit.SECONDS), is("\uD800\uDF48")); // UTF-8 encoded payload.
     }
 
+    @Test
+    public void testAsciiSingleFrame() throws Exception
+    {
+        StringMessageSink messageSink = new StringMessageSink(coreSession, endpoint.getMethodHandle());
+        ByteBuffer heapPayload = BufferUtil.toBuffer("Hello World");
+        ByteBuffer directPayload = BufferUtil.toDirectBuffer("Hello Direct World");
+
+        FutureCallback callback = new FutureCallback();
+        messageSink.accept(new Frame(OpCode.TEXT, heapPayload).setFin(true), callback);
+        callback.block(5, TimeUnit.SECONDS);
+        assertThat(endpoint.messages.poll(5, TimeUnit.SECONDS), is("Hello World"));
+
+        callback = new FutureCallback();
+        messageSink.accept(new Frame(OpCode.TEXT, directPayload).setFin(true), callback);
+        callback.block(5, TimeUnit.SECONDS);
+        assertThat(endpoint.messages.poll(5, TimeUnit.SECONDS), is("Hello Direct World"));
+
+        callback = new FutureCallback();
+        messageSink.accept(new Frame(OpCode.TEXT).setFin(true), callback);
+        callback.block(5, TimeUnit.SECONDS);
+        assertThat(endpoint.messages.poll(5, TimeUnit.SECONDS), is(""));
+    }
+
     @Test
     public void testUtf8Continuation() throws Exception
     {
@@ -0,0 +1,80 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.websocket.javax.common;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import javax.websocket.SendHandler;
+import javax.websocket.Session;
+
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.websocket.core.CoreSession;
+import org.eclipse.jetty.websocket.core.Frame;
+import org.eclipse.jetty.websocket.core.FrameBroadcaster;
+import org.eclipse.jetty.websocket.core.OpCode;
+
+/**
+ * <p>Sends the same message to many {@link Session}s, encoding it only once.</p>
+ * <p>The message is not sent, and counted as failed, to sessions that are not
+ * {@link JavaxWebSocketSession}s or that are sending a partial message with
+ * {@link javax.websocket.RemoteEndpoint.Basic#sendText(String, boolean)} or
+ * {@link javax.websocket.RemoteEndpoint.Basic#sendBinary(ByteBuffer, boolean)},
+ * as its frame would otherwise be interleaved with the fragments of that message.</p>
+ *
+ * @see FrameBroadcaster
+ */
+public class JavaxWebSocketBroadcaster extends FrameBroadcaster
+{
+    /**
+     * Send a text message to many sessions.
+     *
+     * @param text the message to send
+     * @param sessions the sessions to send the message to
+     * @param handler the handler notified once the message has been sent, failed or dropped for every session
+     */
+    public void broadcastText(String text, Collection<? extends Session> sessions, SendHandler handler)
+    {
+        broadcast(new Frame(OpCode.TEXT, text), sessions, handler);
+    }
+
+    /**
+     * Send a binary message to many sessions.
+     *
+     * @param data the message to send, which must not be modified until the handler is notified
+     * @param sessions the sessions to send the message to
+     * @param handler the handler notified once the message has been sent, failed or dropped for every session
+     */
+    public void broadcastBinary(ByteBuffer data, Collection<? extends Session> sessions, SendHandler handler)
+    {
+        broadcast(new Frame(OpCode.BINARY, data), sessions, handler);
+    }
+
+    private void broadcast(Frame frame, Collection<? extends Session> sessions, SendHandler handler)
+    {
+        List<CoreSession> coreSessions = new ArrayList<>(sessions.size());
+        for (Session session : sessions)
+        {
+            if (!(session instanceof JavaxWebSocketSession))
+                notSent(session, new IllegalArgumentException("Unsupported session " + session));
+            else if (((JavaxWebSocketSession)session).isMessageInProgress())
+                notSent(session, new IllegalStateException("Partial message in progress"));
+            else
+                coreSessions.add(((JavaxWebSocketSession)session).getCoreSession());
+        }
+        Callback callback = handler == null ? Callback.NOOP : new SendHandlerCallback(handler);
+        broadcast(frame, coreSessions, callback, false);
+    }
+}
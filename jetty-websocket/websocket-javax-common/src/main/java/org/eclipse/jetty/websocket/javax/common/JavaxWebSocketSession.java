@@ -241,6 +241,14 @@ public class JavaxWebSocketSession implements javax.websocket.Session
         return asyncRemote;
     }
 
+    /**
+     * @return whether a partial message has been started, but not finished, by a remote endpoint of this session
+     */
+    boolean isMessageInProgress()
+    {
+        return (asyncRemote != null && asyncRemote.messageType != -1) || (basicRemote != null && basicRemote.messageType != -1);
+    }
+
     /**
      * {@inheritDoc}
      *
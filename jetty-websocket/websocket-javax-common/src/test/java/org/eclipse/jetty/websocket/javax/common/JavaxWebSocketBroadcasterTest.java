@@ -0,0 +1,104 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.websocket.javax.common;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.websocket.core.CoreSession;
+import org.eclipse.jetty.websocket.core.Frame;
+import org.eclipse.jetty.websocket.core.OpCode;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JavaxWebSocketBroadcasterTest
+{
+    private static final JavaxWebSocketContainer container = new DummyContainer();
+
+    @BeforeAll
+    public static void startContainer() throws Exception
+    {
+        container.start();
+    }
+
+    @AfterAll
+    public static void stopContainer() throws Exception
+    {
+        container.stop();
+    }
+
+    private JavaxWebSocketSession newSession(RecordingCoreSession coreSession) throws Exception
+    {
+        Object endpoint = new AbstractSessionTest.DummyEndpoint();
+        JavaxWebSocketFrameHandler frameHandler = container.newFrameHandler(endpoint, new UpgradeRequestAdapter());
+        return new JavaxWebSocketSession(container, coreSession, frameHandler, container.getFrameHandlerFactory()
+            .newDefaultEndpointConfig(endpoint.getClass()));
+    }
+
+    @Test
+    public void testBroadcastSkipsPartialMessagesAndForeignSessions() throws Exception
+    {
+        RecordingCoreSession idleCore = new RecordingCoreSession();
+        JavaxWebSocketSession idle = newSession(idleCore);
+        RecordingCoreSession partialCore = new RecordingCoreSession();
+        JavaxWebSocketSession partial = newSession(partialCore);
+        partial.getBasicRemote().sendText("fragment", false);
+        Session foreign = (Session)Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class}, (proxy, method, args) ->
+        {
+            if ("toString".equals(method.getName()))
+                return "ForeignSession";
+            throw new UnsupportedOperationException(method.getName());
+        });
+
+        JavaxWebSocketBroadcaster broadcaster = new JavaxWebSocketBroadcaster();
+        CompletableFuture<SendResult> complete = new CompletableFuture<>();
+        broadcaster.broadcastText("hello", List.of(idle, partial, foreign), complete::complete);
+        assertTrue(complete.get(5, TimeUnit.SECONDS).isOK());
+
+        assertThat(idleCore.opCodes, contains(OpCode.TEXT));
+        // The fragmented message is not interleaved with the broadcast frame
+        assertThat(partialCore.opCodes, contains(OpCode.TEXT));
+        assertThat(broadcaster.getFramesSent(), is(1L));
+        assertThat(broadcaster.getFramesFailed(), is(2L));
+
+        // Once the message is complete, the session is broadcast to again
+        partial.getBasicRemote().sendText("end", true);
+        broadcaster.broadcastText("again", List.of(partial), null);
+        assertThat(partialCore.opCodes, contains(OpCode.TEXT, OpCode.CONTINUATION, OpCode.TEXT));
+    }
+
+    private static class RecordingCoreSession extends CoreSession.Empty
+    {
+        private final List<Byte> opCodes = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void sendFrame(Frame frame, Callback callback, boolean batch)
+        {
+            opCodes.add(frame.getOpCode());
+            callback.succeeded();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.websocket.common;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.core.CoreSession;
+import org.eclipse.jetty.websocket.core.Frame;
+import org.eclipse.jetty.websocket.core.FrameBroadcaster;
+import org.eclipse.jetty.websocket.core.OpCode;
+
+/**
+ * <p>Sends the same message to many Jetty WebSocket {@link Session}s, encoding it only once.</p>
+ * <p>The message is not sent, and counted as failed, to sessions that are not
+ * {@link WebSocketSession}s or that are sending a partial message with
+ * {@link org.eclipse.jetty.websocket.api.RemoteEndpoint#sendPartialString(String, boolean)} or
+ * {@link org.eclipse.jetty.websocket.api.RemoteEndpoint#sendPartialBytes(ByteBuffer, boolean)},
+ * as its frame would otherwise be interleaved with the fragments of that message.</p>
+ *
+ * @see FrameBroadcaster
+ */
+public class JettyWebSocketBroadcaster extends FrameBroadcaster
+{
+    /**
+     * Send a text message to many sessions.
+     *
+     * @param text the message to send
+     * @param sessions the sessions to send the message to
+     * @param callback the callback notified once the message has been sent, failed or dropped for every session
+     */
+    public void broadcastString(String text, Collection<? extends Session> sessions, WriteCallback callback)
+    {
+        broadcast(new Frame(OpCode.TEXT, text), sessions, callback);
+    }
+
+    /**
+     * Send a binary message to many sessions.
+     *
+     * @param data the message to send, which must not be modified until the callback is notified
+     * @param sessions the sessions to send the message to
+     * @param callback the callback notified once the message has been sent, failed or dropped for every session
+     */
+    public void broadcastBytes(ByteBuffer data, Collection<? extends Session> sessions, WriteCallback callback)
+    {
+        broadcast(new Frame(OpCode.BINARY, data), sessions, callback);
+    }
+
+    private void broadcast(Frame frame, Collection<? extends Session> sessions, WriteCallback callback)
+    {
+        List<CoreSession> coreSessions = new ArrayList<>(sessions.size());
+        for (Session session : sessions)
+        {
+            if (!(session instanceof WebSocketSession))
+                notSent(session, new IllegalArgumentException("Unsupported session " + session));
+            else if (((WebSocketSession)session).getRemote().isMessageInProgress())
+                notSent(session, new IllegalStateException("Partial message in progress"));
+            else
+                coreSessions.add(((WebSocketSession)session).getCoreSession());
+        }
+        Callback cb = callback == null ? Callback.NOOP : Callback.from(callback::writeSuccess, callback::writeFailed);
+        broadcast(frame, coreSessions, cb, false);
+    }
+}
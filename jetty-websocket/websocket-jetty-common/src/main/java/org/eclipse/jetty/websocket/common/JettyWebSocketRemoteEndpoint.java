@@ -215,6 +215,14 @@ public class JettyWebSocketRemoteEndpoint implements org.eclipse.jetty.websocket
         coreSession.setMaxOutgoingFrames(maxOutgoingFrames);
     }
 
+    /**
+     * @return whether a partial message has been started but not finished
+     */
+    boolean isMessageInProgress()
+    {
+        return messageType != -1;
+    }
+
     private boolean isBatch()
     {
         return BatchMode.ON == batchMode;
@@ -0,0 +1,118 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.websocket.common;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.core.CoreSession;
+import org.eclipse.jetty.websocket.core.Frame;
+import org.eclipse.jetty.websocket.core.OpCode;
+import org.eclipse.jetty.websocket.core.WebSocketComponents;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JettyWebSocketBroadcasterTest
+{
+    private DummyContainer container;
+    private WebSocketComponents components;
+    private JettyWebSocketFrameHandlerFactory endpointFactory;
+
+    @BeforeEach
+    public void before() throws Exception
+    {
+        container = new DummyContainer();
+        components = new WebSocketComponents();
+        endpointFactory = new JettyWebSocketFrameHandlerFactory(container, components);
+        LifeCycle.start(container);
+        LifeCycle.start(components);
+    }
+
+    @AfterEach
+    public void after()
+    {
+        LifeCycle.stop(components);
+        LifeCycle.stop(container);
+    }
+
+    private WebSocketSession newSession(RecordingCoreSession coreSession)
+    {
+        return new WebSocketSession(container, coreSession, endpointFactory.newJettyFrameHandler(new WebSocketAdapter()));
+    }
+
+    @Test
+    public void testBroadcastSkipsPartialMessagesAndForeignSessions() throws Exception
+    {
+        RecordingCoreSession idleCore = new RecordingCoreSession();
+        WebSocketSession idle = newSession(idleCore);
+        RecordingCoreSession partialCore = new RecordingCoreSession();
+        WebSocketSession partial = newSession(partialCore);
+        partial.getRemote().sendPartialString("fragment", false);
+        Session foreign = (Session)Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class}, (proxy, method, args) ->
+        {
+            if ("toString".equals(method.getName()))
+                return "ForeignSession";
+            throw new UnsupportedOperationException(method.getName());
+        });
+
+        JettyWebSocketBroadcaster broadcaster = new JettyWebSocketBroadcaster();
+        CountDownLatch complete = new CountDownLatch(1);
+        broadcaster.broadcastString("hello", List.of(idle, partial, foreign), new WriteCallback()
+        {
+            @Override
+            public void writeSuccess()
+            {
+                complete.countDown();
+            }
+        });
+        assertTrue(complete.await(5, TimeUnit.SECONDS));
+
+        assertThat(idleCore.opCodes, contains(OpCode.TEXT));
+        // The fragmented message is not interleaved with the broadcast frame
+        assertThat(partialCore.opCodes, contains(OpCode.TEXT));
+        assertThat(broadcaster.getFramesSent(), is(1L));
+        assertThat(broadcaster.getFramesFailed(), is(2L));
+
+        // Once the message is complete, the session is broadcast to again
+        partial.getRemote().sendPartialString("end", true);
+        broadcaster.broadcastString("again", List.of(partial), null);
+        assertThat(partialCore.opCodes, contains(OpCode.TEXT, OpCode.CONTINUATION, OpCode.TEXT));
+    }
+
+    private static class RecordingCoreSession extends CoreSession.Empty
+    {
+        private final List<Byte> opCodes = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void sendFrame(Frame frame, Callback callback, boolean batch)
+        {
+            opCodes.add(frame.getOpCode());
+            callback.succeeded();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+@State(Scope.Benchmark)
+@Threads(4)
+@Warmup(iterations = 5, time = 2000, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 2000, timeUnit = TimeUnit.MILLISECONDS)
+public class HttpFieldsBenchmark
+{
+    // A browser request with cookies, client hints and tracing headers
+    private static final HttpField[] REQUEST = {
+        new HttpField(HttpHeader.HOST, "www.example.com"),
+        new HttpField(HttpHeader.CONNECTION, "keep-alive"),
+        new HttpField(HttpHeader.CACHE_CONTROL, "max-age=0"),
+        new HttpField("sec-ch-ua", "\"Chromium\";v=\"118\", \"Google Chrome\";v=\"118\", \"Not=A?Brand\";v=\"99\""),
+        new HttpField("sec-ch-ua-mobile", "?0"),
+        new HttpField("sec-ch-ua-platform", "\"Linux\""),
+        new HttpField("Upgrade-Insecure-Requests", "1"),
+        new HttpField(HttpHeader.USER_AGENT, "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/118.0.0.0 Safari/537.36"),
+        new HttpField(HttpHeader.ACCEPT, "text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,*/*;q=0.8"),
+        new HttpField("Sec-Fetch-Site", "same-origin"),
+        new HttpField("Sec-Fetch-Mode", "navigate"),
+        new HttpField("Sec-Fetch-User", "?1"),
+        new HttpField("Sec-Fetch-Dest", "document"),
+        new HttpField(HttpHeader.REFERER, "https://www.example.com/index.html"),
+        new HttpField(HttpHeader.ACCEPT_ENCODING, "gzip, deflate, br"),
+        new HttpField(HttpHeader.ACCEPT_LANGUAGE, "en-US,en;q=0.9,fr;q=0.8"),
+        new HttpField(HttpHeader.COOKIE, "JSESSIONID=node01abcdefghijklmnopqrstuvwxyz0"),
+        new HttpField(HttpHeader.COOKIE, "_ga=GA1.2.1234567890.1234567890; _gid=GA1.2.1234567890.1234567890"),
+        new HttpField(HttpHeader.COOKIE, "theme=dark; lang=en"),
+        new HttpField(HttpHeader.IF_NONE_MATCH, "W/\"1234567890\""),
+        new HttpField(HttpHeader.IF_MODIFIED_SINCE, "Wed, 21 Oct 2015 07:28:00 GMT"),
+        new HttpField(HttpHeader.X_FORWARDED_FOR, "203.0.113.7, 198.51.100.12"),
+        new HttpField(HttpHeader.X_FORWARDED_PROTO, "https"),
+        new HttpField(HttpHeader.X_FORWARDED_HOST, "www.example.com"),
+        new HttpField(HttpHeader.X_FORWARDED_PORT, "443"),
+        new HttpField("X-Real-IP", "203.0.113.7"),
+        new HttpField("X-Request-Id", "f9b1c2d3-e4f5-6789-abcd-ef0123456789"),
+        new HttpField("X-Amzn-Trace-Id", "Root=1-67891233-abcdef012345678912345678"),
+        new HttpField("traceparent", "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01"),
+        new HttpField("tracestate", "congo=t61rcWkgMzE"),
+        new HttpField("X-B3-TraceId", "80f198ee56343ba864fe8b2a57d3eff7"),
+        new HttpField("X-B3-SpanId", "e457b5a2e4d86bd1"),
+        new HttpField("X-B3-Sampled", "1"),
+        new HttpField("X-Client-Version", "4.2.1"),
+        new HttpField("X-Device-Id", "0123456789abcdef"),
+        new HttpField("X-Feature-Flags", "beta,dark-mode"),
+        new HttpField("DNT", "1"),
+        new HttpField(HttpHeader.PRAGMA, "no-cache"),
+        new HttpField("Priority", "u=0, i"),
+        new HttpField("Via", "1.1 proxy.example.net"),
+        new HttpField(HttpHeader.X_FORWARDED_SERVER, "proxy.example.net"),
+        new HttpField("CF-Connecting-IP", "203.0.113.7"),
+    };
+
+    // The headers typically looked up while handling a request
+    private static final HttpHeader[] LOOKUPS = {
+        HttpHeader.HOST,
+        HttpHeader.CONTENT_TYPE,
+        HttpHeader.CONTENT_LENGTH,
+        HttpHeader.TRANSFER_ENCODING,
+        HttpHeader.EXPECT,
+        HttpHeader.CONNECTION,
+        HttpHeader.FORWARDED,
+        HttpHeader.X_FORWARDED_FOR,
+        HttpHeader.ACCEPT_ENCODING,
+        HttpHeader.COOKIE,
+        HttpHeader.IF_MATCH,
+        HttpHeader.IF_NONE_MATCH,
+        HttpHeader.IF_MODIFIED_SINCE,
+        HttpHeader.IF_UNMODIFIED_SINCE,
+        HttpHeader.RANGE,
+        HttpHeader.AUTHORIZATION,
+    };
+
+    private static final HttpFields IMMUTABLE = HttpFields.from(REQUEST);
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public void testImmutableLookups(Blackhole blackhole)
+    {
+        for (HttpHeader header : LOOKUPS)
+        {
+            blackhole.consume(IMMUTABLE.get(header));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public void testMutableLookups(Blackhole blackhole)
+    {
+        HttpFields.Mutable fields = HttpFields.build(REQUEST.length);
+        for (HttpField field : REQUEST)
+        {
+            fields.add(field);
+        }
+        for (HttpHeader header : LOOKUPS)
+        {
+            blackhole.consume(fields.get(header));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public HttpFields testResponseHeaders()
+    {
+        HttpFields.Mutable fields = HttpFields.build();
+        fields.put(HttpHeader.CONTENT_TYPE, "text/html;charset=utf-8");
+        fields.put(HttpHeader.CACHE_CONTROL, "no-cache");
+        fields.add(HttpHeader.VARY, "Accept-Encoding");
+        fields.put(HttpHeader.ETAG, "W/\"1234567890\"");
+        fields.put(HttpHeader.LAST_MODIFIED, "Wed, 21 Oct 2015 07:28:00 GMT");
+        fields.add(HttpHeader.SET_COOKIE, "JSESSIONID=node01abcdefghijklmnopqrstuvwxyz0; Path=/; HttpOnly");
+        fields.put(HttpHeader.X_POWERED_BY, "Jetty");
+        if (!fields.contains(HttpHeader.CONTENT_ENCODING))
+            fields.putLongField(HttpHeader.CONTENT_LENGTH, 1024L);
+        fields.remove(HttpHeader.TRANSFER_ENCODING);
+        fields.computeField(HttpHeader.CONNECTION, (h, l) -> new HttpField(h, "keep-alive"));
+        return fields;
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+            .include(HttpFieldsBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .forks(1)
+            .threads(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,117 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util.ssl;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+@State(Scope.Benchmark)
+@Threads(4)
+@Warmup(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 1000, timeUnit = TimeUnit.MILLISECONDS)
+public class SniIndexBenchmark
+{
+    @Param({"10", "1000", "20000"})
+    int certificates;
+
+    private final List<X509> x509s = new ArrayList<>();
+    private final SniIndex index = new SniIndex();
+    private String[] hosts;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        // Any certificate will do, the benchmark only uses the names added below.
+        Path cacerts = Path.of(System.getProperty("java.home"), "lib", "security", "cacerts");
+        KeyStore keyStore = KeyStore.getInstance(new File(cacerts.toString()), (char[])null);
+        X509Certificate certificate = (X509Certificate)keyStore.getCertificate(Collections.list(keyStore.aliases()).get(0));
+
+        hosts = new String[certificates];
+        for (int i = 0; i < certificates; ++i)
+        {
+            String tenant = "tenant" + i;
+            X509 x509 = new X509(tenant, certificate)
+            {
+                {
+                    addName("www." + tenant + ".example.com");
+                    addName("*." + tenant + ".example.org");
+                }
+            };
+            x509s.add(x509);
+            index.add(x509);
+            hosts[i] = (i % 2 == 0 ? "www." : "api.") + tenant + (i % 2 == 0 ? ".example.com" : ".example.org");
+        }
+    }
+
+    private String host()
+    {
+        return hosts[ThreadLocalRandom.current().nextInt(hosts.length)];
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void testIndexMatch(Blackhole blackhole)
+    {
+        blackhole.consume(index.match(host()));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void testLinearMatch(Blackhole blackhole)
+    {
+        String host = host();
+        List<X509> matching = new ArrayList<>();
+        for (X509 x509 : x509s)
+        {
+            if (x509.matches(host))
+                matching.add(x509);
+        }
+        blackhole.consume(matching);
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+            .include(SniIndexBenchmark.class.getSimpleName())
+            .forks(1)
+            .build();
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,329 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server.session;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.eclipse.jetty.toolchain.test.jupiter.WorkDir;
+import org.eclipse.jetty.toolchain.test.jupiter.WorkDirExtension;
+import org.eclipse.jetty.util.IO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * SegmentedFileSessionDataStoreTest
+ */
+@ExtendWith(WorkDirExtension.class)
+public class SegmentedFileSessionDataStoreTest
+{
+    public WorkDir workDir;
+    private File _storeDir;
+    private SegmentedFileSessionDataStore _store;
+
+    @BeforeEach
+    public void before() throws Exception
+    {
+        _storeDir = workDir.getEmptyPathDir().toFile();
+    }
+
+    @AfterEach
+    public void after() throws Exception
+    {
+        if (_store != null)
+            _store.stop();
+    }
+
+    private SegmentedFileSessionDataStore newStore(long maxSegmentSize) throws Exception
+    {
+        SegmentedFileSessionDataStore store = new SegmentedFileSessionDataStore();
+        store.setStoreDir(_storeDir);
+        store.setMaxSegmentSize(maxSegmentSize);
+        store.initialize(new SessionContext("node0", null));
+        store.start();
+        _store = store;
+        return store;
+    }
+
+    private SessionData newSessionData(SessionDataStore store, String id, long expiry)
+    {
+        long now = System.currentTimeMillis();
+        SessionData data = store.newSessionData(id, now, now, now, TimeUnit.MINUTES.toMillis(10));
+        data.setLastNode("node0");
+        data.setExpiry(expiry);
+        data.setAttribute("name", id);
+        return data;
+    }
+
+    @Test
+    public void testStoreLoadDelete() throws Exception
+    {
+        SegmentedFileSessionDataStore store = newStore(SegmentedFileSessionDataStore.DEFAULT_MAX_SEGMENT_SIZE);
+        long expiry = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1);
+        store.store("1234", newSessionData(store, "1234", expiry));
+
+        assertTrue(store.exists("1234"));
+        SessionData loaded = store.load("1234");
+        assertNotNull(loaded);
+        assertEquals("1234", loaded.getAttribute("name"));
+        assertEquals(expiry, loaded.getExpiry());
+
+        assertTrue(store.delete("1234"));
+        assertFalse(store.exists("1234"));
+        assertNull(store.load("1234"));
+        assertFalse(store.delete("1234"));
+    }
+
+    @Test
+    public void testRestartFromIndex() throws Exception
+    {
+        SegmentedFileSessionDataStore store = newStore(SegmentedFileSessionDataStore.DEFAULT_MAX_SEGMENT_SIZE);
+        long expiry = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1);
+        for (int i = 0; i < 10; i++)
+        {
+            store.store("s" + i, newSessionData(store, "s" + i, expiry));
+        }
+        store.delete("s3");
+        store.stop();
+
+        store = newStore(SegmentedFileSessionDataStore.DEFAULT_MAX_SEGMENT_SIZE);
+        assertEquals(9, store.getSessionCount());
+        assertNull(store.load("s3"));
+        assertEquals("s7", store.load("s7").getAttribute("name"));
+    }
+
+    @Test
+    public void testRecoverWithoutIndex() throws Exception
+    {
+        SegmentedFileSessionDataStore store = newStore(SegmentedFileSessionDataStore.DEFAULT_MAX_SEGMENT_SIZE);
+        long expiry = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1);
+        store.store("1234", newSessionData(store, "1234", expiry));
+        store.store("5678", newSessionData(store, "5678", expiry));
+        store.stop();
+
+        //simulate a crash: no index, and a partially written last record
+        Path contextDir = findContextDir();
+        Files.delete(contextDir.resolve("index"));
+        Path segment = contextDir.resolve("segment-0.log");
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE))
+        {
+            channel.truncate(channel.size() - 10);
+        }
+
+        store = newStore(SegmentedFileSessionDataStore.DEFAULT_MAX_SEGMENT_SIZE);
+        assertEquals(1, store.getSessionCount());
+        assertNotNull(store.load("1234"));
+        assertNull(store.load("5678"));
+
+        //the store remains writable after the truncation
+        store.store("5678", newSessionData(store, "5678", expiry));
+        store.stop();
+        store = newStore(SegmentedFileSessionDataStore.DEFAULT_MAX_SEGMENT_SIZE);
+        assertNotNull(store.load("5678"));
+    }
+
+    @Test
+    public void testRollAndCompact() throws Exception
+    {
+        SegmentedFileSessionDataStore store = newStore(1024);
+        long expiry = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1);
+        for (int i = 0; i < 50; i++)
+        {
+            store.store("s" + i, newSessionData(store, "s" + i, expiry));
+        }
+        int segments = store.getSegmentCount();
+        assertTrue(segments > 1);
+
+        //make most of the early segments garbage
+        for (int i = 0; i < 45; i++)
+        {
+            store.delete("s" + i);
+        }
+        store.compact();
+        assertTrue(store.getSegmentCount() < segments);
+
+        for (int i = 45; i < 50; i++)
+        {
+            assertEquals("s" + i, store.load("s" + i).getAttribute("name"));
+        }
+
+        store.stop();
+        store = newStore(1024);
+        assertEquals(5, store.getSessionCount());
+        assertEquals("s49", store.load("s49").getAttribute("name"));
+    }
+
+    @Test
+    public void testExpired() throws Exception
+    {
+        SegmentedFileSessionDataStore store = newStore(SegmentedFileSessionDataStore.DEFAULT_MAX_SEGMENT_SIZE);
+        long now = System.currentTimeMillis();
+        store.store("old", newSessionData(store, "old", now - TimeUnit.HOURS.toMillis(1)));
+        store.store("new", newSessionData(store, "new", now + TimeUnit.HOURS.toMillis(1)));
+
+        assertFalse(store.exists("old"));
+        assertTrue(store.exists("new"));
+        Set<String> expired = store.doGetExpired(now);
+        assertEquals(Collections.singleton("old"), expired);
+        assertEquals(Collections.singleton("old"), store.doCheckExpired(Set.of("old", "new"), now));
+    }
+
+    @Test
+    public void testCompactKeepsShadowingDeletes() throws Exception
+    {
+        //measure one record, so that each segment holds exactly four
+        SegmentedFileSessionDataStore store = newStore(SegmentedFileSessionDataStore.DEFAULT_MAX_SEGMENT_SIZE);
+        long expiry = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1);
+        store.store("aaaa", newSessionData(store, "aaaa", expiry));
+        long record = Files.size(findContextDir().resolve("segment-0.log"));
+        store.stop();
+        IO.delete(findContextDir().toFile());
+
+        store = newStore(4 * record);
+        //segment 0 stays dense, and still holds the record of the deleted session
+        for (String id : new String[]{"aaaa", "kkk1", "kkk2", "kkk3"})
+        {
+            store.store(id, newSessionData(store, id, expiry));
+        }
+        store.delete("aaaa");
+        //segment 1 holds the delete of aaaa, and becomes sparse
+        for (String id : new String[]{"ttt1", "ttt2", "ttt3", "ttt4"})
+        {
+            store.store(id, newSessionData(store, id, expiry));
+        }
+        for (String id : new String[]{"ttt1", "ttt2", "ttt3", "ttt4"})
+        {
+            store.delete(id);
+        }
+        int segments = store.getSegmentCount();
+        store.compact();
+        assertTrue(store.getSegmentCount() < segments);
+        store.stop();
+
+        //replaying every segment must not resurrect the deleted session
+        Files.delete(findContextDir().resolve("index"));
+        store = newStore(4 * record);
+        assertEquals(3, store.getSessionCount());
+        assertNull(store.load("aaaa"));
+        assertNotNull(store.load("kkk1"));
+    }
+
+    @Test
+    public void testStoreWhileCompacting() throws Exception
+    {
+        SegmentedFileSessionDataStore store = new SegmentedFileSessionDataStore();
+        store.setStoreDir(_storeDir);
+        store.setMaxSegmentSize(1024);
+        store.setForceOnStore(true);
+        store.initialize(new SessionContext("node0", null));
+        store.start();
+        _store = store;
+
+        long expiry = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1);
+        for (int i = 0; i < 50; i++)
+        {
+            store.store("s" + i, newSessionData(store, "s" + i, expiry));
+        }
+        for (int i = 0; i < 40; i++)
+        {
+            store.delete("s" + i);
+        }
+
+        //stores and deletes of the sessions being copied are not blocked by, nor lost to, the compaction
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() ->
+        {
+            try
+            {
+                for (int i = 40; i < 50; i++)
+                {
+                    SessionData data = newSessionData(store, "s" + i, expiry);
+                    data.setAttribute("name", "updated" + i);
+                    store.store("s" + i, data);
+                }
+                store.delete("s49");
+            }
+            catch (Exception x)
+            {
+                throw new CompletionException(x);
+            }
+        });
+        store.compact();
+        writer.get(5, TimeUnit.SECONDS);
+        store.compact();
+
+        for (int i = 40; i < 49; i++)
+        {
+            assertEquals("updated" + i, store.load("s" + i).getAttribute("name"));
+        }
+        assertNull(store.load("s49"));
+
+        store.stop();
+        Files.delete(findContextDir().resolve("index"));
+        SegmentedFileSessionDataStore restarted = newStore(1024);
+        assertEquals(9, restarted.getSessionCount());
+        assertEquals("updated45", restarted.load("s45").getAttribute("name"));
+        assertNull(restarted.load("s49"));
+    }
+
+    @Test
+    public void testInterruptDoesNotCloseSegment() throws Exception
+    {
+        SegmentedFileSessionDataStore store = newStore(SegmentedFileSessionDataStore.DEFAULT_MAX_SEGMENT_SIZE);
+        long expiry = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1);
+        store.store("1234", newSessionData(store, "1234", expiry));
+
+        //write and read the segments directly on the interrupted thread, as
+        //store and load would wait for the context with an interruptible latch
+        Thread.currentThread().interrupt();
+        try
+        {
+            store.doStore("5678", newSessionData(store, "5678", expiry), 0);
+            assertNotNull(store.doLoad("1234"));
+        }
+        finally
+        {
+            //the interrupt status is preserved
+            assertTrue(Thread.interrupted());
+        }
+
+        assertNotNull(store.load("5678"));
+        store.store("9012", newSessionData(store, "9012", expiry));
+        assertNotNull(store.load("9012"));
+    }
+
+    private Path findContextDir() throws Exception
+    {
+        try (Stream<Path> dirs = Files.list(_storeDir.toPath()))
+        {
+            return dirs.filter(Files::isDirectory).findFirst().orElseThrow();
+        }
+    }
+}
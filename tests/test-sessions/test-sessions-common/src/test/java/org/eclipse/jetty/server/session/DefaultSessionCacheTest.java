@@ -13,8 +13,17 @@
 
 package org.eclipse.jetty.server.session;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.servlet.http.HttpSession;
 
 import org.eclipse.jetty.server.Request;
@@ -22,10 +31,14 @@ import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.junit.jupiter.api.Test;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -349,6 +362,207 @@ public class DefaultSessionCacheTest extends AbstractSessionCacheTest
         assertTrue(store.exists("1234"));
     }
 
+    /**
+     * Test that the last request exiting a session that stays in the cache
+     * does not wait for an asynchronous store, and that a failed store
+     * leaves the session data dirty.
+     */
+    @Test
+    public void testReleaseStoresAsynchronously()
+        throws Exception
+    {
+        Server server = new Server();
+
+        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.SESSIONS);
+        context.setContextPath("/test");
+        context.setServer(server);
+
+        SessionCacheFactory cacheFactory = newSessionCacheFactory(SessionCache.NEVER_EVICT, false, false, false, false);
+        DefaultSessionCache cache = (DefaultSessionCache)cacheFactory.getSessionCache(context.getSessionHandler());
+
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        TestSessionDataStore store = new TestSessionDataStore()
+        {
+            @Override
+            protected CompletableFuture<Void> doStoreAsync(String id, SessionData data, long lastSaveTime)
+            {
+                CompletableFuture<Void> write = new CompletableFuture<>();
+                writes.add(write);
+                return write.thenRun(() -> _map.put(id, data));
+            }
+        };
+        cache.setSessionDataStore(store);
+        context.getSessionHandler().setSessionCache(cache);
+        context.start();
+
+        long now = System.currentTimeMillis();
+        SessionData data = store.newSessionData("1234", now - 20, now - 10, now - 20, TimeUnit.MINUTES.toMillis(10));
+        data.setExpiry(now + TimeUnit.DAYS.toMillis(1));
+        Session session = cache.newSession(data);
+        cache.add("1234", session);
+
+        //the release returns before the data is written
+        cache.release("1234", session);
+        assertEquals(1, writes.size());
+        assertTrue(cache.contains("1234"));
+        assertFalse(store.exists("1234"));
+        assertFalse(data.isDirty());
+
+        writes.get(0).complete(null);
+        assertTrue(store.exists("1234"));
+
+        //a failed write is retried by the next store
+        assertSame(session, cache.get("1234"));
+        session.setAttribute("name", "value");
+        cache.release("1234", session);
+        assertEquals(2, writes.size());
+        assertFalse(data.isDirty());
+        writes.get(1).completeExceptionally(new IllegalStateException("test"));
+        assertTrue(data.isDirty());
+    }
+
+    /**
+     * Test that concurrent requests for a session that is not
+     * in the cache share a single load from the store.
+     */
+    @Test
+    public void testConcurrentGetLoadsOnce()
+        throws Exception
+    {
+        Server server = new Server();
+
+        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.SESSIONS);
+        context.setContextPath("/test");
+        context.setServer(server);
+
+        SessionCacheFactory cacheFactory = newSessionCacheFactory(SessionCache.NEVER_EVICT, false, false, false, false);
+        DefaultSessionCache cache = (DefaultSessionCache)cacheFactory.getSessionCache(context.getSessionHandler());
+
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch loadProceed = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        TestSessionDataStore store = new TestSessionDataStore()
+        {
+            @Override
+            public SessionData doLoad(String id) throws Exception
+            {
+                loads.incrementAndGet();
+                loadStarted.countDown();
+                assertTrue(loadProceed.await(5, TimeUnit.SECONDS));
+                return super.doLoad(id);
+            }
+        };
+        cache.setSessionDataStore(store);
+        context.getSessionHandler().setSessionCache(cache);
+        context.start();
+
+        //put data for a session into the store, but not the cache
+        long now = System.currentTimeMillis();
+        SessionData data = store.newSessionData("1234", now - 20, now - 10, now - 20, TimeUnit.MINUTES.toMillis(10));
+        data.setExpiry(now + TimeUnit.DAYS.toMillis(1));
+        store.store("1234", data);
+        assertFalse(cache.contains("1234"));
+
+        int requests = 10;
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        try
+        {
+            List<Future<Session>> results = new ArrayList<>();
+            for (int i = 0; i < requests; i++)
+            {
+                results.add(executor.submit(() -> cache.get("1234")));
+            }
+
+            assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+            loadProceed.countDown();
+
+            Session first = results.get(0).get(5, TimeUnit.SECONDS);
+            assertNotNull(first);
+            for (Future<Session> result : results)
+            {
+                assertSame(first, result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertEquals(requests, first.getRequests());
+            assertEquals(1, cache.getSessionsCurrent());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Test that concurrent requests for a session that is not in the store,
+     * or that fails to load, share the outcome of a single load.
+     */
+    @Test
+    public void testConcurrentGetSharesMissAndFailure()
+        throws Exception
+    {
+        Server server = new Server();
+
+        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.SESSIONS);
+        context.setContextPath("/test");
+        context.setServer(server);
+
+        SessionCacheFactory cacheFactory = newSessionCacheFactory(SessionCache.NEVER_EVICT, false, false, false, false);
+        DefaultSessionCache cache = (DefaultSessionCache)cacheFactory.getSessionCache(context.getSessionHandler());
+
+        int requests = 10;
+        AtomicInteger loads = new AtomicInteger();
+        TestSessionDataStore store = new TestSessionDataStore()
+        {
+            @Override
+            public SessionData doLoad(String id) throws Exception
+            {
+                loads.incrementAndGet();
+                //complete the load only when all the other requests wait for it
+                long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                while (cache.getLoadWaiters(id) < requests - 1)
+                {
+                    if (System.nanoTime() - end > 0)
+                        fail("requests did not join the load of " + id);
+                    Thread.sleep(10);
+                }
+                if ("bad".equals(id))
+                    throw new IllegalStateException("cannot load " + id);
+                return super.doLoad(id);
+            }
+        };
+        cache.setSessionDataStore(store);
+        context.getSessionHandler().setSessionCache(cache);
+        context.start();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2 * requests);
+        try
+        {
+            List<Future<Session>> missing = new ArrayList<>();
+            List<Future<Session>> failing = new ArrayList<>();
+            for (int i = 0; i < requests; i++)
+            {
+                missing.add(executor.submit(() -> cache.get("unknown")));
+                failing.add(executor.submit(() -> cache.get("bad")));
+            }
+
+            for (Future<Session> result : missing)
+            {
+                assertNull(result.get(5, TimeUnit.SECONDS));
+            }
+            for (Future<Session> result : failing)
+            {
+                ExecutionException x = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+                assertThat(x.getCause(), instanceOf(IllegalStateException.class));
+            }
+            assertEquals(2, loads.get());
+            assertEquals(0, cache.getSessionsCurrent());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
     /**
      * Test contains method.
      */